@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.guvnor.common.services.builder.Builder;
+import org.guvnor.common.services.project.builder.model.IncrementalBuildResults;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.uberfire.backend.server.util.Paths;
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.workbench.events.ResourceChange;
+import org.uberfire.workbench.events.ResourceUpdated;
+
+/**
+ * Incremental builds of batches of updated resources of a built synthetic Project, as applied by
+ * ResourceChangeIncrementalBuilder for batch resource change events. Files are written before each invocation
+ * so only the incremental build itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BatchBuildBenchmark {
+
+    @Param({ "100" })
+    public int drlFiles;
+
+    @Param({ "20" })
+    public int javaFacts;
+
+    @Param({ "5" })
+    public int packages;
+
+    @Param({ "1", "10", "50", "100" })
+    public int batchSize;
+
+    private BenchmarkProject benchmarkProject;
+    private Builder builder;
+
+    private int index = 0;
+    private int threshold = 0;
+    private Map<Path, Collection<ResourceChange>> changes;
+
+    @Setup(Level.Trial)
+    public void setupProject() throws IOException {
+        benchmarkProject = new BenchmarkProject( drlFiles,
+                                                 javaFacts,
+                                                 packages );
+        builder = benchmarkProject.newBuiltBuilder();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteProject() {
+        benchmarkProject.delete();
+    }
+
+    //Each invocation updates the next batch of DRL files with new content
+    @Setup(Level.Invocation)
+    public void writeDrls() throws IOException {
+        threshold++;
+        changes = new HashMap<Path, Collection<ResourceChange>>();
+        for ( int i = 0; i < batchSize; i++ ) {
+            index = ( index + 1 ) % drlFiles;
+            final Path path = Paths.convert( SyntheticProject.toPath( benchmarkProject.getSyntheticProject().writeDrl( index,
+                                                                                                                      threshold ) ) );
+            final Collection<ResourceChange> pathChanges = new ArrayList<ResourceChange>();
+            pathChanges.add( new ResourceUpdated() );
+            changes.put( path,
+                         pathChanges );
+        }
+    }
+
+    @Benchmark
+    public IncrementalBuildResults applyBatchResourceChanges() {
+        return builder.applyBatchResourceChanges( changes );
+    }
+
+}
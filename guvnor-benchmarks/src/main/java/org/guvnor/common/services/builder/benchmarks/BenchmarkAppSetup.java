@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import javax.annotation.PostConstruct;
+import javax.enterprise.inject.Alternative;
+import javax.enterprise.inject.Default;
+import javax.enterprise.inject.Produces;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.ServletContext;
+
+import org.uberfire.io.IOService;
+import org.uberfire.io.impl.IOServiceDotFileImpl;
+import org.uberfire.rpc.SessionInfo;
+
+/**
+ * Producers of the beans otherwise provided by the web application, for benchmarks run in Weld SE
+ */
+@Singleton
+@Alternative
+public class BenchmarkAppSetup {
+
+    private final IOService ioService = new IOServiceDotFileImpl();
+
+    @PostConstruct
+    public void onStartup() {
+    }
+
+    @Produces
+    @Named("ioStrategy")
+    public IOService makeIOService() {
+        return ioService;
+    }
+
+    @Produces
+    @Named("uf")
+    public ServletContext servletContext() {
+        return makeNullObject( ServletContext.class );
+    }
+
+    @Produces
+    @Default
+    public SessionInfo sessionInfo() {
+        return makeNullObject( SessionInfo.class );
+    }
+
+    //An implementation of an interface whose methods do nothing and return null, or false, zero etc for primitives
+    @SuppressWarnings("unchecked")
+    private static <T> T makeNullObject( final Class<T> type ) {
+        return (T) Proxy.newProxyInstance( BenchmarkAppSetup.class.getClassLoader(),
+                                           new Class<?>[]{ type },
+                                           new InvocationHandler() {
+                                               @Override
+                                               public Object invoke( final Object proxy,
+                                                                     final Method method,
+                                                                     final Object[] args ) {
+                                                   if ( method.getDeclaringClass() == Object.class ) {
+                                                       if ( "equals".equals( method.getName() ) ) {
+                                                           return proxy == args[ 0 ];
+                                                       } else if ( "hashCode".equals( method.getName() ) ) {
+                                                           return System.identityHashCode( proxy );
+                                                       }
+                                                       return type.getSimpleName();
+                                                   }
+                                                   final Class<?> returnType = method.getReturnType();
+                                                   if ( returnType == boolean.class ) {
+                                                       return false;
+                                                   } else if ( returnType == int.class ) {
+                                                       return 0;
+                                                   } else if ( returnType == long.class ) {
+                                                       return 0L;
+                                                   }
+                                                   return null;
+                                               }
+                                           } );
+    }
+
+}
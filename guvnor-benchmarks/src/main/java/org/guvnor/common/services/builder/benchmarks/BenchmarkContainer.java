@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder.benchmarks;
+
+import java.lang.annotation.Annotation;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.util.AnnotationLiteral;
+import javax.inject.Named;
+
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.uberfire.io.IOService;
+
+/**
+ * A Weld SE container for benchmarks of CDI beans. Beans the web application would otherwise provide are produced
+ * by BenchmarkAppSetup and BenchmarkIdentityFactory.
+ */
+public class BenchmarkContainer {
+
+    private final Weld weld = new Weld();
+    private final BeanManager beanManager;
+
+    public BenchmarkContainer() {
+        final WeldContainer container = weld.initialize();
+        beanManager = container.getBeanManager();
+    }
+
+    public IOService getIOService() {
+        return getReference( IOService.class,
+                             new NamedLiteral( "ioStrategy" ) );
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getReference( final Class<T> clazz,
+                               final Annotation... qualifiers ) {
+        final Bean<?> bean = beanManager.resolve( beanManager.getBeans( clazz,
+                                                                        qualifiers ) );
+        return (T) beanManager.getReference( bean,
+                                             clazz,
+                                             beanManager.createCreationalContext( bean ) );
+    }
+
+    public void shutdown() {
+        weld.shutdown();
+    }
+
+    private static class NamedLiteral extends AnnotationLiteral<Named> implements Named {
+
+        private final String value;
+
+        private NamedLiteral( final String value ) {
+            this.value = value;
+        }
+
+        @Override
+        public String value() {
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.guvnor.common.services.builder.BuildMetrics;
+import org.guvnor.common.services.builder.Builder;
+import org.guvnor.common.services.builder.BuilderSettings;
+import org.guvnor.common.services.builder.CompilationThrottle;
+import org.guvnor.common.services.builder.ExternalClassVerificationCache;
+import org.guvnor.common.services.project.builder.service.BuildValidationHelper;
+import org.guvnor.common.services.project.events.RuleNameUpdateEvent;
+import org.guvnor.common.services.project.model.Project;
+import org.uberfire.io.IOService;
+import org.uberfire.io.impl.IOServiceDotFileImpl;
+import org.uberfire.java.nio.file.Path;
+
+/**
+ * A SyntheticProject in a temporary directory, and Builders for it created as LRUBuilderCache does but without a
+ * CDI container. Builders share caches, as they do when created by LRUBuilderCache, and load resources serially.
+ */
+public class BenchmarkProject {
+
+    private final File root;
+    private final SyntheticProject syntheticProject;
+    private final Project project;
+    private final Path projectPath;
+    private final IOService ioService = new IOServiceDotFileImpl();
+
+    private final ExternalClassVerificationCache verificationCache = new ExternalClassVerificationCache();
+    private final CompilationThrottle compilationThrottle = new CompilationThrottle();
+    private final BuildMetrics buildMetrics = new BuildMetrics();
+
+    public BenchmarkProject( final int drlFiles,
+                             final int javaFacts,
+                             final int packages ) throws IOException {
+        root = File.createTempFile( "guvnor-benchmark",
+                                    "" );
+        root.delete();
+        syntheticProject = new SyntheticProject( root,
+                                                 "guvnor-benchmark",
+                                                 drlFiles,
+                                                 javaFacts,
+                                                 packages );
+        project = syntheticProject.toProject();
+        projectPath = SyntheticProject.toPath( root );
+    }
+
+    public SyntheticProject getSyntheticProject() {
+        return syntheticProject;
+    }
+
+    //Synthetic Projects have no project.imports, the only resource for which a Builder uses the ProjectService
+    public Builder newBuilder() {
+        return new Builder( project,
+                            projectPath,
+                            syntheticProject.getGav(),
+                            ioService,
+                            null,
+                            new DiscardingEvent<RuleNameUpdateEvent>(),
+                            new ArrayList<BuildValidationHelper>(),
+                            BuilderSettings.newSettings()
+                                    .withVerificationCache( verificationCache )
+                                    .withCompilationThrottle( compilationThrottle )
+                                    .withBuildMetrics( buildMetrics ) );
+    }
+
+    /**
+     * Create a Builder and perform a full build, which must succeed
+     * @return
+     */
+    public Builder newBuiltBuilder() {
+        final Builder builder = newBuilder();
+        checkNoErrors( builder.build().getErrorMessages() );
+        return builder;
+    }
+
+    public void delete() {
+        SyntheticProject.delete( root );
+    }
+
+    static void checkNoErrors( final Iterable<?> errorMessages ) {
+        if ( errorMessages.iterator().hasNext() ) {
+            throw new IllegalStateException( "Synthetic Project has errors: " + errorMessages );
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.guvnor.common.services.builder.Builder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full builds of a synthetic Project. "load" measures creation of a Builder, which loads the Project's resources,
+ * and "fullBuild" creation of a Builder followed by a full build as performed by BuildService.build(..).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BuilderBenchmark {
+
+    @Param({ "10", "100" })
+    public int drlFiles;
+
+    @Param({ "10", "50" })
+    public int javaFacts;
+
+    @Param({ "1", "10" })
+    public int packages;
+
+    private BenchmarkProject benchmarkProject;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        benchmarkProject = new BenchmarkProject( drlFiles,
+                                                 javaFacts,
+                                                 packages );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        benchmarkProject.delete();
+    }
+
+    @Benchmark
+    public Builder load() {
+        return benchmarkProject.newBuilder();
+    }
+
+    @Benchmark
+    public Builder fullBuild() {
+        return benchmarkProject.newBuiltBuilder();
+    }
+
+}
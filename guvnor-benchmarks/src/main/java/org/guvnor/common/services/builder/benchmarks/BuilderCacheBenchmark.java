@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.guvnor.common.services.builder.Builder;
+import org.guvnor.common.services.builder.LRUBuilderCache;
+import org.guvnor.common.services.project.model.Project;
+import org.guvnor.common.services.project.service.ProjectService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.uberfire.backend.server.util.Paths;
+import org.uberfire.io.IOService;
+
+/**
+ * LRUBuilderCache.assertBuilder(..) called concurrently for random Projects. Whilst the Projects fit in the cache
+ * (by default 20 Builders) this measures contention on the cache; beyond that it includes the creation of the
+ * Builders of evicted Projects, which loads their resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@Threads(8)
+public class BuilderCacheBenchmark {
+
+    @Param({ "8", "32" })
+    public int projectCount;
+
+    @Param({ "20" })
+    public int drlFiles;
+
+    private File root;
+    private BenchmarkContainer container;
+    private LRUBuilderCache cache;
+    private final List<Project> projects = new ArrayList<Project>();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = File.createTempFile( "builder-cache-benchmark",
+                                    "" );
+        root.delete();
+        container = new BenchmarkContainer();
+        cache = container.getReference( LRUBuilderCache.class );
+        final IOService ioService = container.getIOService();
+        final ProjectService projectService = container.getReference( ProjectService.class );
+        for ( int i = 0; i < projectCount; i++ ) {
+            final File projectRoot = new File( root,
+                                               "project" + i );
+            new SyntheticProject( projectRoot,
+                                  "project" + i,
+                                  drlFiles,
+                                  5,
+                                  2 );
+            final Project project = projectService.resolveProject( Paths.convert( ioService.get( projectRoot.toURI() ) ) );
+            if ( project == null ) {
+                throw new IllegalStateException( "Unable to resolve Project: " + projectRoot );
+            }
+            projects.add( project );
+            cache.assertBuilder( project );
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.invalidateCache();
+        container.shutdown();
+        SyntheticProject.delete( root );
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private final Random random = new Random();
+
+    }
+
+    @Benchmark
+    public Builder assertBuilder( final ThreadState state ) {
+        return cache.assertBuilder( projects.get( state.random.nextInt( projects.size() ) ) );
+    }
+
+}
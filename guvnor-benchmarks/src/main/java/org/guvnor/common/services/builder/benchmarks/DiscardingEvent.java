@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder.benchmarks;
+
+import java.lang.annotation.Annotation;
+import javax.enterprise.event.Event;
+import javax.enterprise.util.TypeLiteral;
+
+/**
+ * An Event without observers, for Builders created outside of a CDI container
+ */
+public class DiscardingEvent<T> implements Event<T> {
+
+    @Override
+    public void fire( final T event ) {
+    }
+
+    @Override
+    public Event<T> select( final Annotation... qualifiers ) {
+        return this;
+    }
+
+    @Override
+    public <U extends T> Event<U> select( final Class<U> subtype,
+                                          final Annotation... qualifiers ) {
+        return new DiscardingEvent<U>();
+    }
+
+    @Override
+    public <U extends T> Event<U> select( final TypeLiteral<U> subtype,
+                                          final Annotation... qualifiers ) {
+        return new DiscardingEvent<U>();
+    }
+
+}
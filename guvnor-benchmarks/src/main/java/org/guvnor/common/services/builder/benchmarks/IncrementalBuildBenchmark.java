@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.guvnor.common.services.builder.Builder;
+import org.guvnor.common.services.project.builder.model.IncrementalBuildResults;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.uberfire.java.nio.file.Path;
+
+/**
+ * Incremental builds of single resources of a built synthetic Project. Files are written before, and removed after,
+ * each invocation so only the incremental build itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IncrementalBuildBenchmark {
+
+    public abstract static class BuiltProjectState {
+
+        @Param({ "100" })
+        public int drlFiles;
+
+        @Param({ "20" })
+        public int javaFacts;
+
+        @Param({ "5" })
+        public int packages;
+
+        protected BenchmarkProject benchmarkProject;
+        protected Builder builder;
+
+        @Setup(Level.Trial)
+        public void setupProject() throws IOException {
+            benchmarkProject = new BenchmarkProject( drlFiles,
+                                                     javaFacts,
+                                                     packages );
+            builder = benchmarkProject.newBuiltBuilder();
+        }
+
+        @TearDown(Level.Trial)
+        public void deleteProject() {
+            benchmarkProject.delete();
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class UpdateState extends BuiltProjectState {
+
+        private int index = 0;
+        private int threshold = 0;
+        private Path path;
+
+        //Each invocation updates the next DRL file with new content
+        @Setup(Level.Invocation)
+        public void writeDrl() throws IOException {
+            index = ( index + 1 ) % drlFiles;
+            threshold++;
+            path = SyntheticProject.toPath( benchmarkProject.getSyntheticProject().writeDrl( index,
+                                                                                            threshold ) );
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class AddState extends BuiltProjectState {
+
+        private int count = 0;
+        private File file;
+        private Path path;
+
+        @Setup(Level.Invocation)
+        public void writeDrl() throws IOException {
+            count++;
+            file = benchmarkProject.getSyntheticProject().writeAdditionalDrl( "added" + count,
+                                                                              count );
+            path = SyntheticProject.toPath( file );
+        }
+
+        //The added DRL file is removed so the Project does not grow between invocations
+        @TearDown(Level.Invocation)
+        public void deleteDrl() {
+            file.delete();
+            builder.deleteResource( path );
+        }
+
+    }
+
+    @Benchmark
+    public IncrementalBuildResults updateResource( final UpdateState state ) {
+        return state.builder.updateResource( state.path );
+    }
+
+    @Benchmark
+    public IncrementalBuildResults addResource( final AddState state ) {
+        return state.builder.addResource( state.path );
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.guvnor.common.services.project.model.GAV;
+import org.guvnor.common.services.project.model.Project;
+import org.uberfire.backend.server.util.Paths;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.fs.file.SimpleFileSystemProvider;
+
+/**
+ * A Project generated on disk for benchmarking. The Project has N DRL files and M Java facts, spread over K packages.
+ * Each DRL file has a single rule matching one of the facts, which is imported from its own package.
+ */
+public class SyntheticProject {
+
+    private static final String GROUP_ID = "org.guvnor.benchmarks";
+    private static final String VERSION = "1.0";
+    private static final String PACKAGE_PREFIX = "org.guvnor.benchmarks.pkg";
+
+    private static final SimpleFileSystemProvider fileSystemProvider = new SimpleFileSystemProvider();
+
+    private final File root;
+    private final String name;
+    private final int drlFiles;
+    private final int javaFacts;
+    private final int packages;
+
+    /**
+     * Generate a Project
+     * @param root Directory in which to generate the Project. It is created if necessary.
+     * @param name
+     * @param drlFiles Number of DRL files (N)
+     * @param javaFacts Number of Java facts (M). At least one.
+     * @param packages Number of packages (K). At least one.
+     * @throws IOException
+     */
+    public SyntheticProject( final File root,
+                             final String name,
+                             final int drlFiles,
+                             final int javaFacts,
+                             final int packages ) throws IOException {
+        this.root = root;
+        this.name = name;
+        this.drlFiles = drlFiles;
+        this.javaFacts = Math.max( 1,
+                                   javaFacts );
+        this.packages = Math.max( 1,
+                                  packages );
+        generate();
+    }
+
+    private void generate() throws IOException {
+        write( new File( root,
+                         "pom.xml" ),
+               "<project xmlns=\"http://maven.apache.org/POM/4.0.0\"\n" +
+                       "         xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n" +
+                       "         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n" +
+                       "  <modelVersion>4.0.0</modelVersion>\n" +
+                       "  <groupId>" + GROUP_ID + "</groupId>\n" +
+                       "  <artifactId>" + name + "</artifactId>\n" +
+                       "  <version>" + VERSION + "</version>\n" +
+                       "</project>\n" );
+        write( new File( root,
+                         "src/main/resources/META-INF/kmodule.xml" ),
+               "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                       "<kmodule xmlns=\"http://jboss.org/kie/6.0.0/kmodule\" />\n" );
+        for ( int i = 0; i < javaFacts; i++ ) {
+            writeJavaFact( i );
+        }
+        for ( int i = 0; i < drlFiles; i++ ) {
+            writeDrl( i,
+                      0 );
+        }
+    }
+
+    private void writeJavaFact( final int index ) throws IOException {
+        final String packageName = getPackageName( index );
+        write( getJavaFile( index ),
+               "package " + packageName + ";\n\n" +
+                       "public class " + getFactName( index ) + " implements java.io.Serializable {\n\n" +
+                       "    private int value;\n" +
+                       "    private String description;\n\n" +
+                       "    public int getValue() {\n" +
+                       "        return value;\n" +
+                       "    }\n\n" +
+                       "    public void setValue( final int value ) {\n" +
+                       "        this.value = value;\n" +
+                       "    }\n\n" +
+                       "    public String getDescription() {\n" +
+                       "        return description;\n" +
+                       "    }\n\n" +
+                       "    public void setDescription( final String description ) {\n" +
+                       "        this.description = description;\n" +
+                       "    }\n\n" +
+                       "}\n" );
+    }
+
+    /**
+     * (Re-)write a DRL file. Different thresholds produce different, valid, content.
+     * @param index
+     * @param threshold Value compared by the rule's constraint
+     * @return The DRL file
+     * @throws IOException
+     */
+    public File writeDrl( final int index,
+                          final int threshold ) throws IOException {
+        return writeDrl( getDrlFile( index ),
+                         index,
+                         threshold );
+    }
+
+    /**
+     * Write a DRL file that is not part of the generated content, e.g. to be added by an incremental build
+     * @param fileName
+     * @param index Index of the DRL file whose package and rule are mirrored; the rule name is made unique
+     * @return The DRL file
+     * @throws IOException
+     */
+    public File writeAdditionalDrl( final String fileName,
+                                    final int index ) throws IOException {
+        final File file = new File( getPackageDirectory( "src/main/resources",
+                                                         index % packages ),
+                                    fileName + ".drl" );
+        return writeDrl( file,
+                         index,
+                         0,
+                         fileName );
+    }
+
+    private File writeDrl( final File file,
+                           final int index,
+                           final int threshold ) throws IOException {
+        return writeDrl( file,
+                         index,
+                         threshold,
+                         "rule" + index );
+    }
+
+    private File writeDrl( final File file,
+                           final int index,
+                           final int threshold,
+                           final String ruleName ) throws IOException {
+        final int factIndex = index % javaFacts;
+        write( file,
+               "package " + getPackageName( index ) + ";\n\n" +
+                       "import " + getPackageName( factIndex ) + "." + getFactName( factIndex ) + ";\n\n" +
+                       "rule \"" + ruleName + "\"\n" +
+                       "when\n" +
+                       "    $f : " + getFactName( factIndex ) + "( value > " + threshold + ", description != null )\n" +
+                       "then\n" +
+                       "    $f.setDescription( \"" + ruleName + "\" );\n" +
+                       "end\n" );
+        return file;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public GAV getGav() {
+        return new GAV( GROUP_ID,
+                        name,
+                        VERSION );
+    }
+
+    public int getDrlFileCount() {
+        return drlFiles;
+    }
+
+    public int getJavaFactCount() {
+        return javaFacts;
+    }
+
+    public File getDrlFile( final int index ) {
+        return new File( getPackageDirectory( "src/main/resources",
+                                              index % packages ),
+                         "rule" + index + ".drl" );
+    }
+
+    public File getJavaFile( final int index ) {
+        return new File( getPackageDirectory( "src/main/java",
+                                              index % packages ),
+                         getFactName( index ) + ".java" );
+    }
+
+    /**
+     * Return the Path of a file on the simple file system, as read by a Builder
+     * @param file
+     * @return
+     */
+    public static Path toPath( final File file ) {
+        return fileSystemProvider.getPath( file.toURI() );
+    }
+
+    /**
+     * Return a Project model of the generated Project, without resolving it with a ProjectService
+     * @return
+     */
+    public Project toProject() {
+        return new Project( Paths.convert( toPath( root ) ),
+                            Paths.convert( toPath( new File( root,
+                                                             "pom.xml" ) ) ),
+                            Paths.convert( toPath( new File( root,
+                                                             "src/main/resources/META-INF/kmodule.xml" ) ) ),
+                            Paths.convert( toPath( new File( root,
+                                                             "project.imports" ) ) ),
+                            name );
+    }
+
+    private String getPackageName( final int index ) {
+        return PACKAGE_PREFIX + ( index % packages );
+    }
+
+    private String getFactName( final int index ) {
+        return "Fact" + index;
+    }
+
+    private File getPackageDirectory( final String sourceRoot,
+                                      final int packageIndex ) {
+        return new File( new File( root,
+                                   sourceRoot ),
+                         ( PACKAGE_PREFIX + packageIndex ).replace( '.',
+                                                                    File.separatorChar ) );
+    }
+
+    private static void write( final File file,
+                               final String content ) throws IOException {
+        file.getParentFile().mkdirs();
+        final Writer writer = new OutputStreamWriter( new FileOutputStream( file ),
+                                                      "UTF-8" );
+        try {
+            writer.write( content );
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Delete a directory, or file, recursively
+     * @param file
+     */
+    public static void delete( final File file ) {
+        final File[] children = file.listFiles();
+        if ( children != null ) {
+            for ( File child : children ) {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+
+}
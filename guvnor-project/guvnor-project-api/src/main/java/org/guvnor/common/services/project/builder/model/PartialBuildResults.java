@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.project.builder.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.guvnor.common.services.project.model.GAV;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * Messages produced by one phase of a streaming full build. Events for a build share the build's identifier and
+ * are numbered, from zero, in the order they were produced. The last event of a build carries no messages and
+ * has the totals of all messages produced by the build.
+ */
+@Portable
+public class PartialBuildResults {
+
+    private String buildId;
+    private GAV gav;
+    private int sequenceNumber;
+    private ArrayList<BuildMessage> messages = new ArrayList<BuildMessage>();
+
+    private boolean isFinal = false;
+    private int totalMessages;
+    private int totalErrorMessages;
+    private int totalWarningMessages;
+    private int totalInformationMessages;
+
+    public PartialBuildResults() {
+        //Marshalling
+    }
+
+    public PartialBuildResults( final String buildId,
+                                final GAV gav,
+                                final int sequenceNumber,
+                                final List<BuildMessage> messages ) {
+        this.buildId = buildId;
+        this.gav = gav;
+        this.sequenceNumber = sequenceNumber;
+        this.messages.addAll( messages );
+    }
+
+    /**
+     * Create the last event of a build
+     * @param buildId
+     * @param gav
+     * @param sequenceNumber
+     * @param results All results of the build
+     */
+    public PartialBuildResults( final String buildId,
+                                final GAV gav,
+                                final int sequenceNumber,
+                                final BuildResults results ) {
+        this.buildId = buildId;
+        this.gav = gav;
+        this.sequenceNumber = sequenceNumber;
+        this.isFinal = true;
+        this.totalMessages = results.getMessages().size();
+        this.totalErrorMessages = results.getErrorMessages().size();
+        this.totalWarningMessages = results.getWarningMessages().size();
+        this.totalInformationMessages = results.getInformationMessages().size();
+    }
+
+    public String getBuildId() {
+        return buildId;
+    }
+
+    public GAV getGAV() {
+        return gav;
+    }
+
+    public int getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public List<BuildMessage> getMessages() {
+        return Collections.unmodifiableList( messages );
+    }
+
+    /**
+     * Whether this is the last event of the build
+     * @return
+     */
+    public boolean isFinal() {
+        return isFinal;
+    }
+
+    public int getTotalMessages() {
+        return totalMessages;
+    }
+
+    public int getTotalErrorMessages() {
+        return totalErrorMessages;
+    }
+
+    public int getTotalWarningMessages() {
+        return totalWarningMessages;
+    }
+
+    public int getTotalInformationMessages() {
+        return totalInformationMessages;
+    }
+
+}
@@ -17,6 +17,7 @@
 package org.guvnor.common.services.project.builder.service;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.guvnor.common.services.project.builder.model.BuildResults;
@@ -35,12 +36,30 @@ public interface BuildService {
      */
     BuildResults build( final Project project );
 
+    /**
+     * Full build without deployment, streaming messages as they are produced. A PartialBuildResults event is raised
+     * as each phase of the build produces messages, followed by a final event carrying the totals.
+     * @param project
+     * @param buildId Identifier of the build, used by the PartialBuildResults events. If null one is generated.
+     */
+    BuildResults buildStreaming( final Project project,
+                                 final String buildId );
+
     /**
      * Full build with deployment
      * @param project
      */
     BuildResults buildAndDeploy( final Project project );
 
+    /**
+     * Full build with deployment of a set of inter-dependent Projects. Projects are built in the order of the
+     * dependencies between them, declared in their POMs, and those independent of each other are built in parallel.
+     * A Project is not built if a Project upon which it depends fails to build.
+     * @param projects
+     * @return Results of each Project, in the order of the given Projects
+     */
+    List<BuildResults> buildAndDeploy( final Collection<Project> projects );
+
     /**
      * Check whether a Project has been built
      * @param project
@@ -1,21 +1,45 @@
 package org.guvnor.common.services.project.events;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
 import org.guvnor.common.services.project.model.Project;
 
+/**
+ * An event representing the rule names of a Project, per package. Events raised following an incremental
+ * build also carry the rule names added and removed, per package, so observers can apply the change in
+ * place rather than replace the names of every package.
+ */
 public class RuleNameUpdateEvent {
 
     private final Project project;
     private final Map<String, Collection<String>> ruleNames;
+    private final Map<String, Collection<String>> addedRuleNames;
+    private final Map<String, Collection<String>> removedRuleNames;
 
     public RuleNameUpdateEvent( final Project project,
                                 final Map<String, Collection<String>> ruleNames ) {
         this.project = project;
         this.ruleNames = ruleNames;
+        this.addedRuleNames = null;
+        this.removedRuleNames = null;
     }
 
+    public RuleNameUpdateEvent( final Project project,
+                                final Map<String, Collection<String>> ruleNames,
+                                final Map<String, Collection<String>> addedRuleNames,
+                                final Map<String, Collection<String>> removedRuleNames ) {
+        this.project = project;
+        this.ruleNames = ruleNames;
+        this.addedRuleNames = addedRuleNames;
+        this.removedRuleNames = removedRuleNames;
+    }
+
+    /**
+     * The rule names of all packages in the Project
+     * @return
+     */
     public Map<String, Collection<String>> getRuleNames() {
         return ruleNames;
     }
@@ -23,4 +47,34 @@ public class RuleNameUpdateEvent {
     public Project getProject() {
         return project;
     }
+
+    /**
+     * Whether this event carries the change to the rule names since the previous event for the Project
+     * @return
+     */
+    public boolean isDelta() {
+        return addedRuleNames != null && removedRuleNames != null;
+    }
+
+    /**
+     * Rule names added since the previous event, keyed by package. Empty unless this is a delta.
+     * @return
+     */
+    public Map<String, Collection<String>> getAddedRuleNames() {
+        if ( addedRuleNames == null ) {
+            return Collections.emptyMap();
+        }
+        return addedRuleNames;
+    }
+
+    /**
+     * Rule names removed since the previous event, keyed by package. Empty unless this is a delta.
+     * @return
+     */
+    public Map<String, Collection<String>> getRemovedRuleNames() {
+        if ( removedRuleNames == null ) {
+            return Collections.emptyMap();
+        }
+        return removedRuleNames;
+    }
 }
@@ -16,22 +16,104 @@
 package org.guvnor.common.services.builder;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.guvnor.common.services.shared.config.AppConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.commons.services.cdi.ApplicationStarted;
 
 /**
- * Producer for Executor services so we can plug-in a different implementation in tests
+ * Producer for Executor services so we can plug-in a different implementation in tests.
+ * <p>
+ * In the default "fixed" mode builds run on one thread per processor. In "split" mode builds run on a larger pool,
+ * so that builds blocked on I/O do not hold back others, whilst the CPU bound compilation of each build is bounded
+ * to one per processor by the CompilationThrottle.
  */
 @ApplicationScoped
 public class BuildExecutorServiceFactoryImpl implements BuildExecutorServiceFactory {
 
-    private ExecutorService service;
+    private static final Logger logger = LoggerFactory.getLogger( BuildExecutorServiceFactoryImpl.class );
+
+    public enum Mode {
+        FIXED,
+        SPLIT
+    }
+
+    private static final String MODE_PROPERTY_NAME = "build.executor.mode";
+    private static final String THREADS_PROPERTY_NAME = "build.executor.threads";
+    private static final String MAX_CONCURRENT_COMPILATIONS_PROPERTY_NAME = "build.executor.max-concurrent-compilations";
+
+    //Builds in "split" mode spend most of their time blocked on I/O, so many more threads than processors are used
+    private static final int SPLIT_MODE_THREADS_PER_PROCESSOR = 8;
+
+    @Inject
+    private AppConfigService appConfigService;
+
+    @Inject
+    private CompilationThrottle compilationThrottle;
+
+    private ThreadPoolExecutor service;
 
     @PostConstruct
     public void setup() {
         final int cores = Runtime.getRuntime().availableProcessors();
-        service = Executors.newFixedThreadPool( cores );
+        service = new ThreadPoolExecutor( cores,
+                                          cores,
+                                          0L,
+                                          TimeUnit.MILLISECONDS,
+                                          new LinkedBlockingQueue<Runnable>() );
+        configure();
+    }
+
+    public void configureOnEvent( @Observes ApplicationStarted applicationStartedEvent ) {
+        configure();
+    }
+
+    private synchronized void configure() {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        if ( getMode() == Mode.SPLIT ) {
+            setPoolSize( BuildPreferences.getInt( appConfigService,
+                                                  THREADS_PROPERTY_NAME,
+                                                  cores * SPLIT_MODE_THREADS_PER_PROCESSOR ) );
+            compilationThrottle.setMaxConcurrentCompilations( BuildPreferences.getInt( appConfigService,
+                                                                                       MAX_CONCURRENT_COMPILATIONS_PROPERTY_NAME,
+                                                                                       cores ) );
+        } else {
+            setPoolSize( cores );
+            compilationThrottle.setMaxConcurrentCompilations( 0 );
+        }
+    }
+
+    //The maximum must never be less than the core size, so the order of the changes depends on the direction
+    private void setPoolSize( final int threads ) {
+        final int size = Math.max( 1,
+                                   threads );
+        if ( size > service.getMaximumPoolSize() ) {
+            service.setMaximumPoolSize( size );
+            service.setCorePoolSize( size );
+        } else {
+            service.setCorePoolSize( size );
+            service.setMaximumPoolSize( size );
+        }
+    }
+
+    private Mode getMode() {
+        final String value = BuildPreferences.getString( appConfigService,
+                                                         MODE_PROPERTY_NAME,
+                                                         Mode.FIXED.name() );
+        try {
+            return Mode.valueOf( value.toUpperCase() );
+        } catch ( IllegalArgumentException iae ) {
+            logger.warn( "Preference '" + MODE_PROPERTY_NAME + "' has an invalid value '" + value + "'. Using default '" + Mode.FIXED + "'." );
+            return Mode.FIXED;
+        }
     }
 
     @Override
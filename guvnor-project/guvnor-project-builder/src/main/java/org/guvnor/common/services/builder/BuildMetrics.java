@@ -0,0 +1,326 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.guvnor.common.services.project.model.Project;
+import org.guvnor.common.services.shared.config.AppConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.commons.services.cdi.ApplicationStarted;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * Registry of the timings of the build pipeline. A TimingHistogram is kept per Project and BuildPhase, together with
+ * one per BuildPhase of all Projects. Once the application has started each histogram is published over JMX as
+ * "org.guvnor:type=BuildMetrics,phase=<phase>[,project=<root path>]" unless disabled by preference.
+ */
+@ApplicationScoped
+public class BuildMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger( BuildMetrics.class );
+
+    private static final String METRICS_PROPERTY_NAME = "build.metrics.enabled";
+    private static final String METRICS_JMX_PROPERTY_NAME = "build.metrics.enable-jmx";
+
+    private static final String DOMAIN = "org.guvnor";
+
+    @Inject
+    private AppConfigService appConfigService;
+
+    private volatile boolean isEnabled = true;
+
+    //Histograms of all Projects, keyed by phase
+    private final Map<BuildPhase, TimingHistogram> timings = new EnumMap<BuildPhase, TimingHistogram>( BuildPhase.class );
+
+    //Histograms per Project, keyed by the Project's root path and phase
+    private final Map<String, Map<BuildPhase, TimingHistogram>> projectTimings = new HashMap<String, Map<BuildPhase, TimingHistogram>>();
+
+    //Null unless histograms are published over JMX
+    private MBeanServer mBeanServer;
+    private final List<ObjectName> registeredNames = new ArrayList<ObjectName>();
+
+    public void configureOnEvent( @Observes ApplicationStarted applicationStartedEvent ) {
+        isEnabled = BuildPreferences.getBoolean( appConfigService,
+                                                 METRICS_PROPERTY_NAME,
+                                                 true );
+        if ( isEnabled && BuildPreferences.getBoolean( appConfigService,
+                                                       METRICS_JMX_PROPERTY_NAME,
+                                                       true ) ) {
+            enableJmx( ManagementFactory.getPlatformMBeanServer() );
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        enableJmx( null );
+    }
+
+    public void setEnabled( final boolean isEnabled ) {
+        this.isEnabled = isEnabled;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Publish histograms, existing and those created subsequently, with an MBeanServer
+     * @param mBeanServer The MBeanServer or null to withdraw the histograms published
+     */
+    public synchronized void enableJmx( final MBeanServer mBeanServer ) {
+        if ( this.mBeanServer != null ) {
+            for ( ObjectName name : registeredNames ) {
+                unregister( name );
+            }
+            registeredNames.clear();
+        }
+        this.mBeanServer = mBeanServer;
+        if ( mBeanServer == null ) {
+            return;
+        }
+        for ( Map.Entry<BuildPhase, TimingHistogram> e : timings.entrySet() ) {
+            register( null,
+                      e.getKey(),
+                      e.getValue() );
+        }
+        for ( Map.Entry<String, Map<BuildPhase, TimingHistogram>> project : projectTimings.entrySet() ) {
+            for ( Map.Entry<BuildPhase, TimingHistogram> e : project.getValue().entrySet() ) {
+                register( project.getKey(),
+                          e.getKey(),
+                          e.getValue() );
+            }
+        }
+    }
+
+    /**
+     * Record the duration of a phase
+     * @param project Project to which the duration relates. If null it is only recorded for all Projects.
+     * @param phase
+     * @param nanos Duration in nanoseconds
+     */
+    public void record( final Project project,
+                        final BuildPhase phase,
+                        final long nanos ) {
+        checkNotNull( "phase",
+                      phase );
+        if ( !isEnabled ) {
+            return;
+        }
+        getTiming( phase,
+                   true ).record( nanos );
+        final String projectKey = getProjectKey( project );
+        if ( projectKey != null ) {
+            getTiming( projectKey,
+                       phase,
+                       true ).record( nanos );
+        }
+    }
+
+    /**
+     * Record the duration of a phase started at the given time
+     * @param project Project to which the duration relates. If null it is only recorded for all Projects.
+     * @param phase
+     * @param startTime Value of System.nanoTime() when the phase started
+     */
+    public void recordSince( final Project project,
+                             final BuildPhase phase,
+                             final long startTime ) {
+        record( project,
+                phase,
+                System.nanoTime() - startTime );
+    }
+
+    /**
+     * Return the timings of a phase of all Projects
+     * @param phase
+     * @return The histogram or null if nothing has been recorded
+     */
+    public TimingHistogram getTiming( final BuildPhase phase ) {
+        checkNotNull( "phase",
+                      phase );
+        return getTiming( phase,
+                          false );
+    }
+
+    /**
+     * Return the timings of a phase of a Project
+     * @param project
+     * @param phase
+     * @return The histogram or null if nothing has been recorded
+     */
+    public TimingHistogram getTiming( final Project project,
+                                      final BuildPhase phase ) {
+        checkNotNull( "project",
+                      project );
+        checkNotNull( "phase",
+                      phase );
+        final String projectKey = getProjectKey( project );
+        if ( projectKey == null ) {
+            return null;
+        }
+        return getTiming( projectKey,
+                          phase,
+                          false );
+    }
+
+    /**
+     * Discard the timings of a Project, e.g. once it has been deleted
+     * @param project
+     */
+    public synchronized void remove( final Project project ) {
+        checkNotNull( "project",
+                      project );
+        final String projectKey = getProjectKey( project );
+        if ( projectKey == null || projectTimings.remove( projectKey ) == null || mBeanServer == null ) {
+            return;
+        }
+        for ( BuildPhase phase : BuildPhase.values() ) {
+            final ObjectName name = getObjectName( projectKey,
+                                                   phase );
+            if ( name != null && registeredNames.remove( name ) ) {
+                unregister( name );
+            }
+        }
+    }
+
+    /**
+     * Reset all timings
+     */
+    public synchronized void reset() {
+        for ( TimingHistogram timing : timings.values() ) {
+            timing.reset();
+        }
+        for ( Map<BuildPhase, TimingHistogram> phaseTimings : projectTimings.values() ) {
+            for ( TimingHistogram timing : phaseTimings.values() ) {
+                timing.reset();
+            }
+        }
+    }
+
+    private synchronized TimingHistogram getTiming( final BuildPhase phase,
+                                                    final boolean create ) {
+        TimingHistogram timing = timings.get( phase );
+        if ( timing == null && create ) {
+            timing = new TimingHistogram();
+            timings.put( phase,
+                         timing );
+            register( null,
+                      phase,
+                      timing );
+        }
+        return timing;
+    }
+
+    private synchronized TimingHistogram getTiming( final String projectKey,
+                                                    final BuildPhase phase,
+                                                    final boolean create ) {
+        Map<BuildPhase, TimingHistogram> phaseTimings = projectTimings.get( projectKey );
+        if ( phaseTimings == null ) {
+            if ( !create ) {
+                return null;
+            }
+            phaseTimings = new EnumMap<BuildPhase, TimingHistogram>( BuildPhase.class );
+            projectTimings.put( projectKey,
+                                phaseTimings );
+        }
+        TimingHistogram timing = phaseTimings.get( phase );
+        if ( timing == null && create ) {
+            timing = new TimingHistogram();
+            phaseTimings.put( phase,
+                              timing );
+            register( projectKey,
+                      phase,
+                      timing );
+        }
+        return timing;
+    }
+
+    //Projects are identified by their root path, as their names are only unique within a repository
+    private String getProjectKey( final Project project ) {
+        if ( project == null ) {
+            return null;
+        }
+        if ( project.getRootPath() != null ) {
+            return project.getRootPath().toURI();
+        }
+        return project.getProjectName();
+    }
+
+    //Must be called whilst holding the lock
+    private void register( final String projectKey,
+                           final BuildPhase phase,
+                           final TimingHistogram timing ) {
+        if ( mBeanServer == null ) {
+            return;
+        }
+        final ObjectName name = getObjectName( projectKey,
+                                               phase );
+        if ( name == null ) {
+            return;
+        }
+        try {
+            //A previous deployment may not have withdrawn its histograms
+            if ( mBeanServer.isRegistered( name ) ) {
+                mBeanServer.unregisterMBean( name );
+            }
+            mBeanServer.registerMBean( timing,
+                                       name );
+            registeredNames.add( name );
+        } catch ( JMException e ) {
+            logger.warn( "Unable to publish build metrics '" + name + "': " + e.getMessage() );
+        }
+    }
+
+    private void unregister( final ObjectName name ) {
+        try {
+            if ( mBeanServer.isRegistered( name ) ) {
+                mBeanServer.unregisterMBean( name );
+            }
+        } catch ( JMException e ) {
+            logger.warn( "Unable to withdraw build metrics '" + name + "': " + e.getMessage() );
+        }
+    }
+
+    private ObjectName getObjectName( final String projectKey,
+                                      final BuildPhase phase ) {
+        final StringBuilder sb = new StringBuilder( DOMAIN ).append( ":type=BuildMetrics,phase=" ).append( phase.name() );
+        if ( projectKey != null ) {
+            sb.append( ",project=" ).append( ObjectName.quote( projectKey ) );
+        }
+        try {
+            return new ObjectName( sb.toString() );
+        } catch ( JMException e ) {
+            logger.warn( "Unable to name build metrics for '" + projectKey + "': " + e.getMessage() );
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+/**
+ * Phases of the build pipeline, and other build activities, for which BuildMetrics records timings
+ */
+public enum BuildPhase {
+
+    /**
+     * Loading of a Project's resources when a Builder is created
+     */
+    PATH_WALK,
+    /**
+     * Compilation of all resources by a full build
+     */
+    COMPILATION,
+    /**
+     * Validation of resources not covered by KIE by BuildValidationHelpers
+     */
+    VALIDATION,
+    /**
+     * Check that the classes imported in project.imports are available
+     */
+    IMPORTS_CHECK,
+    /**
+     * Verification of classes provided by external dependencies, including creation of the KieModuleMetaData
+     */
+    EXTERNAL_CLASS_VERIFICATION,
+    /**
+     * Notification of all rule names to observers of RuleNameUpdateEvent
+     */
+    RULE_NAME_UPDATE,
+    /**
+     * Creation of a KieContainer for a built KieModule
+     */
+    KIE_CONTAINER_CREATION,
+    /**
+     * A full build, including all of its phases
+     */
+    FULL_BUILD,
+    /**
+     * An incremental build of an added resource
+     */
+    ADD_RESOURCE,
+    /**
+     * An incremental build of an updated resource
+     */
+    UPDATE_RESOURCE,
+    /**
+     * An incremental build of a deleted resource
+     */
+    DELETE_RESOURCE,
+    /**
+     * An incremental build of a batch of resource changes
+     */
+    BATCH_RESOURCE_CHANGES,
+    /**
+     * Time a BuildTask waits in the queue of a ProjectBuildExecutor before it runs
+     */
+    QUEUE_WAIT
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.util.Map;
+
+import org.guvnor.common.services.shared.config.AppConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Typed access to the Builder related application preferences
+ */
+final class BuildPreferences {
+
+    private static final Logger logger = LoggerFactory.getLogger( BuildPreferences.class );
+
+    private BuildPreferences() {
+    }
+
+    static boolean getBoolean( final AppConfigService appConfigService,
+                               final String name,
+                               final boolean defaultValue ) {
+        final String value = getValue( appConfigService,
+                                       name );
+        if ( value == null ) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean( value );
+    }
+
+    static int getInt( final AppConfigService appConfigService,
+                       final String name,
+                       final int defaultValue ) {
+        final String value = getValue( appConfigService,
+                                       name );
+        if ( value == null ) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt( value );
+        } catch ( NumberFormatException nfe ) {
+            logger.warn( "Preference '" + name + "' has an invalid value '" + value + "'. Using default '" + defaultValue + "'." );
+            return defaultValue;
+        }
+    }
+
+    static long getLong( final AppConfigService appConfigService,
+                         final String name,
+                         final long defaultValue ) {
+        final String value = getValue( appConfigService,
+                                       name );
+        if ( value == null ) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong( value );
+        } catch ( NumberFormatException nfe ) {
+            logger.warn( "Preference '" + name + "' has an invalid value '" + value + "'. Using default '" + defaultValue + "'." );
+            return defaultValue;
+        }
+    }
+
+    static String getString( final AppConfigService appConfigService,
+                             final String name,
+                             final String defaultValue ) {
+        final String value = getValue( appConfigService,
+                                       name );
+        return value == null ? defaultValue : value;
+    }
+
+    private static String getValue( final AppConfigService appConfigService,
+                                    final String name ) {
+        if ( appConfigService == null ) {
+            return null;
+        }
+        final Map<String, String> preferences = appConfigService.loadPreferences();
+        if ( preferences == null ) {
+            return null;
+        }
+        final String value = preferences.get( name );
+        if ( value == null || value.trim().isEmpty() ) {
+            return null;
+        }
+        return value.trim();
+    }
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.util.List;
+
+import org.guvnor.common.services.project.builder.model.BuildMessage;
+
+/**
+ * Receives the messages of a full build as each phase of the build produces them
+ */
+public interface BuildProgressListener {
+
+    /**
+     * Messages produced by a phase of the build. Phases producing no messages are not reported. This may be called
+     * whilst the Builder's lock is held so implementations should return promptly.
+     * @param messages
+     */
+    void onBuildMessages( final List<BuildMessage> messages );
+
+}
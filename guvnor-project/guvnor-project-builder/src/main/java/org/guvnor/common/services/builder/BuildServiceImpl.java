@@ -17,9 +17,21 @@
 package org.guvnor.common.services.builder;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 
@@ -28,18 +40,22 @@ import org.guvnor.common.services.backend.exceptions.ExceptionUtilities;
 import org.guvnor.common.services.project.builder.model.BuildMessage;
 import org.guvnor.common.services.project.builder.model.BuildResults;
 import org.guvnor.common.services.project.builder.model.IncrementalBuildResults;
+import org.guvnor.common.services.project.builder.model.PartialBuildResults;
 import org.guvnor.common.services.project.builder.service.BuildService;
 import org.guvnor.common.services.project.builder.service.PostBuildHandler;
+import org.guvnor.common.services.project.model.GAV;
 import org.guvnor.common.services.project.model.POM;
 import org.guvnor.common.services.project.model.Project;
 import org.guvnor.common.services.project.service.POMService;
 import org.guvnor.common.services.project.service.ProjectService;
 import org.guvnor.m2repo.backend.server.ExtendedM2RepoService;
 import org.jboss.errai.bus.server.annotations.Service;
+import org.kie.api.KieServices;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.uberfire.backend.server.util.Paths;
 import org.uberfire.backend.vfs.Path;
+import org.uberfire.commons.validation.PortablePreconditions;
 import org.uberfire.workbench.events.ResourceChange;
 
 @Service
@@ -54,6 +70,12 @@ public class BuildServiceImpl
     private ProjectService projectService;
     private LRUBuilderCache cache;
     private Instance<PostBuildHandler> handlers;
+    private Event<PartialBuildResults> partialBuildResultsEvent;
+    private ProjectUsageStatistics usageStatistics;
+    private ResourceChangeIncrementalBuilder incrementalBuilder;
+
+    //Full builds in progress on behalf of users, including those building sets of Projects to deploy
+    private final AtomicInteger activeFullBuilds = new AtomicInteger();
 
     public BuildServiceImpl() {
         //Empty constructor for Weld
@@ -64,18 +86,26 @@ public class BuildServiceImpl
                              final ExtendedM2RepoService m2RepoService,
                              final ProjectService projectService,
                              final LRUBuilderCache cache,
-                             final Instance<PostBuildHandler> handlers ) {
+                             final Instance<PostBuildHandler> handlers,
+                             final Event<PartialBuildResults> partialBuildResultsEvent,
+                             final ProjectUsageStatistics usageStatistics,
+                             final ResourceChangeIncrementalBuilder incrementalBuilder ) {
         this.pomService = pomService;
         this.m2RepoService = m2RepoService;
         this.projectService = projectService;
         this.cache = cache;
         this.handlers = handlers;
+        this.partialBuildResultsEvent = partialBuildResultsEvent;
+        this.usageStatistics = usageStatistics;
+        this.incrementalBuilder = incrementalBuilder;
     }
 
     @Override
     public BuildResults build( final Project project ) {
         try {
-            final BuildResults results = doBuild( project );
+            //A build explicitly requested by a user always builds
+            final BuildResults results = doFullBuild( project,
+                                                      null );
             return results;
 
         } catch ( Exception e ) {
@@ -88,6 +118,26 @@ public class BuildServiceImpl
         }
     }
 
+    @Override
+    public BuildResults buildStreaming( final Project project,
+                                        final String buildId ) {
+        final PartialBuildResultsPublisher publisher = new PartialBuildResultsPublisher( buildId == null ? UUID.randomUUID().toString() : buildId,
+                                                                                         pomService.load( project.getPomXMLPath() ).getGav() );
+        BuildResults results;
+        try {
+            results = doFullBuild( project,
+                                   publisher );
+
+        } catch ( Exception e ) {
+            logger.error( e.getMessage(),
+                          e );
+            results = buildExceptionResults( e );
+            publisher.onBuildMessages( results.getMessages() );
+        }
+        publisher.completed( results );
+        return results;
+    }
+
     @Override
     public BuildResults buildAndDeploy( final Project project ) {
         try {
@@ -97,19 +147,9 @@ public class BuildServiceImpl
             //Deploy, if no errors
             final POM pom = pomService.load( project.getPomXMLPath() );
             if ( results.getErrorMessages().isEmpty() ) {
-                final Builder builder = cache.assertBuilder( project );
-                final InternalKieModule kieModule = (InternalKieModule) builder.getKieModule();
-                final ByteArrayInputStream input = new ByteArrayInputStream( kieModule.getBytes() );
-                m2RepoService.deployJar( input,
-                                         pom.getGav() );
-
-                for ( PostBuildHandler handler : handlers ) {
-                    try {
-                        handler.process( results );
-                    } catch ( Exception e ) {
-                        logger.warn( "PostBuildHandler {} failed due to {}", handler, e.getMessage() );
-                    }
-                }
+                deploy( project,
+                        pom.getGav(),
+                        results );
             }
 
             return results;
@@ -123,6 +163,196 @@ public class BuildServiceImpl
         }
     }
 
+    @Override
+    public List<BuildResults> buildAndDeploy( final Collection<Project> projects ) {
+        PortablePreconditions.checkNotNull( "projects",
+                                            projects );
+        final Map<Project, POM> poms = new LinkedHashMap<Project, POM>();
+        for ( Project project : projects ) {
+            poms.put( project,
+                      pomService.load( project.getPomXMLPath() ) );
+        }
+        final ProjectBuildGraph graph = new ProjectBuildGraph( poms );
+        final Map<Project, BuildResults> results = new ConcurrentHashMap<Project, BuildResults>();
+
+        //Projects are built by the ProjectBuildExecutor as USER priority tasks, alongside incremental builds, so that
+        //they are queued in their Projects' lanes and subject to the same prioritisation and bound of the queue
+        final BlockingQueue<Project> completions = new LinkedBlockingQueue<Project>();
+        final List<BuildTask> submitted = new ArrayList<BuildTask>();
+        try {
+
+            //Projects are submitted once all Projects upon which they depend have completed
+            final Map<Project, Integer> pendingUpstream = new HashMap<Project, Integer>();
+            final Deque<Project> completed = new ArrayDeque<Project>();
+            int running = 0;
+            for ( Project project : graph.getProjects() ) {
+                final int upstream = graph.getUpstream( project ).size();
+                pendingUpstream.put( project,
+                                     upstream );
+                if ( upstream == 0 ) {
+                    submitted.add( submitBuildAndDeploy( completions,
+                                                         graph,
+                                                         project,
+                                                         results ) );
+                    running++;
+                }
+            }
+
+            while ( results.size() < poms.size() ) {
+                if ( running > 0 ) {
+                    completed.add( takeCompleted( completions ) );
+                    running--;
+                } else {
+                    //The remaining Projects depend upon each other cyclically. The first is built without waiting for its dependencies
+                    final Project project = getFirstRemaining( graph,
+                                                               results );
+                    logger.warn( "Project " + project.getProjectName() + " has cyclic dependencies. It will be built before Projects upon which it depends." );
+                    submitted.add( submitBuildAndDeploy( completions,
+                                                         graph,
+                                                         project,
+                                                         results ) );
+                    running++;
+                    continue;
+                }
+
+                //Downstream Projects are built once ready, or not at all if a Project upon which they depend failed
+                while ( !completed.isEmpty() ) {
+                    final Project project = completed.poll();
+                    for ( Project downstream : graph.getDownstream( project ) ) {
+                        final int upstream = pendingUpstream.get( downstream ) - 1;
+                        pendingUpstream.put( downstream,
+                                             upstream );
+                        if ( upstream > 0 || results.containsKey( downstream ) ) {
+                            continue;
+                        }
+                        final BuildResults failedResults = getFailedUpstreamResults( graph,
+                                                                                     downstream,
+                                                                                     results );
+                        if ( failedResults != null ) {
+                            results.put( downstream,
+                                         failedResults );
+                            completed.add( downstream );
+                        } else {
+                            submitted.add( submitBuildAndDeploy( completions,
+                                                                 graph,
+                                                                 downstream,
+                                                                 results ) );
+                            running++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            //Builds not yet started if building was interrupted are abandoned
+            for ( BuildTask task : submitted ) {
+                task.cancel();
+            }
+        }
+
+        final List<BuildResults> orderedResults = new ArrayList<BuildResults>();
+        for ( Project project : graph.getProjects() ) {
+            orderedResults.add( results.get( project ) );
+        }
+        return orderedResults;
+    }
+
+    private Project getFirstRemaining( final ProjectBuildGraph graph,
+                                       final Map<Project, BuildResults> results ) {
+        for ( Project project : graph.getProjects() ) {
+            if ( !results.containsKey( project ) ) {
+                return project;
+            }
+        }
+        throw new IllegalStateException( "All Projects have been built" );
+    }
+
+    private BuildTask submitBuildAndDeploy( final BlockingQueue<Project> completions,
+                                            final ProjectBuildGraph graph,
+                                            final Project project,
+                                            final Map<Project, BuildResults> results ) {
+        final BuildTask task = new ProjectSetBuildTask( completions,
+                                                        graph,
+                                                        project,
+                                                        results );
+        incrementalBuilder.getProjectBuildExecutor().execute( task );
+        return task;
+    }
+
+    private Project takeCompleted( final BlockingQueue<Project> completions ) {
+        try {
+            return completions.take();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted whilst building Projects",
+                                             e );
+        }
+    }
+
+    //Build and deploy a Project of a set, recording its results. Failures are recorded in the results
+    private void buildAndDeploy( final ProjectBuildGraph graph,
+                                 final Project project,
+                                 final Map<Project, BuildResults> results ) {
+        final GAV gav = graph.getGav( project );
+        BuildResults projectResults;
+        try {
+            //A Project's content may be unchanged but it must be rebuilt against Projects upon which it depends
+            projectResults = graph.getUpstream( project ).isEmpty() ? doBuild( project ) : doFullBuild( project,
+                                                                                                      null );
+            if ( projectResults.getErrorMessages().isEmpty() ) {
+                deploy( project,
+                        gav,
+                        projectResults );
+            }
+        } catch ( Exception e ) {
+            logger.error( e.getMessage(),
+                          e );
+            projectResults = buildExceptionResults( e );
+        }
+        results.put( project,
+                     projectResults );
+    }
+
+    //Return results explaining a Project was not built, or null if all Projects upon which it depends were built without errors
+    private BuildResults getFailedUpstreamResults( final ProjectBuildGraph graph,
+                                                   final Project project,
+                                                   final Map<Project, BuildResults> results ) {
+        BuildResults failedResults = null;
+        for ( Project upstream : graph.getUpstream( project ) ) {
+            final BuildResults upstreamResults = results.get( upstream );
+            if ( upstreamResults != null && !upstreamResults.getErrorMessages().isEmpty() ) {
+                if ( failedResults == null ) {
+                    failedResults = new BuildResults( graph.getGav( project ) );
+                }
+                final BuildMessage message = new BuildMessage();
+                message.setLevel( BuildMessage.Level.ERROR );
+                message.setText( "Project was not built as its dependency " + graph.getGav( upstream ) + " failed to build." );
+                failedResults.addBuildMessage( message );
+            }
+        }
+        return failedResults;
+    }
+
+    //Deploy the KieModule of a built Project. It is also added to the KieRepository so Projects depending upon it,
+    //built subsequently, use it without resolving it from the Maven repository
+    private void deploy( final Project project,
+                         final GAV gav,
+                         final BuildResults results ) {
+        final Builder builder = cache.assertBuilder( project );
+        final InternalKieModule kieModule = (InternalKieModule) builder.getKieModule();
+        final ByteArrayInputStream input = new ByteArrayInputStream( kieModule.getBytes() );
+        m2RepoService.deployJar( input,
+                                 gav );
+        KieServices.Factory.get().getRepository().addKieModule( kieModule );
+
+        for ( PostBuildHandler handler : handlers ) {
+            try {
+                handler.process( results );
+            } catch ( Exception e ) {
+                logger.warn( "PostBuildHandler {} failed due to {}", handler, e.getMessage() );
+            }
+        }
+    }
+
     /**
      * When an exception is produced by the builder service, this method is uses to generate an instance of
      * <code>org.guvnor.common.services.project.builder.model.BuildResults</code> in generated with the exception details.
@@ -140,11 +370,46 @@ public class BuildServiceImpl
         return exceptionResults;
     }
 
+    //Builds other than those explicitly requested by a user, e.g. to deploy, reuse unchanged results if enabled
     private BuildResults doBuild( final Project project ) {
-        cache.invalidateCache(project);
-        final Builder builder = cache.assertBuilder( project );
-        final BuildResults results = builder.build();
-        return results;
+        //Nothing needs to be built if the Project's content is unchanged since its last full build
+        final BuildResults unchangedResults = cache.getUnchangedBuildResults( project );
+        if ( unchangedResults != null ) {
+            usageStatistics.recordUsage( project );
+            return unchangedResults;
+        }
+
+        return doFullBuild( project,
+                            null );
+    }
+
+    private BuildResults doFullBuild( final Project project,
+                                      final BuildProgressListener listener ) {
+        usageStatistics.recordUsage( project );
+
+        //A build requested by a user is never cancelled; it replaces the cached Builder once started
+        activeFullBuilds.incrementAndGet();
+        try {
+            final Builder builder = cache.assertFullBuilder( project );
+            try {
+                final BuildResults results = builder.build( listener );
+                return results;
+            } finally {
+                cache.fullBuildCompleted( project,
+                                          builder );
+            }
+        } finally {
+            activeFullBuilds.decrementAndGet();
+        }
+    }
+
+    /**
+     * Return the number of full builds in progress on behalf of users. These run on the calling thread, or as
+     * tasks of the ProjectBuildExecutor when building sets of Projects, and include the loading of the Builder.
+     * @return
+     */
+    public int getActiveFullBuildCount() {
+        return activeFullBuilds.get();
     }
 
     @Override
@@ -161,6 +426,7 @@ public class BuildServiceImpl
             if ( project == null ) {
                 return results;
             }
+            usageStatistics.recordUsage( project );
             final Builder builder = cache.assertBuilder( project );
             if ( !builder.isBuilt() ) {
                 throw new IllegalStateException( "Incremental Build requires a full build be completed first." );
@@ -185,6 +451,7 @@ public class BuildServiceImpl
             if ( project == null ) {
                 return results;
             }
+            usageStatistics.recordUsage( project );
             final Builder builder = cache.assertBuilder( project );
             if ( !builder.isBuilt() ) {
                 throw new IllegalStateException( "Incremental Build requires a full build be completed first." );
@@ -209,6 +476,7 @@ public class BuildServiceImpl
             if ( project == null ) {
                 return results;
             }
+            usageStatistics.recordUsage( project );
             final Builder builder = cache.assertBuilder( project );
             if ( !builder.isBuilt() ) {
                 throw new IllegalStateException( "Incremental Build requires a full build be completed first." );
@@ -233,6 +501,7 @@ public class BuildServiceImpl
             if ( project == null ) {
                 return results;
             }
+            usageStatistics.recordUsage( project );
             final Builder builder = cache.assertBuilder( project );
             if ( !builder.isBuilt() ) {
                 throw new IllegalStateException( "Incremental Build requires a full build be completed first." );
@@ -249,4 +518,97 @@ public class BuildServiceImpl
         }
     }
 
+    //Builds and deploys a Project of a set, signalling its completion, or that it was dropped, to the thread building the set
+    private class ProjectSetBuildTask extends BuildTask {
+
+        private final BlockingQueue<Project> completions;
+        private final ProjectBuildGraph graph;
+        private final Map<Project, BuildResults> results;
+        private volatile boolean isCancelled = false;
+
+        private ProjectSetBuildTask( final BlockingQueue<Project> completions,
+                                     final ProjectBuildGraph graph,
+                                     final Project project,
+                                     final Map<Project, BuildResults> results ) {
+            super( project,
+                   BuildPriority.USER );
+            this.completions = completions;
+            this.graph = graph;
+            this.results = results;
+        }
+
+        //The task is a full build already. If the queue is full it is queued regardless, rather than dropped
+        @Override
+        public BuildTask toFullBuild() {
+            return this;
+        }
+
+        @Override
+        public void cancel() {
+            isCancelled = true;
+        }
+
+        @Override
+        public void dropped() {
+            final BuildResults droppedResults = new BuildResults( graph.getGav( getProject() ) );
+            final BuildMessage message = new BuildMessage();
+            message.setLevel( BuildMessage.Level.ERROR );
+            message.setText( "Project was not built as the build queue is full." );
+            droppedResults.addBuildMessage( message );
+            results.put( getProject(),
+                         droppedResults );
+            completions.add( getProject() );
+        }
+
+        @Override
+        public void run() {
+            if ( isCancelled ) {
+                return;
+            }
+            try {
+                buildAndDeploy( graph,
+                                getProject(),
+                                results );
+            } finally {
+                //Failures are recorded by buildAndDeploy, except Errors. The Project must not be built again regardless
+                if ( !results.containsKey( getProject() ) ) {
+                    results.put( getProject(),
+                                 buildExceptionResults( new IllegalStateException( "Project " + getProject().getProjectName() + " failed to build." ) ) );
+                }
+                completions.add( getProject() );
+            }
+        }
+
+    }
+
+    //Raises a PartialBuildResults event for each phase of a build, numbered in order, and a final event with the totals
+    private class PartialBuildResultsPublisher implements BuildProgressListener {
+
+        private final String buildId;
+        private final GAV gav;
+        private int sequenceNumber = 0;
+
+        private PartialBuildResultsPublisher( final String buildId,
+                                              final GAV gav ) {
+            this.buildId = buildId;
+            this.gav = gav;
+        }
+
+        @Override
+        public void onBuildMessages( final List<BuildMessage> messages ) {
+            partialBuildResultsEvent.fire( new PartialBuildResults( buildId,
+                                                                    gav,
+                                                                    sequenceNumber++,
+                                                                    messages ) );
+        }
+
+        private void completed( final BuildResults results ) {
+            partialBuildResultsEvent.fire( new PartialBuildResults( buildId,
+                                                                    gav,
+                                                                    sequenceNumber++,
+                                                                    results ) );
+        }
+
+    }
+
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import org.guvnor.common.services.project.model.Project;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * A unit of build work for a single Project, executed by a ProjectBuildExecutor
+ */
+public abstract class BuildTask implements Runnable {
+
+    private final Project project;
+    private final BuildPriority priority;
+
+    //Time at which the task was queued, used to age the task's priority
+    private long queuedTime;
+
+    protected BuildTask( final Project project ) {
+        this( project,
+              BuildPriority.USER );
+    }
+
+    protected BuildTask( final Project project,
+                         final BuildPriority priority ) {
+        this.project = checkNotNull( "project",
+                                     project );
+        this.priority = checkNotNull( "priority",
+                                      priority );
+    }
+
+    public Project getProject() {
+        return project;
+    }
+
+    public BuildPriority getPriority() {
+        return priority;
+    }
+
+    long getQueuedTime() {
+        return queuedTime;
+    }
+
+    void setQueuedTime( final long queuedTime ) {
+        this.queuedTime = queuedTime;
+    }
+
+    /**
+     * Attempt to absorb a task, submitted later for the same Project, into this queued task.
+     * @param task The later task
+     * @return true if this task now also performs the work of the later task, which need not be queued
+     */
+    public boolean merge( final BuildTask task ) {
+        return false;
+    }
+
+    /**
+     * Check whether this task makes an earlier task for the same Project redundant. Superseded tasks that
+     * are queued are dropped whilst a superseded task that is running is cancelled.
+     * @param task The earlier task
+     * @return true if the earlier task is redundant
+     */
+    public boolean supersedes( final BuildTask task ) {
+        return false;
+    }
+
+    /**
+     * Check whether this queued task yields to a task submitted later for the same Project. A task that yields is
+     * dropped, rather than delaying the later task, and notified as such. The default implementation returns false.
+     * @param task The later task
+     * @return true if this task is to be dropped
+     */
+    public boolean yieldsTo( final BuildTask task ) {
+        return false;
+    }
+
+    /**
+     * Return a task performing a full build of the Project, used in lieu of this task when the queue is full and
+     * queued work is coalesced. The default implementation returns null, in which case this task is dropped.
+     * @return
+     */
+    public BuildTask toFullBuild() {
+        return null;
+    }
+
+    /**
+     * Request cancellation of this task. Cancellation is cooperative and the default implementation does nothing.
+     */
+    public void cancel() {
+    }
+
+    /**
+     * Notification that this task will never run as it was dropped by the ProjectBuildExecutor, rather than merged
+     * into or superseded by another task: the queue was full, the task could not be scheduled or it yielded to a
+     * later task. The default implementation does nothing.
+     */
+    public void dropped() {
+    }
+
+}
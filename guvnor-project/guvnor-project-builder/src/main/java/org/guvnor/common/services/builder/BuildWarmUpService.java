@@ -0,0 +1,304 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.guvnor.common.services.project.model.Project;
+import org.guvnor.common.services.project.service.ProjectService;
+import org.guvnor.common.services.shared.config.AppConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.backend.repositories.Repository;
+import org.uberfire.backend.repositories.RepositoryService;
+import org.uberfire.backend.server.util.Paths;
+import org.uberfire.commons.services.cdi.ApplicationStarted;
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.file.DirectoryStream;
+import org.uberfire.java.nio.file.Files;
+import org.uberfire.java.nio.file.Path;
+
+/**
+ * Builds Projects in the background after start-up so the first user of each Project need not wait for a full build.
+ * Disabled by default. Projects are built most recently used first, as recorded by ProjectUsageStatistics, at
+ * BACKGROUND priority and with bounded parallelism. No further warm-up builds are started whilst user builds are
+ * queued or in progress, and warm-up stops once the LRUBuilderCache has no spare capacity so that warm Builders do
+ * not evict each other, or those of users.
+ */
+@ApplicationScoped
+public class BuildWarmUpService {
+
+    private static final Logger logger = LoggerFactory.getLogger( BuildWarmUpService.class );
+
+    private static final String WARM_UP_PROPERTY_NAME = "build.warm-up.enabled";
+    private static final String WARM_UP_THREADS_PROPERTY_NAME = "build.warm-up.threads";
+    private static final String WARM_UP_MAX_PROJECTS_PROPERTY_NAME = "build.warm-up.max-projects";
+
+    //Milliseconds to wait before re-checking for user builds whilst paused
+    private static final long PAUSE_INTERVAL = 1000;
+
+    @Inject
+    private AppConfigService appConfigService;
+
+    @Inject
+    private Instance<RepositoryService> repositoryService;
+
+    @Inject
+    private ProjectService projectService;
+
+    @Inject
+    @Named("ioStrategy")
+    private IOService ioService;
+
+    @Inject
+    private LRUBuilderCache cache;
+
+    @Inject
+    private ProjectUsageStatistics usageStatistics;
+
+    @Inject
+    private ResourceChangeIncrementalBuilder incrementalBuilder;
+
+    @Inject
+    private BuildServiceImpl buildService;
+
+    private ScheduledExecutorService scheduler;
+
+    //Projects waiting to be warmed up and the number of warm-up builds queued or running
+    private final Deque<Project> pendingProjects = new ArrayDeque<Project>();
+    private int activeBuilds = 0;
+    private int maxActiveBuilds = 1;
+    private boolean isStopped = false;
+
+    public synchronized void onApplicationStarted( @Observes ApplicationStarted applicationStartedEvent ) {
+        if ( !BuildPreferences.getBoolean( appConfigService,
+                                           WARM_UP_PROPERTY_NAME,
+                                           false ) ) {
+            return;
+        }
+        if ( repositoryService.isUnsatisfied() ) {
+            logger.warn( "Build warm-up is enabled but Repositories cannot be enumerated. Projects will not be warmed up." );
+            return;
+        }
+        maxActiveBuilds = Math.max( 1,
+                                    BuildPreferences.getInt( appConfigService,
+                                                             WARM_UP_THREADS_PROPERTY_NAME,
+                                                             1 ) );
+        scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+            @Override
+            public Thread newThread( final Runnable r ) {
+                final Thread thread = new Thread( r,
+                                                  "build-warm-up" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        //Enumerating Projects involves I/O so is not performed on the thread starting the application
+        scheduler.execute( new Runnable() {
+            @Override
+            public void run() {
+                start( BuildPreferences.getInt( appConfigService,
+                                                WARM_UP_MAX_PROJECTS_PROPERTY_NAME,
+                                                0 ) );
+            }
+        } );
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        isStopped = true;
+        pendingProjects.clear();
+        if ( scheduler != null ) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void start( final int maxProjects ) {
+        final List<Project> projects;
+        try {
+            projects = usageStatistics.sortByUsage( getProjects() );
+        } catch ( Exception e ) {
+            logger.warn( "Unable to enumerate Projects to warm up: " + e.getMessage() );
+            return;
+        }
+        synchronized ( this ) {
+            if ( isStopped ) {
+                return;
+            }
+            for ( Project project : projects ) {
+                if ( maxProjects > 0 && pendingProjects.size() >= maxProjects ) {
+                    break;
+                }
+                pendingProjects.add( project );
+            }
+            logger.info( "Warming up " + pendingProjects.size() + " Project(s)." );
+        }
+        startBuilds();
+    }
+
+    //Projects are created at the root of a Repository
+    private List<Project> getProjects() {
+        final List<Project> projects = new ArrayList<Project>();
+        for ( Repository repository : repositoryService.get().getRepositories() ) {
+            final Path root = Paths.convert( repository.getRoot() );
+            final DirectoryStream<Path> directoryStream = ioService.newDirectoryStream( root );
+            try {
+                for ( Path path : directoryStream ) {
+                    if ( !Files.isDirectory( path ) ) {
+                        continue;
+                    }
+                    final Project project = projectService.resolveProject( Paths.convert( path ) );
+                    if ( project != null && !projects.contains( project ) ) {
+                        projects.add( project );
+                    }
+                }
+            } finally {
+                directoryStream.close();
+            }
+        }
+        return projects;
+    }
+
+    //Start warm-up builds up to the limit of parallelism, unless paused by user builds or the cache is full
+    private void startBuilds() {
+        final List<Project> projects = new ArrayList<Project>();
+        synchronized ( this ) {
+            if ( isStopped ) {
+                return;
+            }
+            if ( isPaused() ) {
+                schedule( PAUSE_INTERVAL );
+                return;
+            }
+            while ( activeBuilds < maxActiveBuilds && !pendingProjects.isEmpty() ) {
+                if ( !cache.hasSpareCapacity() ) {
+                    logger.info( "Build cache is full. " + pendingProjects.size() + " Project(s) will not be warmed up." );
+                    pendingProjects.clear();
+                    break;
+                }
+                final Project project = pendingProjects.poll();
+
+                //Projects already used need no warm-up, and building them would supersede their users' builds
+                if ( cache.getKeys().contains( project ) ) {
+                    continue;
+                }
+                projects.add( project );
+                activeBuilds++;
+            }
+        }
+        for ( Project project : projects ) {
+            incrementalBuilder.getProjectBuildExecutor().execute( new WarmUpBuildTask( project ) );
+        }
+    }
+
+    //Warm-up yields to any user builds queued, or in progress on the threads of their requests
+    private boolean isPaused() {
+        if ( buildService.getActiveFullBuildCount() > 0 ) {
+            return true;
+        }
+        final ProjectBuildExecutor projectBuildExecutor = incrementalBuilder.getProjectBuildExecutor();
+        return projectBuildExecutor.getQueueDepth( BuildPriority.INTERACTIVE ) > 0 || projectBuildExecutor.getQueueDepth( BuildPriority.USER ) > 0;
+    }
+
+    private void schedule( final long delay ) {
+        try {
+            scheduler.schedule( new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        startBuilds();
+                                    }
+                                },
+                                delay,
+                                TimeUnit.MILLISECONDS );
+        } catch ( RejectedExecutionException e ) {
+            logger.debug( "Build warm-up has been stopped." );
+        }
+    }
+
+    private void buildCompleted() {
+        synchronized ( this ) {
+            activeBuilds--;
+        }
+        startBuilds();
+    }
+
+    private class WarmUpBuildTask extends BuildTask {
+
+        private WarmUpBuildTask( final Project project ) {
+            super( project,
+                   BuildPriority.BACKGROUND );
+        }
+
+        //A queued warm-up would hold up a user's builds queued after it in the Project's lane; the user's build loads
+        //the Project anyway
+        @Override
+        public boolean yieldsTo( final BuildTask task ) {
+            return task.getPriority() != BuildPriority.BACKGROUND;
+        }
+
+        @Override
+        public void dropped() {
+            logger.debug( "Warm up dropped for Project: " + getProject().getProjectName() );
+            buildCompleted();
+        }
+
+        @Override
+        public void run() {
+            try {
+                //A user may have started using the Project whilst the task was queued. Its Builder is not replaced
+                final Project project = getProject();
+                if ( cache.getKeys().contains( project ) ) {
+                    logger.debug( "Project already in use. Skipping warm up: " + project.getProjectName() );
+                    return;
+                }
+                final Builder builder = cache.assertFullBuilder( project,
+                                                                 this );
+                try {
+                    builder.build();
+                } finally {
+                    cache.fullBuildCompleted( project,
+                                              builder );
+                }
+                logger.debug( "Warmed up Project: " + project.getProjectName() );
+
+            } catch ( BuildCancelledException e ) {
+                //Superseded by a user's, or a newer scheduled, build of the Project
+                logger.debug( e.getMessage() );
+            } catch ( Throwable e ) {
+                logger.warn( "Unable to warm up Project " + getProject().getProjectName() + ": " + e.getMessage() );
+            } finally {
+                buildCompleted();
+            }
+        }
+    }
+
+}
@@ -17,17 +17,35 @@
 package org.guvnor.common.services.builder;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import javax.enterprise.event.Event;
 
+import org.drools.compiler.kie.builder.impl.InternalKieModule;
 import org.drools.workbench.models.datamodel.imports.Import;
 import org.drools.workbench.models.datamodel.imports.Imports;
 import org.drools.workbench.models.datamodel.oracle.TypeSource;
@@ -39,7 +57,6 @@ import org.guvnor.common.services.project.builder.model.IncrementalBuildResults;
 import org.guvnor.common.services.project.builder.service.BuildValidationHelper;
 import org.guvnor.common.services.project.events.RuleNameUpdateEvent;
 import org.guvnor.common.services.project.model.GAV;
-import org.guvnor.common.services.project.model.Package;
 import org.guvnor.common.services.project.model.Project;
 import org.guvnor.common.services.project.model.ProjectImports;
 import org.guvnor.common.services.project.service.ProjectService;
@@ -50,9 +67,11 @@ import org.kie.api.builder.KieFileSystem;
 import org.kie.api.builder.KieModule;
 import org.kie.api.builder.Message;
 import org.kie.api.builder.Results;
+import org.kie.api.definition.rule.Rule;
 import org.kie.api.runtime.KieContainer;
 import org.kie.internal.builder.IncrementalResults;
 import org.kie.internal.builder.InternalKieBuilder;
+import org.kie.internal.definition.KnowledgePackage;
 import org.kie.scanner.KieModuleMetaData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,6 +100,13 @@ public class Builder {
 
     private final static String DEFAULTPKG = "defaultpkg";
 
+    //Heuristics used to estimate the heap retained by a Builder. Source is held by the KieFileSystem and again,
+    //in compiled form, by the KieModule; a KieContainer's KieBases are typically several times larger again.
+    private final static long BASE_SIZE = 64 * 1024;
+    private final static long PER_RESOURCE_SIZE = 1024;
+    private final static long KIE_MODULE_SIZE_FACTOR = 3;
+    private final static long KIE_CONTAINER_SIZE_FACTOR = 6;
+
     private KieBuilder kieBuilder;
     private final Project project;
     private final KieServices kieServices;
@@ -91,11 +117,18 @@ public class Builder {
     private final ProjectService projectService;
 
     private final String projectPrefix;
+    private final ProjectLayout projectLayout;
 
     private Map<String, org.uberfire.backend.vfs.Path> handles = new HashMap<String, org.uberfire.backend.vfs.Path>();
 
     private final Event<RuleNameUpdateEvent> ruleNameUpdateEvent;
     private final List<BuildValidationHelper> buildValidationHelpers;
+    private final ExternalClassVerificationCache verificationCache;
+    private final CompilationThrottle compilationThrottle;
+    private final BuildMetrics buildMetrics;
+
+    //Used to load resources, validate non-KIE resources and verify external classes in parallel. If null all are performed serially
+    private final ExecutorService executor;
     private final Map<Path, BuildValidationHelper> nonKieResourceValidationHelpers = new HashMap<Path, BuildValidationHelper>();
     private final Map<Path, List<ValidationMessage>> nonKieResourceValidationHelperMessages = new HashMap<Path, List<ValidationMessage>>();
 
@@ -104,7 +137,42 @@ public class Builder {
 
     private Set<String> javaResources = new HashSet<String>();
 
-    private KieContainer kieContainer;
+    //Dependencies between resources, used to recompile the dependents of resources changed by incremental operations
+    private final ResourceDependencyGraph dependencyGraph = new ResourceDependencyGraph();
+    private final Set<String> changedSymbols = new HashSet<String>();
+
+    private boolean isKieContainerAvailable = false;
+
+    //Errors of the KieModule, one entry per error, maintained by full and incremental compilation
+    private final List<String> kieErrors = new ArrayList<String>();
+
+    //Compiled state published by builds, and incremental operations, for readers that do not acquire the lock. It is
+    //not a stable snapshot; see CompiledState
+    private volatile CompiledState compiledState = CompiledState.NONE;
+
+    private volatile boolean isCancelled = false;
+
+    //Summary of each resource held in the KieFileSystem, used to estimate the heap retained by this Builder and to
+    //fingerprint the content from which it was built
+    private final Map<String, ResourceSummary> resourceSummaries = new HashMap<String, ResourceSummary>();
+    private volatile int resourceCount = 0;
+    private volatile long resourceBytes = 0;
+    private volatile long dependencyGraphSize = 0;
+    private String contentFingerprint;
+
+    //KieModule, and results of the build that produced it, restored from a BuilderSnapshot in lieu of a build
+    private KieModule restoredKieModule;
+    private BuildResults restoredBuildResults;
+
+    //Rule names, per package, last notified to observers of RuleNameUpdateEvent. The Map, and the Sets it contains,
+    //are never modified; incremental builds replace the Sets of changed packages only
+    private Map<String, Set<String>> ruleNamesByPackage;
+
+    //Results of the last full build, the fingerprint of the content that was built and the external dependencies,
+    //keyed by their stamps when built, that provided its classes
+    private BuildResults buildResults;
+    private String buildResultsFingerprint;
+    private SortedMap<String, URL> buildResultsDependencies;
 
     public Builder( final Project project,
                     final Path moduleDirectory,
@@ -113,6 +181,28 @@ public class Builder {
                     final ProjectService projectService,
                     final Event<RuleNameUpdateEvent> ruleNameUpdateEvent,
                     final List<BuildValidationHelper> buildValidationHelpers ) {
+        this( project,
+              moduleDirectory,
+              gav,
+              ioService,
+              projectService,
+              ruleNameUpdateEvent,
+              buildValidationHelpers,
+              BuilderSettings.newSettings() );
+    }
+
+    /**
+     * Construct a Builder for a Project.
+     * @param settings Collaborators used by the Builder, possibly shared with other Builders.
+     */
+    public Builder( final Project project,
+                    final Path moduleDirectory,
+                    final GAV gav,
+                    final IOService ioService,
+                    final ProjectService projectService,
+                    final Event<RuleNameUpdateEvent> ruleNameUpdateEvent,
+                    final List<BuildValidationHelper> buildValidationHelpers,
+                    final BuilderSettings settings ) {
         this.project = project;
         this.moduleDirectory = moduleDirectory;
         this.gav = gav;
@@ -120,33 +210,99 @@ public class Builder {
         this.projectService = projectService;
         this.ruleNameUpdateEvent = ruleNameUpdateEvent;
         this.buildValidationHelpers = buildValidationHelpers;
+        checkNotNull( "settings",
+                      settings );
+        this.verificationCache = settings.getVerificationCache();
+        this.compilationThrottle = settings.getCompilationThrottle();
+        this.buildMetrics = settings.getBuildMetrics();
+        this.executor = settings.getLoadingExecutor();
 
         projectPrefix = moduleDirectory.toUri().toString();
+        projectLayout = new ProjectLayout( moduleDirectory );
         kieServices = KieServices.Factory.get();
         kieFileSystem = kieServices.newKieFileSystem();
 
-        DirectoryStream<org.uberfire.java.nio.file.Path> directoryStream = Files.newDirectoryStream( moduleDirectory );
-        visitPaths( directoryStream );
+        final long startTime = System.nanoTime();
+        if ( executor == null ) {
+            DirectoryStream<org.uberfire.java.nio.file.Path> directoryStream = Files.newDirectoryStream( moduleDirectory );
+            visitPaths( directoryStream );
+        } else {
+            visitPaths( moduleDirectory,
+                        executor );
+        }
+        buildMetrics.recordSince( project,
+                                  BuildPhase.PATH_WALK,
+                                  startTime );
     }
 
     public BuildResults build() {
+        return build( null );
+    }
+
+    /**
+     * Perform a full build, reporting messages as each phase of the build produces them
+     * @param listener Listener to receive the messages of each phase. If null messages are only returned once the build completes.
+     * @return All results of the build
+     */
+    public BuildResults build( final BuildProgressListener listener ) {
+        final long startTime = System.nanoTime();
+        try {
+            return doBuild( listener );
+        } finally {
+            buildMetrics.recordSince( project,
+                                      BuildPhase.FULL_BUILD,
+                                      startTime );
+        }
+    }
+
+    //The permit to compile is acquired before the lock, lest Builders hold their locks whilst waiting for a permit,
+    //and is released once compiled
+    private BuildResults doBuild( final BuildProgressListener listener ) {
+        final CompilationThrottle.Permit permit = compilationThrottle.acquire();
+        try {
+            return doBuild( listener,
+                            permit );
+        } finally {
+            permit.release();
+        }
+    }
+
+    private BuildResults doBuild( final BuildProgressListener listener,
+                                  final CompilationThrottle.Permit permit ) {
+        final BuildResults results;
+        final KieModuleMetaData kieModuleMetaData;
+        final Set<String> projectClasses;
+        final String builtContentFingerprint;
+        final long metaDataTime;
+        int reportedMessages = 0;
         synchronized ( kieFileSystem ) {
+            checkCancelled();
+
+            //The content is unchanged since the restored snapshot was built so its results remain valid
+            if ( restoredKieModule != null && restoredBuildResults != null ) {
+                fireRuleNameUpdateEvent();
+                reportMessages( listener,
+                                restoredBuildResults,
+                                reportedMessages );
+                return restoredBuildResults;
+            }
+
+            //A build supersedes any restored state
+            restoredKieModule = null;
+            isKieContainerAvailable = false;
+
             //KieBuilder is not re-usable for successive "full" builds
+            final long compilationStartTime = System.nanoTime();
             kieBuilder = kieServices.newKieBuilder( kieFileSystem );
 
             //Record RTEs from KieBuilder - that can fail if a rule uses an inaccessible class
-            final BuildResults results = new BuildResults( gav );
+            results = new BuildResults( gav );
             try {
-                final Results kieResults = kieBuilder.buildAll().getResults();
+                final Results kieResults = compileAll();
                 for ( final Message message : kieResults.getMessages() ) {
                     results.addBuildMessage( convertMessage( message ) );
                 }
 
-                //It's impossible to retrieve a KieContainer if the KieModule contains errors
-                if ( results.getErrorMessages().isEmpty() ) {
-                    kieContainer = kieServices.newKieContainer( kieBuilder.getKieModule().getReleaseId() );
-                }
-
             } catch ( NoClassDefFoundError e ) {
                 final String msg = MessageFormat.format( ERROR_CLASS_NOT_FOUND,
                                                          e.getLocalizedMessage() );
@@ -157,12 +313,32 @@ public class Builder {
                 logger.error( msg );
                 results.addBuildMessage( makeErrorMessage( msg ) );
             }
+            permit.release();
+            buildMetrics.recordSince( project,
+                                      BuildPhase.COMPILATION,
+                                      compilationStartTime );
+
+            //Resources not covered by KIE are validated by external helpers in parallel. Helpers may request the
+            //KieModule from other threads; if none was published previously this build's is published first, lest
+            //they wait for this build to complete
+            if ( !( compiledState.isBuilt() || compiledState.isRestored() ) ) {
+                publish();
+            }
+            final long validationStartTime = System.nanoTime();
+            final List<Validation> validations = startValidations( nonKieResourceValidationHelpers );
+
+            if ( isCancelled ) {
+                cancelValidations( validations );
+            }
+            checkCancelled();
+            reportedMessages = reportMessages( listener,
+                                               results,
+                                               reportedMessages );
 
             //Add validate messages from external helpers
-            for ( Map.Entry<Path, BuildValidationHelper> e : nonKieResourceValidationHelpers.entrySet() ) {
-                final org.uberfire.backend.vfs.Path vfsPath = Paths.convert( e.getKey() );
-                final List<ValidationMessage> validationMessages = e.getValue().validate( vfsPath );
-                nonKieResourceValidationHelperMessages.put( e.getKey(),
+            for ( Validation validation : validations ) {
+                final List<ValidationMessage> validationMessages = getResult( validation.messages );
+                nonKieResourceValidationHelperMessages.put( validation.path,
                                                             validationMessages );
                 if ( !( validationMessages == null || validationMessages.isEmpty() ) ) {
                     for ( ValidationMessage validationMessage : validationMessages ) {
@@ -170,8 +346,17 @@ public class Builder {
                     }
                 }
             }
+            buildMetrics.recordSince( project,
+                                      BuildPhase.VALIDATION,
+                                      validationStartTime );
+
+            checkCancelled();
+            reportedMessages = reportMessages( listener,
+                                               results,
+                                               reportedMessages );
 
             //Check external imports are available. These are loaded when a DMO is requested, but it's better to report them early
+            final long importsCheckStartTime = System.nanoTime();
             final org.uberfire.java.nio.file.Path nioExternalImportsPath = moduleDirectory.resolve( "project.imports" );
             if ( Files.exists( nioExternalImportsPath ) ) {
                 final org.uberfire.backend.vfs.Path externalImportsPath = Paths.convert( nioExternalImportsPath );
@@ -189,107 +374,377 @@ public class Builder {
                     }
                 }
             }
+            buildMetrics.recordSince( project,
+                                      BuildPhase.IMPORTS_CHECK,
+                                      importsCheckStartTime );
+            reportedMessages = reportMessages( listener,
+                                               results,
+                                               reportedMessages );
 
             //At the end we are interested to ensure that external .jar files referenced as dependencies don't have
             // referential inconsistencies. We will at least provide a basic algorithm to ensure that if an external class
             // X references another external class Y, Y is also accessible by the class loader.
-            final KieModuleMetaData kieModuleMetaData = getKieModuleMetaData();
-            for ( final String packageName : kieModuleMetaData.getPackages() ) {
-                for ( final String className : kieModuleMetaData.getClasses( packageName ) ) {
-                    final String fullyQualifiedClassName = packageName + "." + className;
-                    try {
-                        final Class clazz = kieModuleMetaData.getClass( packageName,
-                                                                        className );
-                        final TypeSource typeSource = getClassSource( kieModuleMetaData,
-                                                                      clazz );
-                        if ( TypeSource.JAVA_DEPENDENCY == typeSource ) {
-                            verifyExternalClass( clazz );
-                        }
-                    } catch ( NoClassDefFoundError e ) {
-                        final String msg = MessageFormat.format( ERROR_EXTERNAL_CLASS_VERIFICATON,
-                                                                 fullyQualifiedClassName );
-                        logger.warn( msg );
-                        results.addBuildMessage( makeWarningMessage( msg ) );
-                    } catch ( Throwable e ) {
-                        final String msg = MessageFormat.format( ERROR_EXTERNAL_CLASS_VERIFICATON,
-                                                                 fullyQualifiedClassName );
-                        logger.error( msg );
-                        results.addBuildMessage( makeErrorMessage( msg ) );
-                    }
+            final long metaDataStartTime = System.nanoTime();
+            kieModuleMetaData = getKieModuleMetaData();
+            metaDataTime = System.nanoTime() - metaDataStartTime;
+            projectClasses = new HashSet<String>( javaResources );
+            builtContentFingerprint = getContentFingerprint();
+
+            publish();
+        }
+
+        //Verification can be lengthy and only uses the KieModuleMetaData, so it is performed without holding the
+        //lock. The Builder is already built and incremental operations on it can proceed in the meantime.
+        final long verificationStartTime = System.nanoTime();
+        final SortedMap<String, URL> dependencies = verifyExternalClasses( kieModuleMetaData,
+                                                                           projectClasses,
+                                                                           results );
+        buildMetrics.record( project,
+                             BuildPhase.EXTERNAL_CLASS_VERIFICATION,
+                             metaDataTime + System.nanoTime() - verificationStartTime );
+
+        synchronized ( kieFileSystem ) {
+            checkCancelled();
+            reportMessages( listener,
+                            results,
+                            reportedMessages );
+
+            fireRuleNameUpdateEvent();
+
+            buildResults = results;
+            buildResultsFingerprint = builtContentFingerprint;
+            buildResultsDependencies = dependencies;
+
+            return results;
+        }
+    }
+
+    //Report the messages added to the results since those already reported
+    private int reportMessages( final BuildProgressListener listener,
+                                final BuildResults results,
+                                final int reportedMessages ) {
+        final List<BuildMessage> messages = results.getMessages();
+        if ( listener != null && messages.size() > reportedMessages ) {
+            listener.onBuildMessages( new ArrayList<BuildMessage>( messages.subList( reportedMessages,
+                                                                                     messages.size() ) ) );
+        }
+        return messages.size();
+    }
+
+    //Returns the external dependencies providing the verified classes, or null if they cannot be identified
+    private SortedMap<String, URL> verifyExternalClasses( final KieModuleMetaData kieModuleMetaData,
+                                                          final Set<String> projectClasses,
+                                                          final BuildResults results ) {
+        //Classes of each package are loaded, and those provided by external dependencies identified, in parallel
+        final List<Callable<PackageClasses>> loadingTasks = new ArrayList<Callable<PackageClasses>>();
+        for ( final String packageName : kieModuleMetaData.getPackages() ) {
+            loadingTasks.add( new Callable<PackageClasses>() {
+                @Override
+                public PackageClasses call() throws Exception {
+                    return loadPackageClasses( kieModuleMetaData,
+                                               packageName,
+                                               projectClasses );
                 }
+            } );
+        }
+        final List<PackageClasses> packages = invokeAll( loadingTasks );
+        checkCancelledWithoutLock();
+
+        final List<Class<?>> externalClasses = new ArrayList<Class<?>>();
+        for ( PackageClasses packageClasses : packages ) {
+            for ( BuildMessage message : packageClasses.getMessages() ) {
+                results.addBuildMessage( message );
             }
+            externalClasses.addAll( packageClasses.getExternalClasses().values() );
+        }
 
-            fireRuleNameUpdateEvent();
+        //Classes are only verified once for a set of unchanged dependencies; outcomes are otherwise replayed
+        final Map<String, ExternalClassVerificationCache.Outcome> verifications = verificationCache.getVerifications( externalClasses );
+        final List<Callable<List<BuildMessage>>> verificationTasks = new ArrayList<Callable<List<BuildMessage>>>();
+        for ( final PackageClasses packageClasses : packages ) {
+            verificationTasks.add( new Callable<List<BuildMessage>>() {
+                @Override
+                public List<BuildMessage> call() throws Exception {
+                    return verifyPackageClasses( packageClasses,
+                                                 verifications );
+                }
+            } );
+        }
+
+        //Messages are merged in package order so results do not depend upon scheduling
+        for ( List<BuildMessage> messages : invokeAll( verificationTasks ) ) {
+            for ( BuildMessage message : messages ) {
+                results.addBuildMessage( message );
+            }
+        }
+        checkCancelledWithoutLock();
+
+        return DependencySignatures.getDependencies( externalClasses );
+    }
+
+    private PackageClasses loadPackageClasses( final KieModuleMetaData kieModuleMetaData,
+                                               final String packageName,
+                                               final Set<String> projectClasses ) {
+        final PackageClasses packageClasses = new PackageClasses();
+        if ( isCancelled ) {
+            return packageClasses;
+        }
+        for ( final String className : kieModuleMetaData.getClasses( packageName ) ) {
+            final String fullyQualifiedClassName = packageName + "." + className;
+            try {
+                final Class clazz = kieModuleMetaData.getClass( packageName,
+                                                                className );
+                final TypeSource typeSource = getClassSource( kieModuleMetaData,
+                                                              clazz,
+                                                              projectClasses );
+                if ( TypeSource.JAVA_DEPENDENCY == typeSource ) {
+                    packageClasses.getExternalClasses().put( fullyQualifiedClassName,
+                                                             clazz );
+                }
+            } catch ( NoClassDefFoundError e ) {
+                final String msg = MessageFormat.format( ERROR_EXTERNAL_CLASS_VERIFICATON,
+                                                         fullyQualifiedClassName );
+                logger.warn( msg );
+                packageClasses.getMessages().add( makeWarningMessage( msg ) );
+            } catch ( Throwable e ) {
+                final String msg = MessageFormat.format( ERROR_EXTERNAL_CLASS_VERIFICATON,
+                                                         fullyQualifiedClassName );
+                logger.error( msg );
+                packageClasses.getMessages().add( makeErrorMessage( msg ) );
+            }
+        }
+        return packageClasses;
+    }
+
+    private List<BuildMessage> verifyPackageClasses( final PackageClasses packageClasses,
+                                                     final Map<String, ExternalClassVerificationCache.Outcome> verifications ) {
+        final List<BuildMessage> messages = new ArrayList<BuildMessage>();
+        for ( Map.Entry<String, Class<?>> e : packageClasses.getExternalClasses().entrySet() ) {
+            if ( isCancelled ) {
+                break;
+            }
+            ExternalClassVerificationCache.Outcome outcome = verifications.get( e.getKey() );
+            if ( outcome == null ) {
+                outcome = verifyExternalClass( e.getKey(),
+                                               e.getValue() );
+                verifications.put( e.getKey(),
+                                   outcome );
+            }
+            switch ( outcome ) {
+                case CLASS_NOT_FOUND:
+                    messages.add( makeWarningMessage( MessageFormat.format( ERROR_EXTERNAL_CLASS_VERIFICATON,
+                                                                            e.getKey() ) ) );
+                    break;
+                case FAILED:
+                    messages.add( makeErrorMessage( MessageFormat.format( ERROR_EXTERNAL_CLASS_VERIFICATON,
+                                                                          e.getKey() ) ) );
+                    break;
+            }
+        }
+        return messages;
+    }
+
+    //Tasks are executed by the ExecutorService, if any, otherwise serially. Results are returned in task order.
+    private <T> List<T> invokeAll( final List<Callable<T>> tasks ) {
+        return getResults( submitAll( tasks ) );
+    }
 
+    //Start tasks on the executor. If there is no executor each task is run when its result is requested
+    private <T> List<Future<T>> submitAll( final List<Callable<T>> tasks ) {
+        final List<Future<T>> futures = new ArrayList<Future<T>>();
+        for ( Callable<T> task : tasks ) {
+            futures.add( executor == null ? new FutureTask<T>( task ) : executor.submit( task ) );
+        }
+        return futures;
+    }
+
+    //Results are returned in the order of the tasks. Outstanding tasks are cancelled if any task fails
+    private <T> List<T> getResults( final List<Future<T>> futures ) {
+        final List<T> results = new ArrayList<T>();
+        boolean isCompleted = false;
+        try {
+            for ( Future<T> future : futures ) {
+                results.add( getResult( future ) );
+            }
+            isCompleted = true;
             return results;
+        } finally {
+            if ( !isCompleted ) {
+                for ( Future<T> future : futures ) {
+                    future.cancel( true );
+                }
+            }
+        }
+    }
+
+    private <T> T getResult( final Future<T> future ) {
+        try {
+            if ( future instanceof FutureTask && executor == null ) {
+                ( (FutureTask<T>) future ).run();
+            }
+            return future.get();
+
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted whilst building " + projectPrefix,
+                                             e );
+        } catch ( ExecutionException e ) {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            } else if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException( cause );
+        }
+    }
+
+    //Validate resources with their BuildValidationHelpers, in parallel if there is an executor. Validations are
+    //ordered by path so that the messages merged into results do not depend upon scheduling.
+    private List<Validation> startValidations( final Map<Path, BuildValidationHelper> validators ) {
+        final SortedMap<String, Path> paths = new TreeMap<String, Path>();
+        for ( Path path : validators.keySet() ) {
+            paths.put( path.toUri().toString(),
+                       path );
+        }
+        final List<Callable<List<ValidationMessage>>> tasks = new ArrayList<Callable<List<ValidationMessage>>>();
+        for ( final Path path : paths.values() ) {
+            final BuildValidationHelper validator = validators.get( path );
+            tasks.add( new Callable<List<ValidationMessage>>() {
+                @Override
+                public List<ValidationMessage> call() throws Exception {
+                    return validator.validate( Paths.convert( path ) );
+                }
+            } );
+        }
+        final List<Future<List<ValidationMessage>>> futures = submitAll( tasks );
+        final List<Validation> validations = new ArrayList<Validation>();
+        int i = 0;
+        for ( Path path : paths.values() ) {
+            validations.add( new Validation( path,
+                                             futures.get( i++ ) ) );
+        }
+        return validations;
+    }
+
+    private void cancelValidations( final List<Validation> validations ) {
+        for ( Validation validation : validations ) {
+            validation.messages.cancel( true );
         }
     }
 
+    private void checkCancelledWithoutLock() {
+        if ( isCancelled ) {
+            synchronized ( kieFileSystem ) {
+                checkCancelled();
+            }
+        }
+    }
+
+    /**
+     * Request cancellation of a full build. Cancellation is cooperative; a build in progress stops at the next
+     * phase and throws BuildCancelledException. A cancelled Builder cannot be used for subsequent builds.
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    private void checkCancelled() {
+        if ( !isCancelled ) {
+            return;
+        }
+        //Partially built state must not be used for incremental builds
+        kieBuilder = null;
+        publish();
+        throw new BuildCancelledException( "Build of " + projectPrefix + " was cancelled as it has been superseded by a newer build." );
+    }
+
     private KieModuleMetaData getKieModuleMetaData() {
+        if ( kieBuilder == null && restoredKieModule != null ) {
+            return KieModuleMetaData.Factory.newKieModuleMetaData( restoredKieModule );
+        }
         return KieModuleMetaData.Factory.newKieModuleMetaData( ( (InternalKieBuilder) kieBuilder ).getKieModuleIgnoringErrors() );
     }
 
-    private void verifyExternalClass( Class clazz ) {
-        //don't recommended to instantiate the class doing clazz.newInstance().
-        clazz.getDeclaredConstructors();
-        clazz.getDeclaredFields();
-        clazz.getDeclaredMethods();
-        clazz.getDeclaredClasses();
-        clazz.getDeclaredAnnotations();
+    private ExternalClassVerificationCache.Outcome verifyExternalClass( final String fullyQualifiedClassName,
+                                                                        final Class<?> clazz ) {
+        try {
+            //don't recommended to instantiate the class doing clazz.newInstance().
+            clazz.getDeclaredConstructors();
+            clazz.getDeclaredFields();
+            clazz.getDeclaredMethods();
+            clazz.getDeclaredClasses();
+            clazz.getDeclaredAnnotations();
+            return ExternalClassVerificationCache.Outcome.VERIFIED;
+        } catch ( NoClassDefFoundError e ) {
+            logger.warn( MessageFormat.format( ERROR_EXTERNAL_CLASS_VERIFICATON,
+                                               fullyQualifiedClassName ) );
+            return ExternalClassVerificationCache.Outcome.CLASS_NOT_FOUND;
+        } catch ( Throwable e ) {
+            logger.error( MessageFormat.format( ERROR_EXTERNAL_CLASS_VERIFICATON,
+                                                fullyQualifiedClassName ) );
+            return ExternalClassVerificationCache.Outcome.FAILED;
+        }
     }
 
     public IncrementalBuildResults addResource( final Path resource ) {
-        synchronized ( kieFileSystem ) {
-            checkNotNull( "resource",
-                          resource );
+        final long startTime = System.nanoTime();
+        try {
+            return doAddResource( resource );
+        } finally {
+            buildMetrics.recordSince( project,
+                                      BuildPhase.ADD_RESOURCE,
+                                      startTime );
+        }
+    }
 
-            //Only files can be processed
-            if ( !Files.isRegularFile( resource ) ) {
-                return new IncrementalBuildResults( gav );
-            }
+    //The content is read before the permit to compile is acquired, and the permit before the lock. The permit is
+    //released once compiled, before the resource is validated and rule names notified
+    private IncrementalBuildResults doAddResource( final Path resource ) {
+        checkNotNull( "resource",
+                      resource );
 
+        //Only files can be processed
+        if ( !Files.isRegularFile( resource ) ) {
+            return new IncrementalBuildResults( gav );
+        }
+        final byte[] content = readContent( resource );
+        final CompilationThrottle.Permit permit = compilationThrottle.acquire();
+        try {
+            return doAddResource( resource,
+                                  content,
+                                  permit );
+        } finally {
+            permit.release();
+        }
+    }
+
+    private IncrementalBuildResults doAddResource( final Path resource,
+                                                   final byte[] content,
+                                                   final CompilationThrottle.Permit permit ) {
+        synchronized ( kieFileSystem ) {
             //Check a full build has been performed
             if ( !isBuilt() ) {
                 throw new IllegalStateException( "A full build needs to be performed before any incremental operations." );
             }
-
-            //Resource Type might require "external" validation (i.e. it's not covered by Kie)
+            assertKieBuilder();
             final IncrementalBuildResults results = new IncrementalBuildResults( gav );
-            final BuildValidationHelper validator = getBuildValidationHelper( resource );
-            if ( validator != null ) {
-                final List<ValidationMessage> addedValidationMessages = validator.validate( Paths.convert( resource ) );
-
-                if ( !( addedValidationMessages == null || addedValidationMessages.isEmpty() ) ) {
-                    for ( ValidationMessage validationMessage : addedValidationMessages ) {
-                        results.addAddedMessage( convertValidationMessage( validationMessage ) );
-                    }
-                }
-
-                final List<ValidationMessage> removedValidationMessages = nonKieResourceValidationHelperMessages.remove( resource );
-                if ( !( removedValidationMessages == null || removedValidationMessages.isEmpty() ) ) {
-                    for ( ValidationMessage validationMessage : removedValidationMessages ) {
-                        results.addRemovedMessage( convertValidationMessage( validationMessage ) );
-                    }
-                }
-                nonKieResourceValidationHelpers.put( resource,
-                                                     validator );
-                nonKieResourceValidationHelperMessages.put( resource,
-                                                            addedValidationMessages );
-            }
 
             //Add new resource
             final String destinationPath = resource.toUri().toString().substring( projectPrefix.length() + 1 );
-            final InputStream is = ioService.newInputStream( resource );
-            final BufferedInputStream bis = new BufferedInputStream( is );
-            kieFileSystem.write( destinationPath,
-                                 KieServices.Factory.get().getResources().newInputStreamResource( bis ) );
+            writeResource( destinationPath,
+                           content );
             addJavaClass( resource );
             handles.put( destinationPath,
                          Paths.convert( resource ) );
 
             //Incremental build
             try {
-                final IncrementalResults incrementalResults = ( (InternalKieBuilder) kieBuilder ).createFileSet( destinationPath ).build();
+                final IncrementalResults incrementalResults = compile( destinationPath );
                 for ( final Message message : incrementalResults.getAddedMessages() ) {
                     results.addAddedMessage( convertMessage( message ) );
                 }
@@ -312,29 +767,177 @@ public class Builder {
                 logger.error( msg );
                 results.addAddedMessage( makeErrorMessage( msg ) );
             }
+            permit.release();
 
-            fireRuleNameUpdateEvent();
+            //Resource Type might require "external" validation (i.e. it's not covered by Kie)
+            final BuildValidationHelper validator = getBuildValidationHelper( resource );
+            if ( validator != null ) {
+                final List<ValidationMessage> addedValidationMessages = validator.validate( Paths.convert( resource ) );
+
+                if ( !( addedValidationMessages == null || addedValidationMessages.isEmpty() ) ) {
+                    for ( ValidationMessage validationMessage : addedValidationMessages ) {
+                        results.addAddedMessage( convertValidationMessage( validationMessage ) );
+                    }
+                }
+
+                final List<ValidationMessage> removedValidationMessages = nonKieResourceValidationHelperMessages.remove( resource );
+                if ( !( removedValidationMessages == null || removedValidationMessages.isEmpty() ) ) {
+                    for ( ValidationMessage validationMessage : removedValidationMessages ) {
+                        results.addRemovedMessage( convertValidationMessage( validationMessage ) );
+                    }
+                }
+                nonKieResourceValidationHelpers.put( resource,
+                                                     validator );
+                nonKieResourceValidationHelperMessages.put( resource,
+                                                            addedValidationMessages );
+            }
+
+            //A KieContainer created before the change is stale; a new one is created when next requested
+            publish();
+
+            fireRuleNameDeltaEvent();
 
             return results;
         }
     }
 
     private void fireRuleNameUpdateEvent() {
-        KieModuleMetaData kieModuleMetaData = getKieModuleMetaData();
-        HashMap<String, Collection<String>> ruleNames = new HashMap<String, Collection<String>>();
-        for ( String packageName : kieModuleMetaData.getPackages() ) {
-            if ( packageName.isEmpty() ) {
-                packageName = DEFAULTPKG;
-            }
-            ruleNames.put( packageName, kieModuleMetaData.getRuleNamesInPackage( packageName ) );
+        final long startTime = System.nanoTime();
+        try {
+            doFireRuleNameUpdateEvent();
+        } finally {
+            buildMetrics.recordSince( project,
+                                      BuildPhase.RULE_NAME_UPDATE,
+                                      startTime );
         }
+    }
 
-        ruleNames.put( DEFAULTPKG, kieModuleMetaData.getRuleNamesInPackage( DEFAULTPKG ) );
+    private void doFireRuleNameUpdateEvent() {
+        final HashMap<String, Collection<String>> ruleNames = new HashMap<String, Collection<String>>();
+        if ( kieBuilder == null ) {
+            //Restored from a BuilderSnapshot; rule names are only available from the KieModuleMetaData
+            KieModuleMetaData kieModuleMetaData = getKieModuleMetaData();
+            for ( String packageName : kieModuleMetaData.getPackages() ) {
+                if ( packageName.isEmpty() ) {
+                    packageName = DEFAULTPKG;
+                }
+                ruleNames.put( packageName, kieModuleMetaData.getRuleNamesInPackage( packageName ) );
+            }
+
+            ruleNames.put( DEFAULTPKG, kieModuleMetaData.getRuleNamesInPackage( DEFAULTPKG ) );
+            ruleNamesByPackage = null;
+
+        } else {
+            ruleNamesByPackage = getRuleNamesByPackage();
+            ruleNames.putAll( ruleNamesByPackage );
+        }
 
         ruleNameUpdateEvent.fire( new RuleNameUpdateEvent( project, ruleNames ) );
     }
 
+    //Following an incremental build only the rule names added and removed are notified, for packages that changed
+    private void fireRuleNameDeltaEvent() {
+        if ( ruleNamesByPackage == null ) {
+            fireRuleNameUpdateEvent();
+            return;
+        }
+
+        final Map<String, Set<String>> currentRuleNames = getRuleNamesByPackage();
+        final Map<String, Collection<String>> addedRuleNames = new HashMap<String, Collection<String>>();
+        final Map<String, Collection<String>> removedRuleNames = new HashMap<String, Collection<String>>();
+        final Map<String, Set<String>> updatedRuleNames = new HashMap<String, Set<String>>( ruleNamesByPackage );
+
+        for ( Map.Entry<String, Set<String>> e : currentRuleNames.entrySet() ) {
+            final Set<String> previous = ruleNamesByPackage.get( e.getKey() );
+            if ( previous == null ) {
+                addedRuleNames.put( e.getKey(),
+                                    e.getValue() );
+                updatedRuleNames.put( e.getKey(),
+                                      e.getValue() );
+            } else if ( !previous.equals( e.getValue() ) ) {
+                final Set<String> added = new HashSet<String>( e.getValue() );
+                added.removeAll( previous );
+                final Set<String> removed = new HashSet<String>( previous );
+                removed.removeAll( e.getValue() );
+                if ( !added.isEmpty() ) {
+                    addedRuleNames.put( e.getKey(),
+                                        added );
+                }
+                if ( !removed.isEmpty() ) {
+                    removedRuleNames.put( e.getKey(),
+                                          removed );
+                }
+                updatedRuleNames.put( e.getKey(),
+                                      e.getValue() );
+            }
+        }
+        for ( Map.Entry<String, Set<String>> e : ruleNamesByPackage.entrySet() ) {
+            if ( !currentRuleNames.containsKey( e.getKey() ) ) {
+                if ( !e.getValue().isEmpty() ) {
+                    removedRuleNames.put( e.getKey(),
+                                          e.getValue() );
+                }
+                updatedRuleNames.remove( e.getKey() );
+            }
+        }
+
+        if ( addedRuleNames.isEmpty() && removedRuleNames.isEmpty() ) {
+            return;
+        }
+        ruleNamesByPackage = updatedRuleNames;
+
+        ruleNameUpdateEvent.fire( new RuleNameUpdateEvent( project,
+                                                           Collections.<String, Collection<String>>unmodifiableMap( updatedRuleNames ),
+                                                           addedRuleNames,
+                                                           removedRuleNames ) );
+    }
+
+    //Rule names are read from the compiled packages of the KieModule, which avoids the cost of building a KieModuleMetaData
+    private Map<String, Set<String>> getRuleNamesByPackage() {
+        final Map<String, Set<String>> ruleNames = new HashMap<String, Set<String>>();
+        ruleNames.put( DEFAULTPKG,
+                       new HashSet<String>() );
+        final InternalKieModule kieModule = (InternalKieModule) ( (InternalKieBuilder) kieBuilder ).getKieModuleIgnoringErrors();
+        for ( String kieBaseName : kieModule.getKieModuleModel().getKieBaseModels().keySet() ) {
+            final Collection<KnowledgePackage> packages = kieModule.getKnowledgePackagesForKieBase( kieBaseName );
+            if ( packages == null ) {
+                continue;
+            }
+            for ( KnowledgePackage pkg : packages ) {
+                final String packageName = pkg.getName().isEmpty() ? DEFAULTPKG : pkg.getName();
+                Set<String> packageRuleNames = ruleNames.get( packageName );
+                if ( packageRuleNames == null ) {
+                    packageRuleNames = new HashSet<String>();
+                    ruleNames.put( packageName,
+                                   packageRuleNames );
+                }
+                for ( Rule rule : pkg.getRules() ) {
+                    packageRuleNames.add( rule.getName() );
+                }
+            }
+        }
+        for ( Map.Entry<String, Set<String>> e : ruleNames.entrySet() ) {
+            e.setValue( Collections.unmodifiableSet( e.getValue() ) );
+        }
+        return ruleNames;
+    }
+
     public IncrementalBuildResults deleteResource( final Path resource ) {
+        final long startTime = System.nanoTime();
+        final CompilationThrottle.Permit permit = compilationThrottle.acquire();
+        try {
+            return doDeleteResource( resource,
+                                     permit );
+        } finally {
+            permit.release();
+            buildMetrics.recordSince( project,
+                                      BuildPhase.DELETE_RESOURCE,
+                                      startTime );
+        }
+    }
+
+    private IncrementalBuildResults doDeleteResource( final Path resource,
+                                                      final CompilationThrottle.Permit permit ) {
         synchronized ( kieFileSystem ) {
             checkNotNull( "resource",
                           resource );
@@ -344,6 +947,7 @@ public class Builder {
             if ( !isBuilt() ) {
                 throw new IllegalStateException( "A full build needs to be performed before any incremental operations." );
             }
+            assertKieBuilder();
 
             //Resource Type might have been validated "externally" (i.e. it's not covered by Kie). Clear any errors.
             final IncrementalBuildResults results = new IncrementalBuildResults( gav );
@@ -360,12 +964,12 @@ public class Builder {
 
             //Delete resource
             final String destinationPath = resource.toUri().toString().substring( projectPrefix.length() + 1 );
-            kieFileSystem.delete( destinationPath );
+            removeResource( destinationPath );
             removeJavaClass( resource );
 
             //Incremental build
             try {
-                final IncrementalResults incrementalResults = ( (InternalKieBuilder) kieBuilder ).createFileSet( destinationPath ).build();
+                final IncrementalResults incrementalResults = compile( destinationPath );
                 for ( final Message message : incrementalResults.getAddedMessages() ) {
                     results.addAddedMessage( convertMessage( message ) );
                 }
@@ -388,33 +992,80 @@ public class Builder {
                 logger.error( msg );
                 results.addAddedMessage( makeErrorMessage( msg ) );
             }
+            permit.release();
 
-            fireRuleNameUpdateEvent();
+            //A KieContainer created before the change is stale; a new one is created when next requested
+            publish();
+
+            fireRuleNameDeltaEvent();
 
             return results;
         }
     }
 
     public IncrementalBuildResults updateResource( final Path resource ) {
-        synchronized ( kieFileSystem ) {
-            return addResource( resource );
+        final long startTime = System.nanoTime();
+        try {
+            return doAddResource( resource );
+        } finally {
+            buildMetrics.recordSince( project,
+                                      BuildPhase.UPDATE_RESOURCE,
+                                      startTime );
         }
     }
 
     public IncrementalBuildResults applyBatchResourceChanges( final Map<org.uberfire.backend.vfs.Path, Collection<ResourceChange>> changes ) {
-        synchronized ( kieFileSystem ) {
-            checkNotNull( "changes",
-                          changes );
+        final long startTime = System.nanoTime();
+        try {
+            return doApplyBatchResourceChanges( changes );
+        } finally {
+            buildMetrics.recordSince( project,
+                                      BuildPhase.BATCH_RESOURCE_CHANGES,
+                                      startTime );
+        }
+    }
 
+    //The content of added and updated files is read before the permit to compile is acquired, and the permit before
+    //the lock. The permit is released once compiled, before resources are validated and rule names notified
+    private IncrementalBuildResults doApplyBatchResourceChanges( final Map<org.uberfire.backend.vfs.Path, Collection<ResourceChange>> changes ) {
+        checkNotNull( "changes",
+                      changes );
+        final Map<Path, byte[]> contents = new HashMap<Path, byte[]>();
+        for ( final Map.Entry<org.uberfire.backend.vfs.Path, Collection<ResourceChange>> pathCollectionEntry : changes.entrySet() ) {
+            final Path resource = Paths.convert( pathCollectionEntry.getKey() );
+            for ( final ResourceChange change : pathCollectionEntry.getValue() ) {
+                final ResourceChangeType type = change.getType();
+                if ( ( type == ResourceChangeType.ADD || type == ResourceChangeType.UPDATE ) && !contents.containsKey( resource ) && Files.isRegularFile( resource ) ) {
+                    contents.put( resource,
+                                  readContent( resource ) );
+                }
+            }
+        }
+        final CompilationThrottle.Permit permit = compilationThrottle.acquire();
+        try {
+            return doApplyBatchResourceChanges( changes,
+                                                contents,
+                                                permit );
+        } finally {
+            permit.release();
+        }
+    }
+
+    private IncrementalBuildResults doApplyBatchResourceChanges( final Map<org.uberfire.backend.vfs.Path, Collection<ResourceChange>> changes,
+                                                                 final Map<Path, byte[]> contents,
+                                                                 final CompilationThrottle.Permit permit ) {
+        synchronized ( kieFileSystem ) {
             //Check a full build has been performed
             if ( !isBuilt() ) {
                 throw new IllegalStateException( "A full build needs to be performed before any incremental operations." );
             }
+            assertKieBuilder();
 
             //Add all changes to KieFileSystem before executing the build
             final List<String> changedFilesKieBuilderPaths = new ArrayList<String>();
             final List<ValidationMessage> nonKieResourceValidatorAddedMessages = new ArrayList<ValidationMessage>();
             final List<ValidationMessage> nonKieResourceValidatorRemovedMessages = new ArrayList<ValidationMessage>();
+            final Map<Path, BuildValidationHelper> nonKieResourceValidators = new HashMap<Path, BuildValidationHelper>();
 
             for ( final Map.Entry<org.uberfire.backend.vfs.Path, Collection<ResourceChange>> pathCollectionEntry : changes.entrySet() ) {
                 for ( final ResourceChange change : pathCollectionEntry.getValue() ) {
@@ -429,22 +1080,15 @@ public class Builder {
                     switch ( type ) {
                         case ADD:
                         case UPDATE:
-                            //Only files can be processed
-                            if ( !Files.isRegularFile( resource ) ) {
+                            //Only files can be processed; their content has been read already
+                            final byte[] content = contents.get( resource );
+                            if ( content == null ) {
                                 continue;
                             }
 
                             //Resource Type might require "external" validation (i.e. it's not covered by Kie)
                             final BuildValidationHelper validator = getBuildValidationHelper( resource );
                             if ( validator != null ) {
-                                final List<ValidationMessage> addedValidationMessages = validator.validate( Paths.convert( resource ) );
-
-                                if ( !( addedValidationMessages == null || addedValidationMessages.isEmpty() ) ) {
-                                    for ( ValidationMessage validationMessage : addedValidationMessages ) {
-                                        nonKieResourceValidatorAddedMessages.add( validationMessage );
-                                    }
-                                }
-
                                 final List<ValidationMessage> removedValidationMessages = nonKieResourceValidationHelperMessages.remove( resource );
                                 if ( !( removedValidationMessages == null || removedValidationMessages.isEmpty() ) ) {
                                     for ( ValidationMessage validationMessage : removedValidationMessages ) {
@@ -453,15 +1097,15 @@ public class Builder {
                                 }
                                 nonKieResourceValidationHelpers.put( resource,
                                                                      validator );
-                                nonKieResourceValidationHelperMessages.put( resource,
-                                                                            addedValidationMessages );
+
+                                //Validated once all changes have been applied
+                                nonKieResourceValidators.put( resource,
+                                                              validator );
                             }
 
                             //Add new resource
-                            final InputStream is = ioService.newInputStream( resource );
-                            final BufferedInputStream bis = new BufferedInputStream( is );
-                            kieFileSystem.write( destinationPath,
-                                                 KieServices.Factory.get().getResources().newInputStreamResource( bis ) );
+                            writeResource( destinationPath,
+                                           content );
                             addJavaClass( resource );
                             handles.put( destinationPath,
                                          Paths.convert( resource ) );
@@ -470,6 +1114,7 @@ public class Builder {
                         case DELETE:
                             //Resource Type might have been validated "externally" (i.e. it's not covered by Kie). Clear any errors.
                             nonKieResourceValidationHelpers.remove( resource );
+                            nonKieResourceValidators.remove( resource );
                             final List<ValidationMessage> removedValidationMessages = nonKieResourceValidationHelperMessages.remove( resource );
                             if ( !( removedValidationMessages == null || removedValidationMessages.isEmpty() ) ) {
                                 for ( ValidationMessage validationMessage : removedValidationMessages ) {
@@ -478,7 +1123,7 @@ public class Builder {
                             }
 
                             //The file has already been deleted so we can't check if the Path is a file or folder :(
-                            kieFileSystem.delete( destinationPath );
+                            removeResource( destinationPath );
                             removeJavaClass( resource );
                     }
                 }
@@ -492,7 +1137,7 @@ public class Builder {
 
             final IncrementalBuildResults results = new IncrementalBuildResults( gav );
             try {
-                final IncrementalResults incrementalResults = ( (InternalKieBuilder) kieBuilder ).createFileSet( kieBuilderPaths ).build();
+                final IncrementalResults incrementalResults = compile( kieBuilderPaths );
                 for ( final Message message : incrementalResults.getAddedMessages() ) {
                     results.addAddedMessage( convertMessage( message ) );
                 }
@@ -515,6 +1160,20 @@ public class Builder {
                 logger.error( msg );
                 results.addAddedMessage( makeErrorMessage( msg ) );
             }
+            permit.release();
+
+            //Changed resources not covered by KIE are validated by external helpers in parallel
+            final List<Validation> validations = startValidations( nonKieResourceValidators );
+            for ( Validation validation : validations ) {
+                final List<ValidationMessage> addedValidationMessages = getResult( validation.messages );
+                if ( !( addedValidationMessages == null || addedValidationMessages.isEmpty() ) ) {
+                    for ( ValidationMessage validationMessage : addedValidationMessages ) {
+                        nonKieResourceValidatorAddedMessages.add( validationMessage );
+                    }
+                }
+                nonKieResourceValidationHelperMessages.put( validation.path,
+                                                            addedValidationMessages );
+            }
 
             //Copy in BuildMessages for non-KIE resources
             for ( ValidationMessage addedValidationMessage : nonKieResourceValidatorAddedMessages ) {
@@ -524,38 +1183,127 @@ public class Builder {
                 results.addRemovedMessage( convertValidationMessage( removedValidationMessage ) );
             }
 
+            //A KieContainer created before the change is stale; a new one is created when next requested
+            publish();
+
+            fireRuleNameDeltaEvent();
+
             return results;
         }
     }
 
-    public KieModule getKieModule() {
-        //Kie classes are only available once built
-        if ( !isBuilt() ) {
-            build();
+    //A Builder restored from a snapshot has no KieBuilder, which incremental builds require. The KieFileSystem is
+    //compiled before the first incremental operation, rather than when restored, so restored Builders that are only
+    //read never compile. Must be called whilst holding the lock and before any change is applied.
+    private void assertKieBuilder() {
+        if ( kieBuilder != null ) {
+            return;
+        }
+        final long startTime = System.nanoTime();
+        kieBuilder = kieServices.newKieBuilder( kieFileSystem );
+        compileAll();
+        buildMetrics.recordSince( project,
+                                  BuildPhase.COMPILATION,
+                                  startTime );
+
+        //The restored results remain those of the full build until the content changes
+        if ( restoredBuildResults != null ) {
+            buildResults = restoredBuildResults;
+            buildResultsFingerprint = getContentFingerprint();
         }
-        return kieBuilder.getKieModule();
+        restoredKieModule = null;
+        restoredBuildResults = null;
     }
 
-    public KieModule getKieModuleIgnoringErrors() {
-        //Kie classes are only available once built
-        if ( !isBuilt() ) {
-            build();
+    //Publish the current compiled state to readers. Must be called whilst holding the lock.
+    private void publish() {
+        if ( kieBuilder != null ) {
+            compiledState = new CompiledState( kieBuilder,
+                                               null,
+                                               isKieContainerAvailable );
+        } else if ( restoredKieModule != null ) {
+            //Snapshots are only created from KieModules without errors
+            compiledState = new CompiledState( null,
+                                               restoredKieModule,
+                                               true );
+        } else {
+            compiledState = CompiledState.NONE;
         }
-        return ( (InternalKieBuilder) kieBuilder ).getKieModuleIgnoringErrors();
+    }
+
+    /**
+     * Return the KieModule, building if neither built nor restored. Once built the KieModule of the last build is
+     * returned without waiting for a build, or incremental operation, in progress. The KieModule is updated in place
+     * by incremental operations, including any in progress whilst it is read.
+     * @return
+     */
+    public KieModule getKieModule() {
+        return getCompiledState().getKieModule();
+    }
+
+    public KieModule getKieModuleIgnoringErrors() {
+        return getCompiledState().getKieModuleIgnoringErrors();
     }
 
     public KieContainer getKieContainer() {
-        //Kie classes are only available once built
-        if ( !isBuilt() ) {
-            build();
+        final CompiledState state = getCompiledState();
+        if ( state.hasKieContainer() ) {
+            return state.getKieContainer( kieServices );
+        }
+        final long startTime = System.nanoTime();
+        final KieContainer kieContainer = state.getKieContainer( kieServices );
+        if ( kieContainer != null ) {
+            buildMetrics.recordSince( project,
+                                      BuildPhase.KIE_CONTAINER_CREATION,
+                                      startTime );
         }
         return kieContainer;
     }
 
-    public boolean isBuilt() {
-        synchronized ( kieFileSystem ) {
-            return kieBuilder != null;
+    //Kie classes are only available once built
+    private CompiledState getCompiledState() {
+        final CompiledState state = compiledState;
+        if ( state.isBuilt() || state.isRestored() ) {
+            return state;
         }
+        build();
+        return compiledState;
+    }
+
+    /**
+     * Release the KieContainer, if one has been created, to reduce the heap retained by this Builder. The Builder
+     * remains usable and a new KieContainer is created when next requested. The released KieContainer is disposed
+     * and must no longer be used. This does not acquire the Builder's lock so it can be called whilst a build is in
+     * progress.
+     * @return true if a KieContainer was released
+     */
+    public boolean releaseKieContainer() {
+        return compiledState.releaseKieContainer();
+    }
+
+    /**
+     * Estimate the heap retained by this Builder. The estimate is coarse and is derived from the number and size
+     * of resources held in the KieFileSystem, scaled for the compiled KieModule and, if created, the KieContainer,
+     * plus the identifiers retained by the graph of dependencies between resources. It is cheap to calculate and does
+     * not acquire the Builder's lock.
+     * @return Estimated size in bytes
+     */
+    public long getEstimatedSize() {
+        final long bytes = resourceBytes;
+        long size = BASE_SIZE + ( resourceCount * PER_RESOURCE_SIZE ) + ( bytes * KIE_MODULE_SIZE_FACTOR ) + dependencyGraphSize;
+        if ( compiledState.hasKieContainer() ) {
+            size = size + ( bytes * KIE_CONTAINER_SIZE_FACTOR );
+        }
+        return size;
+    }
+
+    /**
+     * Whether this Builder has been built, or restored from a snapshot. This does not acquire the Builder's lock; a
+     * Builder becomes built once the KieModule of a full build is available, before the full build has completed.
+     * @return
+     */
+    public boolean isBuilt() {
+        return compiledState.isBuilt();
     }
 
     private void visitPaths( final DirectoryStream<org.uberfire.java.nio.file.Path> directoryStream ) {
@@ -576,10 +1324,8 @@ public class Builder {
 
                     //Add new resource
                     final String destinationPath = path.toUri().toString().substring( projectPrefix.length() + 1 );
-                    final InputStream is = ioService.newInputStream( path );
-                    final BufferedInputStream bis = new BufferedInputStream( is );
-                    kieFileSystem.write( destinationPath,
-                                         KieServices.Factory.get().getResources().newInputStreamResource( bis ) );
+                    writeResource( destinationPath,
+                                   readContent( path ) );
                     handles.put( destinationPath,
                                  Paths.convert( path ) );
 
@@ -590,6 +1336,550 @@ public class Builder {
         }
     }
 
+    //Directory listings and resource reads are performed by the ExecutorService. The calling thread only coordinates
+    //the walk (it never blocks a pooled thread waiting on another) and flushes the staged resources into the KieFileSystem
+    private void visitPaths( final Path root,
+                             final ExecutorService loadingExecutor ) {
+        final CompletionService<DirectoryListing> listings = new ExecutorCompletionService<DirectoryListing>( loadingExecutor );
+        final List<Future<StagedResource>> stagedResources = new ArrayList<Future<StagedResource>>();
+        try {
+            listings.submit( makeDirectoryListingTask( root ) );
+            int pendingListings = 1;
+            while ( pendingListings > 0 ) {
+                final DirectoryListing listing = listings.take().get();
+                pendingListings--;
+                for ( final Path directory : listing.getDirectories() ) {
+                    listings.submit( makeDirectoryListingTask( directory ) );
+                    pendingListings++;
+                }
+                for ( final Path file : listing.getFiles() ) {
+                    stagedResources.add( loadingExecutor.submit( makeStagingTask( file ) ) );
+                }
+            }
+
+            for ( Future<StagedResource> stagedResource : stagedResources ) {
+                flushStagedResource( stagedResource.get() );
+            }
+
+        } catch ( InterruptedException e ) {
+            cancel( stagedResources );
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted whilst loading resources for " + projectPrefix,
+                                             e );
+        } catch ( ExecutionException e ) {
+            cancel( stagedResources );
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            } else if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException( cause );
+        }
+    }
+
+    private Callable<DirectoryListing> makeDirectoryListingTask( final Path directory ) {
+        return new Callable<DirectoryListing>() {
+            @Override
+            public DirectoryListing call() throws Exception {
+                final DirectoryListing listing = new DirectoryListing();
+                for ( final Path path : Files.newDirectoryStream( directory ) ) {
+                    if ( Files.isDirectory( path ) ) {
+                        listing.getDirectories().add( path );
+                    } else if ( !dotFileFilter.accept( path ) ) {
+                        //Don't process dotFiles
+                        listing.getFiles().add( path );
+                    }
+                }
+                return listing;
+            }
+        };
+    }
+
+    private Callable<StagedResource> makeStagingTask( final Path path ) {
+        return new Callable<StagedResource>() {
+            @Override
+            public StagedResource call() throws Exception {
+                final String destinationPath = path.toUri().toString().substring( projectPrefix.length() + 1 );
+                final String fullyQualifiedClassName = javaResourceFilter.accept( path ) ? getFullyQualifiedClassName( path ) : null;
+                final byte[] content = readContent( path );
+                return new StagedResource( path,
+                                           destinationPath,
+                                           content,
+                                           ContentFingerprints.digest( content ),
+                                           getBuildValidationHelper( path ),
+                                           fullyQualifiedClassName );
+            }
+        };
+    }
+
+    private void flushStagedResource( final StagedResource stagedResource ) {
+        //Resource Type might require "external" validation (i.e. it's not covered by Kie)
+        if ( stagedResource.getValidator() != null ) {
+            nonKieResourceValidationHelpers.put( stagedResource.getPath(),
+                                                 stagedResource.getValidator() );
+        }
+
+        //Add new resource
+        writeResource( stagedResource.getDestinationPath(),
+                       stagedResource.getContent(),
+                       stagedResource.getDigest() );
+        handles.put( stagedResource.getDestinationPath(),
+                     Paths.convert( stagedResource.getPath() ) );
+
+        //Java classes are handled by KIE so we can safely post-process them here
+        if ( stagedResource.getFullyQualifiedClassName() != null ) {
+            javaResources.add( stagedResource.getFullyQualifiedClassName() );
+        }
+    }
+
+    private byte[] readContent( final Path path ) {
+        final InputStream is = new BufferedInputStream( ioService.newInputStream( path ) );
+        try {
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[ 4096 ];
+            int read;
+            while ( ( read = is.read( buffer ) ) != -1 ) {
+                os.write( buffer,
+                          0,
+                          read );
+            }
+            return os.toByteArray();
+        } catch ( IOException e ) {
+            throw new org.uberfire.java.nio.IOException( e.getMessage() );
+        } finally {
+            try {
+                is.close();
+            } catch ( IOException e ) {
+                logger.warn( e.getMessage() );
+            }
+        }
+    }
+
+    private void writeResource( final String destinationPath,
+                                final byte[] content ) {
+        writeResource( destinationPath,
+                       content,
+                       ContentFingerprints.digest( content ) );
+    }
+
+    //Resources are always written as byte arrays so the size and digest of the KieFileSystem's content are known
+    private void writeResource( final String destinationPath,
+                                final byte[] content,
+                                final byte[] digest ) {
+        kieFileSystem.write( destinationPath,
+                             content );
+        changedSymbols.addAll( dependencyGraph.update( destinationPath,
+                                                       content ) );
+        dependencyGraphSize = dependencyGraph.getEstimatedSize();
+        final ResourceSummary previous = resourceSummaries.put( destinationPath,
+                                                                new ResourceSummary( content.length,
+                                                                                     digest ) );
+        resourceCount = resourceSummaries.size();
+        resourceBytes += content.length - ( previous == null ? 0 : previous.getSize() );
+        contentFingerprint = null;
+    }
+
+    private void removeResource( final String destinationPath ) {
+        kieFileSystem.delete( destinationPath );
+        changedSymbols.addAll( dependencyGraph.remove( destinationPath ) );
+        dependencyGraphSize = dependencyGraph.getEstimatedSize();
+        final ResourceSummary previous = resourceSummaries.remove( destinationPath );
+        if ( previous != null ) {
+            resourceCount = resourceSummaries.size();
+            resourceBytes -= previous.getSize();
+            contentFingerprint = null;
+        }
+    }
+
+    /**
+     * Return a fingerprint of the content from which this Builder builds. Builders loaded from identical
+     * Project content have the same fingerprint.
+     * @return
+     */
+    public String getContentFingerprint() {
+        synchronized ( kieFileSystem ) {
+            if ( contentFingerprint == null ) {
+                final SortedMap<String, byte[]> digests = new TreeMap<String, byte[]>();
+                for ( Map.Entry<String, ResourceSummary> e : resourceSummaries.entrySet() ) {
+                    digests.put( e.getKey(),
+                                 e.getValue().getDigest() );
+                }
+                contentFingerprint = ContentFingerprints.combine( digests );
+            }
+            return contentFingerprint;
+        }
+    }
+
+    /**
+     * Whether the results of the last full build may be reused, i.e. there have been no incremental changes since.
+     * This is cheap to check and does not read the Project's content.
+     * @return
+     */
+    public boolean hasBuildResults() {
+        synchronized ( kieFileSystem ) {
+            return buildResults != null && isBuilt() && getContentFingerprint().equals( buildResultsFingerprint );
+        }
+    }
+
+    /**
+     * Return the results of the last full build if the Project's content, identified by its fingerprint, and the
+     * external dependencies providing its classes are unchanged since. The Builder's own content must also be
+     * unchanged, i.e. there have been no incremental changes since the full build. Results restored from a
+     * snapshot are not returned as the dependencies they were built with are unknown.
+     * @param contentFingerprint Fingerprint of the Project's current content
+     * @return The results or null if the content or dependencies have changed or the Builder has not been built
+     */
+    public BuildResults getBuildResults( final String contentFingerprint ) {
+        checkNotNull( "contentFingerprint",
+                      contentFingerprint );
+        synchronized ( kieFileSystem ) {
+            if ( !contentFingerprint.equals( getContentFingerprint() ) ) {
+                return null;
+            }
+            if ( !hasBuildResults() || buildResultsDependencies == null ) {
+                return null;
+            }
+            //Dependencies re-deployed since the build, e.g. SNAPSHOTs, have different stamps
+            final SortedMap<String, URL> dependencies = DependencySignatures.restamp( buildResultsDependencies.values() );
+            if ( dependencies == null || !dependencies.keySet().equals( buildResultsDependencies.keySet() ) ) {
+                return null;
+            }
+            return buildResults;
+        }
+    }
+
+    /**
+     * Create a snapshot of the compiled state of this Builder. Only Builders that have been built, rather than
+     * restored, without errors or messages from external validation can be snapshot. The results of the last full build are included if there have been no incremental
+     * changes since.
+     * @return The snapshot or null if the Builder has not been built or the build had errors
+     */
+    public BuilderSnapshot createSnapshot() {
+        synchronized ( kieFileSystem ) {
+            if ( kieBuilder == null || kieBuilder.getResults().hasMessages( Message.Level.ERROR ) ) {
+                return null;
+            }
+            //Messages of externally validated resources are not snapshot; a restored Builder could not remove them
+            for ( List<ValidationMessage> messages : nonKieResourceValidationHelperMessages.values() ) {
+                if ( !( messages == null || messages.isEmpty() ) ) {
+                    return null;
+                }
+            }
+            final InternalKieModule kieModule = (InternalKieModule) kieBuilder.getKieModule();
+            final String fingerprint = getContentFingerprint();
+            List<BuilderSnapshot.SnapshotMessage> buildMessages = null;
+            if ( buildResults != null && fingerprint.equals( buildResultsFingerprint ) ) {
+                buildMessages = new ArrayList<BuilderSnapshot.SnapshotMessage>();
+                for ( BuildMessage message : buildResults.getMessages() ) {
+                    buildMessages.add( new BuilderSnapshot.SnapshotMessage( message.getId(),
+                                                                            message.getLevel().name(),
+                                                                            message.getPath() == null ? null : message.getPath().toURI(),
+                                                                            message.getLine(),
+                                                                            message.getColumn(),
+                                                                            message.getText() ) );
+                }
+            }
+            return new BuilderSnapshot( fingerprint,
+                                        kieModule.getBytes(),
+                                        buildMessages );
+        }
+    }
+
+    /**
+     * Restore the compiled KieModule of this Builder from a snapshot, in lieu of compiling, if the snapshot was
+     * created from identical Project content. The Builder must already have loaded the Project's resources, which
+     * are needed to fingerprint its content; only compilation is saved. A restored Builder provides its KieModule
+     * and KieContainer without compiling and is considered built. The KieFileSystem is compiled, once, before the
+     * first incremental operation. If the snapshot contains the results of the build that produced it a full build
+     * returns those without compiling.
+     * @param snapshot
+     * @return true if the snapshot was restored
+     */
+    public boolean restore( final BuilderSnapshot snapshot ) {
+        checkNotNull( "snapshot",
+                      snapshot );
+        synchronized ( kieFileSystem ) {
+            if ( isBuilt() || !snapshot.getContentFingerprint().equals( getContentFingerprint() ) ) {
+                return false;
+            }
+            restoredKieModule = kieServices.getRepository().addKieModule( kieServices.getResources().newByteArrayResource( snapshot.getKieModule() ) );
+            publish();
+            restoredBuildResults = null;
+            if ( snapshot.hasBuildMessages() ) {
+                restoredBuildResults = new BuildResults( gav );
+                for ( BuilderSnapshot.SnapshotMessage message : snapshot.getBuildMessages() ) {
+                    final BuildMessage m = new BuildMessage();
+                    m.setId( message.getId() );
+                    m.setLevel( BuildMessage.Level.valueOf( message.getLevel() ) );
+                    if ( message.getUri() != null ) {
+                        m.setPath( Paths.convert( ioService.get( URI.create( message.getUri() ) ) ) );
+                    }
+                    m.setLine( message.getLine() );
+                    m.setColumn( message.getColumn() );
+                    m.setText( message.getText() );
+                    restoredBuildResults.addBuildMessage( m );
+                }
+            }
+            return true;
+        }
+    }
+
+    public boolean isRestored() {
+        return compiledState.isRestored();
+    }
+
+    private void cancel( final List<Future<StagedResource>> stagedResources ) {
+        for ( Future<StagedResource> stagedResource : stagedResources ) {
+            stagedResource.cancel( true );
+        }
+    }
+
+    //Compiled state of a Builder, read without acquiring the Builder's lock. This is not a stable snapshot: it refers
+    //to the live KieBuilder, whose KieModule is updated in place by incremental builds, so readers can observe an
+    //incremental build in progress. It does not capture message handles or the Project's class names, which are only
+    //read by writers. A new CompiledState is published following each build, and incremental operation, so that
+    //readers see whether a KieContainer can be created and do not use one created before the change. The KieContainer,
+    //created on demand, is guarded by the CompiledState's own monitor.
+    private static class CompiledState {
+
+        private static final CompiledState NONE = new CompiledState( null,
+                                                                     null,
+                                                                     false );
+
+        private final KieBuilder kieBuilder;
+        private final KieModule restoredKieModule;
+        private final boolean isKieContainerAvailable;
+        private volatile KieContainer kieContainer;
+
+        private CompiledState( final KieBuilder kieBuilder,
+                               final KieModule restoredKieModule,
+                               final boolean isKieContainerAvailable ) {
+            this.kieBuilder = kieBuilder;
+            this.restoredKieModule = restoredKieModule;
+            this.isKieContainerAvailable = isKieContainerAvailable;
+        }
+
+        //Restored state is considered built; a KieBuilder is created before the first incremental operation
+        boolean isBuilt() {
+            return kieBuilder != null || restoredKieModule != null;
+        }
+
+        boolean isRestored() {
+            return kieBuilder == null && restoredKieModule != null;
+        }
+
+        KieModule getKieModule() {
+            if ( isRestored() ) {
+                return restoredKieModule;
+            }
+            return kieBuilder.getKieModule();
+        }
+
+        KieModule getKieModuleIgnoringErrors() {
+            if ( isRestored() ) {
+                return restoredKieModule;
+            }
+            return ( (InternalKieBuilder) kieBuilder ).getKieModuleIgnoringErrors();
+        }
+
+        //It's impossible to retrieve a KieContainer if the KieModule contains errors
+        synchronized KieContainer getKieContainer( final KieServices kieServices ) {
+            if ( kieContainer == null && isKieContainerAvailable ) {
+                kieContainer = kieServices.newKieContainer( getKieModule().getReleaseId() );
+            }
+            return kieContainer;
+        }
+
+        boolean hasKieContainer() {
+            return kieContainer != null;
+        }
+
+        //The released KieContainer is disposed, as are any KieSessions created from it
+        synchronized boolean releaseKieContainer() {
+            final KieContainer releasedKieContainer = kieContainer;
+            if ( releasedKieContainer == null ) {
+                return false;
+            }
+            kieContainer = null;
+            releasedKieContainer.dispose();
+            return true;
+        }
+
+    }
+
+    private static class DirectoryListing {
+
+        private final List<Path> directories = new ArrayList<Path>();
+        private final List<Path> files = new ArrayList<Path>();
+
+        List<Path> getDirectories() {
+            return directories;
+        }
+
+        List<Path> getFiles() {
+            return files;
+        }
+
+    }
+
+    //Classes of a package provided by external dependencies, and messages for those that could not be loaded
+    private static class PackageClasses {
+
+        private final Map<String, Class<?>> externalClasses = new LinkedHashMap<String, Class<?>>();
+        private final List<BuildMessage> messages = new ArrayList<BuildMessage>();
+
+        Map<String, Class<?>> getExternalClasses() {
+            return externalClasses;
+        }
+
+        List<BuildMessage> getMessages() {
+            return messages;
+        }
+
+    }
+
+    //Validation of a resource by a BuildValidationHelper
+    private static class Validation {
+
+        private final Path path;
+        private final Future<List<ValidationMessage>> messages;
+
+        private Validation( final Path path,
+                            final Future<List<ValidationMessage>> messages ) {
+            this.path = path;
+            this.messages = messages;
+        }
+
+    }
+
+    //A resource read from the Project that has not yet been written to the (non thread-safe) KieFileSystem
+    private static class StagedResource {
+
+        private final Path path;
+        private final String destinationPath;
+        private final byte[] content;
+        private final byte[] digest;
+        private final BuildValidationHelper validator;
+        private final String fullyQualifiedClassName;
+
+        StagedResource( final Path path,
+                        final String destinationPath,
+                        final byte[] content,
+                        final byte[] digest,
+                        final BuildValidationHelper validator,
+                        final String fullyQualifiedClassName ) {
+            this.path = path;
+            this.destinationPath = destinationPath;
+            this.content = content;
+            this.digest = digest;
+            this.validator = validator;
+            this.fullyQualifiedClassName = fullyQualifiedClassName;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        String getDestinationPath() {
+            return destinationPath;
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+
+        byte[] getDigest() {
+            return digest;
+        }
+
+        BuildValidationHelper getValidator() {
+            return validator;
+        }
+
+        String getFullyQualifiedClassName() {
+            return fullyQualifiedClassName;
+        }
+
+    }
+
+    private static class ResourceSummary {
+
+        private final int size;
+        private final byte[] digest;
+
+        ResourceSummary( final int size,
+                         final byte[] digest ) {
+            this.size = size;
+            this.digest = digest;
+        }
+
+        int getSize() {
+            return size;
+        }
+
+        byte[] getDigest() {
+            return digest;
+        }
+
+    }
+
+    //Compile the whole KieFileSystem. Must be called whilst holding the lock and a permit from the CompilationThrottle.
+    private Results compileAll() {
+        changedSymbols.clear();
+        kieErrors.clear();
+        isKieContainerAvailable = false;
+        final Results results = kieBuilder.buildAll().getResults();
+        updateKieErrors( results.getMessages(),
+                         Collections.<Message>emptyList() );
+        return results;
+    }
+
+    //Incrementally compile files of the KieFileSystem, and those depending upon them. Must be called whilst holding
+    //the lock and a permit from the CompilationThrottle.
+    private IncrementalResults compile( final String... kieBuilderPaths ) {
+        final String[] paths = addDependents( kieBuilderPaths );
+        isKieContainerAvailable = false;
+        final IncrementalResults results = ( (InternalKieBuilder) kieBuilder ).createFileSet( paths ).build();
+        updateKieErrors( results.getAddedMessages(),
+                         results.getRemovedMessages() );
+        return results;
+    }
+
+    //It's impossible to retrieve a KieContainer if the KieModule contains errors. Incremental builds report the
+    //errors added and removed, so those outstanding are tracked. Must be called whilst holding the lock.
+    private void updateKieErrors( final Collection<Message> addedMessages,
+                                  final Collection<Message> removedMessages ) {
+        for ( Message message : removedMessages ) {
+            if ( message.getLevel() == Message.Level.ERROR ) {
+                kieErrors.remove( getKieErrorKey( message ) );
+            }
+        }
+        for ( Message message : addedMessages ) {
+            if ( message.getLevel() == Message.Level.ERROR ) {
+                kieErrors.add( getKieErrorKey( message ) );
+            }
+        }
+        isKieContainerAvailable = kieErrors.isEmpty();
+    }
+
+    private String getKieErrorKey( final Message message ) {
+        return message.getPath() + ":" + message.getLine() + ":" + message.getColumn() + ":" + message.getText();
+    }
+
+    //Add the resources depending upon the definitions changed since the last compilation. Must be called whilst holding the lock.
+    private String[] addDependents( final String... kieBuilderPaths ) {
+        final Set<String> dependents = dependencyGraph.getDependents( changedSymbols );
+        changedSymbols.clear();
+        final Set<String> paths = new LinkedHashSet<String>( Arrays.asList( kieBuilderPaths ) );
+        final int changedPaths = paths.size();
+        paths.addAll( dependents );
+        if ( paths.size() > changedPaths ) {
+            logger.debug( "Incremental build of " + changedPaths + " changed resource(s) includes " + ( paths.size() - changedPaths ) + " dependent resource(s)." );
+        }
+        return paths.toArray( new String[ paths.size() ] );
+    }
+
     private BuildMessage convertMessage( final Message message ) {
         final BuildMessage m = new BuildMessage();
         switch ( message.getLevel() ) {
@@ -670,19 +1960,23 @@ public class Builder {
         }
     }
 
+    //Derived from the path alone, rather than ProjectService.resolvePackage(..), to avoid I/O for each Java file
     private String getFullyQualifiedClassName( final Path path ) {
-        final Package pkg = projectService.resolvePackage( Paths.convert( path ) );
-        final String packageName = pkg.getPackageName();
-        if ( packageName == null ) {
-            return null;
-        }
-        final String className = path.getFileName().toString().replace( ".java",
-                                                                        "" );
-        return ( packageName.equals( "" ) ? className : packageName + "." + className );
+        return projectLayout.getFullyQualifiedClassName( path );
     }
 
     public TypeSource getClassSource( final KieModuleMetaData metaData,
                                       final Class<?> clazz ) {
+        synchronized ( kieFileSystem ) {
+            return getClassSource( metaData,
+                                   clazz,
+                                   javaResources );
+        }
+    }
+
+    private TypeSource getClassSource( final KieModuleMetaData metaData,
+                                       final Class<?> clazz,
+                                       final Set<String> projectClasses ) {
         //Was the Type declared in DRL
         if ( metaData.getTypeMetaInfo( clazz ).isDeclaredType() ) {
             return TypeSource.DECLARED;
@@ -695,7 +1989,7 @@ public class Builder {
             fullyQualifiedClassName = fullyQualifiedClassName.substring( 0,
                                                                          innerClassIdentifierIndex );
         }
-        if ( javaResources.contains( fullyQualifiedClassName ) ) {
+        if ( projectClasses.contains( fullyQualifiedClassName ) ) {
             return TypeSource.JAVA_PROJECT;
         }
         return TypeSource.JAVA_DEPENDENCY;
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+/**
+ * Snapshot of the statistics of a LRUBuilderCache
+ */
+public class BuilderCacheStatistics {
+
+    private final long hitCount;
+    private final long referenceHitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long containerReleaseCount;
+    private final int entryCount;
+    private final long totalWeight;
+
+    public BuilderCacheStatistics( final long hitCount,
+                                   final long referenceHitCount,
+                                   final long missCount,
+                                   final long evictionCount,
+                                   final long containerReleaseCount,
+                                   final int entryCount,
+                                   final long totalWeight ) {
+        this.hitCount = hitCount;
+        this.referenceHitCount = referenceHitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.containerReleaseCount = containerReleaseCount;
+        this.entryCount = entryCount;
+        this.totalWeight = totalWeight;
+    }
+
+    /**
+     * Number of requests served by a cached Builder
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Number of requests served by an evicted Builder that had not yet been reclaimed by the garbage collector
+     */
+    public long getReferenceHitCount() {
+        return referenceHitCount;
+    }
+
+    /**
+     * Number of requests for which no Builder was available
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Number of KieContainers released from cached Builders to reduce the cache's size
+     */
+    public long getContainerReleaseCount() {
+        return containerReleaseCount;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Total estimated size, in bytes, of the cached Builders
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "BuilderCacheStatistics{" +
+                "hitCount=" + hitCount +
+                ", referenceHitCount=" + referenceHitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", containerReleaseCount=" + containerReleaseCount +
+                ", entryCount=" + entryCount +
+                ", totalWeight=" + totalWeight +
+                '}';
+    }
+
+}
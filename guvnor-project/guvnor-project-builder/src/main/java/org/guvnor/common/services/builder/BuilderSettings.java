@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * Collaborators, beyond those of the Project itself, used by a Builder. Builders constructed by LRUBuilderCache share
+ * the application's collaborators; unless set each Builder has its own and loads its resources serially.
+ */
+public final class BuilderSettings {
+
+    private ExecutorService loadingExecutor;
+    private ExternalClassVerificationCache verificationCache = new ExternalClassVerificationCache();
+    private CompilationThrottle compilationThrottle = new CompilationThrottle();
+    private BuildMetrics buildMetrics = new BuildMetrics();
+
+    private BuilderSettings() {
+
+    }
+
+    public static BuilderSettings newSettings() {
+        return new BuilderSettings();
+    }
+
+    /**
+     * @param loadingExecutor ExecutorService used to load the Project's resources, validate non-KIE resources and verify external classes in parallel. If null all are performed serially.
+     */
+    public BuilderSettings withLoadingExecutor( final ExecutorService loadingExecutor ) {
+        this.loadingExecutor = loadingExecutor;
+        return this;
+    }
+
+    /**
+     * @param verificationCache Cache of the verification of classes provided by external dependencies, shared between Builders.
+     */
+    public BuilderSettings withVerificationCache( final ExternalClassVerificationCache verificationCache ) {
+        this.verificationCache = checkNotNull( "verificationCache",
+                                               verificationCache );
+        return this;
+    }
+
+    /**
+     * @param compilationThrottle Bound on the number of compilations running concurrently, shared between Builders.
+     */
+    public BuilderSettings withCompilationThrottle( final CompilationThrottle compilationThrottle ) {
+        this.compilationThrottle = checkNotNull( "compilationThrottle",
+                                                 compilationThrottle );
+        return this;
+    }
+
+    /**
+     * @param buildMetrics Registry of the timings of each phase of builds, shared between Builders.
+     */
+    public BuilderSettings withBuildMetrics( final BuildMetrics buildMetrics ) {
+        this.buildMetrics = checkNotNull( "buildMetrics",
+                                          buildMetrics );
+        return this;
+    }
+
+    public ExecutorService getLoadingExecutor() {
+        return loadingExecutor;
+    }
+
+    public ExternalClassVerificationCache getVerificationCache() {
+        return verificationCache;
+    }
+
+    public CompilationThrottle getCompilationThrottle() {
+        return compilationThrottle;
+    }
+
+    public BuildMetrics getBuildMetrics() {
+        return buildMetrics;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * The compiled state of a Builder, for the Project content identified by a fingerprint, and optionally the
+ * results of the full build that produced it
+ */
+public class BuilderSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final String contentFingerprint;
+    private final byte[] kieModule;
+    private final ArrayList<SnapshotMessage> buildMessages;
+
+    public BuilderSnapshot( final String contentFingerprint,
+                            final byte[] kieModule,
+                            final List<SnapshotMessage> buildMessages ) {
+        this.contentFingerprint = checkNotNull( "contentFingerprint",
+                                                contentFingerprint );
+        this.kieModule = checkNotNull( "kieModule",
+                                       kieModule );
+        this.buildMessages = buildMessages == null ? null : new ArrayList<SnapshotMessage>( buildMessages );
+    }
+
+    public String getContentFingerprint() {
+        return contentFingerprint;
+    }
+
+    /**
+     * The KieModule as a kjar
+     */
+    public byte[] getKieModule() {
+        return kieModule;
+    }
+
+    public boolean hasBuildMessages() {
+        return buildMessages != null;
+    }
+
+    /**
+     * The messages of the full build that produced the KieModule
+     * @return The messages or null if the build's messages are not known
+     */
+    public List<SnapshotMessage> getBuildMessages() {
+        return buildMessages == null ? null : Collections.unmodifiableList( buildMessages );
+    }
+
+    /**
+     * A serializable form of a BuildMessage. Paths are held as URIs.
+     */
+    public static class SnapshotMessage implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long id;
+        private final String level;
+        private final String uri;
+        private final int line;
+        private final int column;
+        private final String text;
+
+        public SnapshotMessage( final long id,
+                        final String level,
+                        final String uri,
+                        final int line,
+                        final int column,
+                        final String text ) {
+            this.id = id;
+            this.level = level;
+            this.uri = uri;
+            this.line = line;
+            this.column = column;
+            this.text = text;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getLevel() {
+            return level;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.guvnor.common.services.project.model.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * Local disk store for snapshots of the compiled KieModules of Builders, written when a Builder is evicted from the
+ * LRUBuilderCache and after each successful full build. Snapshots are written in the background. A Builder
+ * subsequently created for the same Project, including after a restart, loads the Project's resources as usual
+ * and, if their fingerprint matches the snapshot's, restores its KieModule from the snapshot rather than compiling.
+ */
+public class BuilderSpillStore {
+
+    private static final Logger logger = LoggerFactory.getLogger( BuilderSpillStore.class );
+
+    private static final String SUFFIX = ".snapshot";
+
+    private final File directory;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public BuilderSpillStore( final File directory ) {
+        this.directory = checkNotNull( "directory",
+                                       directory );
+        if ( !( directory.isDirectory() || directory.mkdirs() ) ) {
+            throw new IllegalArgumentException( "Unable to create Builder spill directory " + directory.getAbsolutePath() );
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Write a snapshot of a Builder in the background. Builders that have not been built, or whose build had
+     * errors, are not written.
+     * @param project
+     * @param builder
+     */
+    public void spill( final Project project,
+                       final Builder builder ) {
+        checkNotNull( "project",
+                      project );
+        checkNotNull( "builder",
+                      builder );
+        final File file = getFile( project );
+        try {
+            executor.execute( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final BuilderSnapshot snapshot = builder.createSnapshot();
+                        if ( snapshot != null ) {
+                            write( file,
+                                   snapshot );
+                        }
+                    } catch ( Throwable e ) {
+                        logger.warn( "Unable to spill Builder to " + file.getAbsolutePath() + ": " + e.getMessage() );
+                    }
+                }
+            } );
+        } catch ( RejectedExecutionException e ) {
+            logger.debug( "Builder spill store has been shut down." );
+        }
+    }
+
+    /**
+     * Restore a Builder from the snapshot of its Project, if any.
+     * @param project
+     * @param builder A Builder that has not been built
+     * @return true if the Builder was restored
+     */
+    public boolean restore( final Project project,
+                            final Builder builder ) {
+        checkNotNull( "project",
+                      project );
+        checkNotNull( "builder",
+                      builder );
+        final File file = getFile( project );
+        if ( !file.isFile() ) {
+            return false;
+        }
+        try {
+            final boolean isRestored = builder.restore( read( file ) );
+            if ( !isRestored ) {
+                //The Project has changed since the snapshot was written
+                discard( project );
+            }
+            return isRestored;
+        } catch ( Exception e ) {
+            logger.warn( "Unable to restore Builder from " + file.getAbsolutePath() + ": " + e.getMessage() );
+            discard( project );
+            return false;
+        }
+    }
+
+    public void discard( final Project project ) {
+        checkNotNull( "project",
+                      project );
+        final File file = getFile( project );
+        if ( file.exists() && !file.delete() ) {
+            logger.warn( "Unable to delete " + file.getAbsolutePath() );
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private File getFile( final Project project ) {
+        return new File( directory,
+                         ContentFingerprints.digest( project.getRootPath().toURI() ) + SUFFIX );
+    }
+
+    //Snapshots are written to a temporary file and renamed so a partially written snapshot is never read
+    private void write( final File file,
+                        final BuilderSnapshot snapshot ) throws IOException {
+        final File tmp = new File( directory,
+                                   file.getName() + ".tmp" );
+        final ObjectOutputStream os = new ObjectOutputStream( new BufferedOutputStream( new FileOutputStream( tmp ) ) );
+        try {
+            os.writeObject( snapshot );
+        } finally {
+            os.close();
+        }
+        if ( !( tmp.renameTo( file ) || ( file.delete() && tmp.renameTo( file ) ) ) ) {
+            tmp.delete();
+            throw new IOException( "Unable to rename " + tmp.getAbsolutePath() + " to " + file.getAbsolutePath() );
+        }
+    }
+
+    private BuilderSnapshot read( final File file ) throws IOException, ClassNotFoundException {
+        final ObjectInputStream is = new ObjectInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+        try {
+            return (BuilderSnapshot) is.readObject();
+        } finally {
+            is.close();
+        }
+    }
+
+}
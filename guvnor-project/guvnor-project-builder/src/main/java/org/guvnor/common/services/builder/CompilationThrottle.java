@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Bounds the number of compilations, i.e. KieBuilder builds, running concurrently over all Builders. Compilation is
+ * CPU bound whereas the remainder of a build is largely blocked on I/O; bounding compilation allows more builds to
+ * progress concurrently without oversubscribing the available processors. Unbounded by default.
+ */
+@ApplicationScoped
+public class CompilationThrottle {
+
+    //Null when unbounded. Replaced, rather than resized, when the bound changes; Permits release to the Semaphore they acquired
+    private volatile Semaphore semaphore;
+    private volatile int maxConcurrentCompilations;
+
+    public CompilationThrottle() {
+        this( 0 );
+    }
+
+    /**
+     * @param maxConcurrentCompilations Maximum number of compilations running concurrently. Zero or less is unbounded.
+     */
+    public CompilationThrottle( final int maxConcurrentCompilations ) {
+        setMaxConcurrentCompilations( maxConcurrentCompilations );
+    }
+
+    /**
+     * Change the bound. Compilations already running are unaffected.
+     * @param maxConcurrentCompilations Maximum number of compilations running concurrently. Zero or less is unbounded.
+     */
+    public void setMaxConcurrentCompilations( final int maxConcurrentCompilations ) {
+        this.maxConcurrentCompilations = Math.max( 0,
+                                                   maxConcurrentCompilations );
+        this.semaphore = maxConcurrentCompilations > 0 ? new Semaphore( maxConcurrentCompilations,
+                                                                        true ) : null;
+    }
+
+    public int getMaxConcurrentCompilations() {
+        return maxConcurrentCompilations;
+    }
+
+    /**
+     * Wait until a compilation may start. The returned Permit must be released once the compilation completes. Permits
+     * should be acquired before any lock is taken for the compilation, so that threads waiting for a Permit do not
+     * block those with no need of one.
+     * @return
+     */
+    public Permit acquire() {
+        final Semaphore s = semaphore;
+        if ( s == null ) {
+            return Permit.NONE;
+        }
+        s.acquireUninterruptibly();
+        return new Permit( s );
+    }
+
+    public static class Permit {
+
+        private static final Permit NONE = new Permit( null );
+
+        private final Semaphore semaphore;
+        private final AtomicBoolean isReleased = new AtomicBoolean( false );
+
+        private Permit( final Semaphore semaphore ) {
+            this.semaphore = semaphore;
+        }
+
+        /**
+         * Release the Permit. Releasing a Permit more than once has no further effect.
+         */
+        public void release() {
+            if ( semaphore != null && isReleased.compareAndSet( false,
+                                                                true ) ) {
+                semaphore.release();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.guvnor.common.services.backend.file.DotFileFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.file.DirectoryStream;
+import org.uberfire.java.nio.file.Files;
+import org.uberfire.java.nio.file.Path;
+
+/**
+ * Content fingerprints of a Project's resources. Each resource is digested individually and the fingerprint of a
+ * Project is the digest of its resources' paths and digests, in path order. A change to the content, name or
+ * number of resources therefore changes the fingerprint whilst unchanged resources need not be re-read.
+ */
+final class ContentFingerprints {
+
+    private static final Logger logger = LoggerFactory.getLogger( ContentFingerprints.class );
+
+    private static final String ALGORITHM = "SHA-1";
+
+    private static final DirectoryStream.Filter<Path> dotFileFilter = new DotFileFilter();
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private ContentFingerprints() {
+    }
+
+    static byte[] digest( final byte[] content ) {
+        final MessageDigest md = newMessageDigest();
+        return md.digest( content );
+    }
+
+    static String digest( final String value ) {
+        return toHex( digest( toBytes( value ) ) );
+    }
+
+    /**
+     * Fingerprint the content of a Project on disk. The fingerprint equals that of a Builder loaded from the same
+     * content, without the cost of loading the Builder.
+     * @param ioService
+     * @param root The Project's root directory
+     * @return
+     */
+    static String fingerprint( final IOService ioService,
+                               final Path root ) {
+        final SortedMap<String, byte[]> digests = new TreeMap<String, byte[]>();
+        final String prefix = root.toUri().toString();
+        visitPaths( ioService,
+                    Files.newDirectoryStream( root ),
+                    prefix,
+                    digests );
+        return combine( digests );
+    }
+
+    private static void visitPaths( final IOService ioService,
+                                    final DirectoryStream<Path> directoryStream,
+                                    final String prefix,
+                                    final SortedMap<String, byte[]> digests ) {
+        for ( final Path path : directoryStream ) {
+            if ( Files.isDirectory( path ) ) {
+                visitPaths( ioService,
+                            Files.newDirectoryStream( path ),
+                            prefix,
+                            digests );
+            } else if ( !dotFileFilter.accept( path ) ) {
+                //Paths relative to the Project root, as used by Builder for the KieFileSystem
+                digests.put( path.toUri().toString().substring( prefix.length() + 1 ),
+                             digest( ioService,
+                                     path ) );
+            }
+        }
+    }
+
+    private static byte[] digest( final IOService ioService,
+                                  final Path path ) {
+        final MessageDigest md = newMessageDigest();
+        final InputStream is = ioService.newInputStream( path );
+        try {
+            final byte[] buffer = new byte[ 4096 ];
+            int read;
+            while ( ( read = is.read( buffer ) ) != -1 ) {
+                md.update( buffer,
+                           0,
+                           read );
+            }
+            return md.digest();
+        } catch ( IOException e ) {
+            throw new org.uberfire.java.nio.IOException( e.getMessage() );
+        } finally {
+            try {
+                is.close();
+            } catch ( IOException e ) {
+                logger.warn( e.getMessage() );
+            }
+        }
+    }
+
+    static String combine( final SortedMap<String, byte[]> digests ) {
+        final MessageDigest md = newMessageDigest();
+        for ( Map.Entry<String, byte[]> e : digests.entrySet() ) {
+            md.update( toBytes( e.getKey() ) );
+            md.update( (byte) 0 );
+            md.update( e.getValue() );
+        }
+        return toHex( md.digest() );
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance( ALGORITHM );
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static byte[] toBytes( final String value ) {
+        try {
+            return value.getBytes( "UTF-8" );
+        } catch ( UnsupportedEncodingException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static String toHex( final byte[] bytes ) {
+        final char[] chars = new char[ bytes.length * 2 ];
+        for ( int i = 0; i < bytes.length; i++ ) {
+            chars[ i * 2 ] = HEX[ ( bytes[ i ] >> 4 ) & 0xf ];
+            chars[ i * 2 + 1 ] = HEX[ bytes[ i ] & 0xf ];
+        }
+        return new String( chars );
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Identification of the external dependencies that provide a set of classes. Each dependency is identified by a
+ * stamp of its jar's location, size and modification time and a set of dependencies by the digest of their stamps.
+ */
+final class DependencySignatures {
+
+    private DependencySignatures() {
+    }
+
+    /**
+     * Return the locations of the dependencies providing the given classes, keyed and ordered by their stamps.
+     * @param classes
+     * @return The locations or null if the dependencies cannot be identified reliably, e.g. classes are loaded from a directory.
+     */
+    static SortedMap<String, URL> getDependencies( final Collection<Class<?>> classes ) {
+        final SortedMap<String, URL> dependencies = new TreeMap<String, URL>();
+        final Map<CodeSource, String> codeSourceStamps = new HashMap<CodeSource, String>();
+        for ( Class<?> clazz : classes ) {
+            final CodeSource codeSource = getCodeSource( clazz );
+            if ( codeSource == null ) {
+                return null;
+            }
+            if ( codeSourceStamps.containsKey( codeSource ) ) {
+                continue;
+            }
+            final String stamp = getStamp( codeSource.getLocation() );
+            if ( stamp == null ) {
+                return null;
+            }
+            codeSourceStamps.put( codeSource,
+                                  stamp );
+            dependencies.put( stamp,
+                              codeSource.getLocation() );
+        }
+        return dependencies;
+    }
+
+    /**
+     * Stamp dependencies again, e.g. to identify those that have been re-deployed since they were first stamped.
+     * @param locations Locations of the dependencies, as returned by getDependencies(..)
+     * @return The locations keyed and ordered by their current stamps or null if a dependency no longer exists
+     */
+    static SortedMap<String, URL> restamp( final Collection<URL> locations ) {
+        final SortedMap<String, URL> dependencies = new TreeMap<String, URL>();
+        for ( URL location : locations ) {
+            final String stamp = getStamp( location );
+            if ( stamp == null ) {
+                return null;
+            }
+            dependencies.put( stamp,
+                              location );
+        }
+        return dependencies;
+    }
+
+    /**
+     * Return the signature of a set of dependencies
+     * @param dependencies Dependencies as returned by getDependencies(..)
+     * @return
+     */
+    static String getSignature( final SortedMap<String, URL> dependencies ) {
+        final StringBuilder sb = new StringBuilder();
+        for ( String stamp : dependencies.keySet() ) {
+            sb.append( stamp ).append( '\n' );
+        }
+        return ContentFingerprints.digest( sb.toString() );
+    }
+
+    private static CodeSource getCodeSource( final Class<?> clazz ) {
+        try {
+            return clazz.getProtectionDomain().getCodeSource();
+        } catch ( SecurityException se ) {
+            return null;
+        }
+    }
+
+    //Jars are identified by location, size and modification time. Jars re-deployed with the same GAV, e.g.
+    //SNAPSHOTs, are therefore identified as different dependencies. Directories can change without their
+    //modification time changing.
+    private static String getStamp( final URL location ) {
+        if ( location == null ) {
+            return null;
+        }
+        if ( !"file".equals( location.getProtocol() ) ) {
+            return location.toExternalForm();
+        }
+        try {
+            final File file = new File( location.toURI() );
+            if ( !file.isFile() ) {
+                return null;
+            }
+            return location.toExternalForm() + ":" + file.length() + ":" + file.lastModified();
+        } catch ( URISyntaxException e ) {
+            return null;
+        } catch ( IllegalArgumentException e ) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * Outcomes of the verification of classes provided by a Project's external dependencies. Whether a class can be
+ * verified depends on the classes available to it so outcomes are recorded per set of dependencies, identified by
+ * a signature of the dependency jars' locations, sizes and modification times. Builds of Projects with the same,
+ * unchanged, dependencies re-use the outcomes rather than re-verifying each class.
+ */
+public class ExternalClassVerificationCache {
+
+    public enum Outcome {
+        VERIFIED,
+        CLASS_NOT_FOUND,
+        FAILED
+    }
+
+    private static final int DEFAULT_MAX_DEPENDENCY_SETS = 50;
+
+    private final Map<String, Map<String, Outcome>> verifications;
+
+    public ExternalClassVerificationCache() {
+        this( DEFAULT_MAX_DEPENDENCY_SETS );
+    }
+
+    public ExternalClassVerificationCache( final int maxDependencySets ) {
+        this.verifications = Collections.synchronizedMap( new LinkedHashMap<String, Map<String, Outcome>>( maxDependencySets + 1,
+                                                                                                         0.75f,
+                                                                                                         true ) {
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, Map<String, Outcome>> eldest ) {
+                return size() > maxDependencySets;
+            }
+        } );
+    }
+
+    /**
+     * Return the verification outcomes, keyed by fully qualified class name, for the dependencies that provide
+     * the given classes. The returned Map is thread-safe and outcomes added to it are recorded for subsequent builds.
+     * If the dependencies cannot be identified reliably, e.g. classes are loaded from a directory, an empty Map that
+     * is not recorded is returned.
+     * @param classes Classes provided by the Project's external dependencies
+     * @return
+     */
+    public Map<String, Outcome> getVerifications( final Collection<Class<?>> classes ) {
+        checkNotNull( "classes",
+                      classes );
+        final String signature = getDependencySignature( classes );
+        if ( signature == null ) {
+            return new ConcurrentHashMap<String, Outcome>();
+        }
+        synchronized ( verifications ) {
+            Map<String, Outcome> outcomes = verifications.get( signature );
+            if ( outcomes == null ) {
+                outcomes = new ConcurrentHashMap<String, Outcome>();
+                verifications.put( signature,
+                                   outcomes );
+            }
+            return outcomes;
+        }
+    }
+
+    public void clear() {
+        verifications.clear();
+    }
+
+    private String getDependencySignature( final Collection<Class<?>> classes ) {
+        final SortedMap<String, URL> dependencies = DependencySignatures.getDependencies( classes );
+        if ( dependencies == null ) {
+            return null;
+        }
+        return DependencySignatures.getSignature( dependencies );
+    }
+
+}
@@ -15,10 +15,26 @@
  */
 package org.guvnor.common.services.builder;
 
+import java.io.File;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
@@ -27,24 +43,58 @@ import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.guvnor.common.services.backend.cache.LRUCache;
+import org.guvnor.common.services.backend.cache.Cache;
 import org.guvnor.common.services.project.builder.events.InvalidateDMOProjectCacheEvent;
+import org.guvnor.common.services.project.builder.model.BuildResults;
 import org.guvnor.common.services.project.builder.service.BuildValidationHelper;
 import org.guvnor.common.services.project.model.POM;
 import org.guvnor.common.services.project.model.Project;
 import org.guvnor.common.services.project.service.POMService;
 import org.guvnor.common.services.project.service.ProjectService;
 import org.guvnor.common.services.project.events.RuleNameUpdateEvent;
+import org.guvnor.common.services.shared.config.AppConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.uberfire.backend.server.util.Paths;
 import org.uberfire.backend.vfs.Path;
+import org.uberfire.commons.services.cdi.ApplicationStarted;
 import org.uberfire.commons.validation.PortablePreconditions;
 import org.uberfire.io.IOService;
 
 /**
- * A simple LRU cache for Builders
+ * A LRU cache for Builders. Builders are evicted, least recently used first, when either the number of cached
+ * Builders or their total estimated size exceeds the configured limits. When over the size limit the KieContainers
+ * of the least recently used Builders are first released, as they are re-created on demand. Evicted Builders can optionally be retained
+ * by soft or weak references, from which they are restored if not yet reclaimed by the garbage collector.
+ * Snapshots of the compiled KieModules of Builders can be written to disk, when evicted and after each successful
+ * full build, including after a restart. A new Builder for unchanged Project content still loads every resource,
+ * to verify the content is unchanged, but restores its KieModule rather than compiling it. New Builders are made
+ * without holding the cache's lock, so loading one Project does not delay requests for others.
  */
 @ApplicationScoped
-public class LRUBuilderCache extends LRUCache<Project, Builder> {
+public class LRUBuilderCache implements Cache<Project, Builder> {
+
+    private static final Logger logger = LoggerFactory.getLogger( LRUBuilderCache.class );
+
+    //Builders load resources, and verify external classes, with a shared pool if parallel loading is enabled
+    private static final String PARALLEL_LOADING_PROPERTY_NAME = "build.enable-parallel-loading";
+    private static final String PARALLEL_LOADING_THREADS_PROPERTY_NAME = "build.parallel-loading.threads";
+
+    private static final String MAX_ENTRIES_PROPERTY_NAME = "build.cache.max-entries";
+    private static final String MAX_WEIGHT_PROPERTY_NAME = "build.cache.max-weight-mb";
+    private static final String REFERENCE_TIER_PROPERTY_NAME = "build.cache.reference-tier";
+    private static final String SPILL_DIRECTORY_PROPERTY_NAME = "build.cache.spill-directory";
+    private static final String RESULT_CACHE_PROPERTY_NAME = "build.enable-result-cache";
+    private static final String CONTAINER_RELEASE_PROPERTY_NAME = "build.cache.enable-container-release";
+
+    private static final int DEFAULT_MAX_ENTRIES = 20;
+    private static final long MEGABYTE = 1024 * 1024;
+
+    enum ReferenceTier {
+        NONE,
+        SOFT,
+        WEAK
+    }
 
     @Inject
     private POMService pomService;
@@ -63,14 +113,169 @@ public class LRUBuilderCache extends LRUCache<Project, Builder> {
     @Inject
     private Event<RuleNameUpdateEvent> ruleNameUpdateEvent;
 
+    @Inject
+    private AppConfigService appConfigService;
+
+    @Inject
+    private CompilationThrottle compilationThrottle;
+
+    @Inject
+    private BuildMetrics buildMetrics;
+
     private final List<BuildValidationHelper> validators = new ArrayList<BuildValidationHelper>();
 
+    //External dependencies are commonly shared by Projects so verification outcomes are shared by all Builders
+    private final ExternalClassVerificationCache verificationCache = new ExternalClassVerificationCache();
+
+    private boolean isParallelLoadingEnabled = false;
+    private ExecutorService loadingExecutor;
+
+    //Builders with a full build in progress. These may no longer be cached, e.g. if invalidated by a change to pom.xml
+    private final Map<Project, Builder> fullBuilds = new HashMap<Project, Builder>();
+
+    //Full builds in progress that were scheduled internally, by the token identifying each. Only these are cancelled
+    private final Map<Object, CancellableBuild> cancellableBuilds = new HashMap<Object, CancellableBuild>();
+
+    //Access ordered; the least recently used Builder is first
+    private final Map<Project, Builder> cache = new LinkedHashMap<Project, Builder>( DEFAULT_MAX_ENTRIES + 1,
+                                                                                     0.75f,
+                                                                                     true );
+    private final Map<Project, Reference<Builder>> evictedBuilders = new HashMap<Project, Reference<Builder>>();
+
+    //Builders being made, without holding the lock, by Project. Concurrent requests for the Project await the same Builder
+    private final Map<Project, FutureTask<Builder>> loadingBuilders = new HashMap<Project, FutureTask<Builder>>();
+
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxWeight = getDefaultMaxWeight();
+    private ReferenceTier referenceTier = ReferenceTier.NONE;
+    private BuilderSpillStore spillStore;
+    //Reusing results is opt-in; dependencies not on the local file system can change without being detected
+    private boolean isResultCacheEnabled = false;
+    private boolean isContainerReleaseEnabled = true;
+
+    private long hitCount = 0;
+    private long referenceHitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long containerReleaseCount = 0;
+
     @PostConstruct
     public void setupValidators() {
         final Iterator<BuildValidationHelper> itr = anyValidators.iterator();
         while ( itr.hasNext() ) {
             validators.add( itr.next() );
         }
+        configure();
+    }
+
+    public synchronized void configureOnEvent( @Observes ApplicationStarted applicationStartedEvent ) {
+        configure();
+    }
+
+    private void configure() {
+        isParallelLoadingEnabled = isParallelLoadingEnabled();
+        isResultCacheEnabled = BuildPreferences.getBoolean( appConfigService,
+                                                            RESULT_CACHE_PROPERTY_NAME,
+                                                            false );
+        isContainerReleaseEnabled = BuildPreferences.getBoolean( appConfigService,
+                                                                 CONTAINER_RELEASE_PROPERTY_NAME,
+                                                                 true );
+        final long maxWeightMb = BuildPreferences.getLong( appConfigService,
+                                                           MAX_WEIGHT_PROPERTY_NAME,
+                                                           getDefaultMaxWeight() / MEGABYTE );
+        configure( BuildPreferences.getInt( appConfigService,
+                                            MAX_ENTRIES_PROPERTY_NAME,
+                                            DEFAULT_MAX_ENTRIES ),
+                   maxWeightMb * MEGABYTE,
+                   getReferenceTier() );
+        configureSpillStore( BuildPreferences.getString( appConfigService,
+                                                         SPILL_DIRECTORY_PROPERTY_NAME,
+                                                         null ) );
+    }
+
+    //Builders are only snapshot to disk, when evicted or after a full build, if a directory has been configured
+    private void configureSpillStore( final String spillDirectory ) {
+        if ( spillDirectory == null ) {
+            destroySpillStore();
+            return;
+        }
+        final File directory = new File( spillDirectory );
+        if ( spillStore != null && spillStore.getDirectory().equals( directory ) ) {
+            return;
+        }
+        destroySpillStore();
+        try {
+            spillStore = new BuilderSpillStore( directory );
+        } catch ( IllegalArgumentException iae ) {
+            logger.warn( iae.getMessage() + ". Evicted Builders will not be spilled to disk." );
+        }
+    }
+
+    private void destroySpillStore() {
+        if ( spillStore != null ) {
+            spillStore.shutdown();
+            spillStore = null;
+        }
+    }
+
+    synchronized void configure( final int maxEntries,
+                                 final long maxWeight,
+                                 final ReferenceTier referenceTier ) {
+        this.maxEntries = Math.max( 1,
+                                    maxEntries );
+        this.maxWeight = maxWeight;
+        this.referenceTier = referenceTier;
+        if ( referenceTier == ReferenceTier.NONE ) {
+            evictedBuilders.clear();
+        }
+        evict();
+    }
+
+    //By default Builders may occupy up to a quarter of the heap. A limit of zero or less disables weighting
+    private static long getDefaultMaxWeight() {
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    private ReferenceTier getReferenceTier() {
+        final String value = BuildPreferences.getString( appConfigService,
+                                                         REFERENCE_TIER_PROPERTY_NAME,
+                                                         ReferenceTier.NONE.name() );
+        try {
+            return ReferenceTier.valueOf( value.toUpperCase() );
+        } catch ( IllegalArgumentException iae ) {
+            logger.warn( "Preference '" + REFERENCE_TIER_PROPERTY_NAME + "' has an invalid value '" + value + "'. Using default '" + ReferenceTier.NONE + "'." );
+            return ReferenceTier.NONE;
+        }
+    }
+
+    private boolean isParallelLoadingEnabled() {
+        return BuildPreferences.getBoolean( appConfigService,
+                                            PARALLEL_LOADING_PROPERTY_NAME,
+                                            false );
+    }
+
+    @PreDestroy
+    public synchronized void destroyExecutors() {
+        if ( loadingExecutor != null ) {
+            loadingExecutor.shutdownNow();
+            loadingExecutor = null;
+        }
+        destroySpillStore();
+    }
+
+    //The pool is bounded and shared by all Builders; it is only created once parallel loading has been requested
+    private synchronized ExecutorService getLoadingExecutor() {
+        if ( !isParallelLoadingEnabled ) {
+            return null;
+        }
+        if ( loadingExecutor == null ) {
+            final int threads = BuildPreferences.getInt( appConfigService,
+                                                         PARALLEL_LOADING_THREADS_PROPERTY_NAME,
+                                                         Runtime.getRuntime().availableProcessors() );
+            loadingExecutor = Executors.newFixedThreadPool( Math.max( 1,
+                                                                      threads ) );
+        }
+        return loadingExecutor;
     }
 
     public synchronized void invalidateProjectCache( @Observes final InvalidateDMOProjectCacheEvent event ) {
@@ -84,22 +289,471 @@ public class LRUBuilderCache extends LRUCache<Project, Builder> {
         }
     }
 
-    public synchronized Builder assertBuilder( final Project project ) {
-        Builder builder = getEntry( project );
-        if ( builder == null ) {
-            final Path pathToPom = project.getPomXMLPath();
-            final POM pom = pomService.load( pathToPom );
-            builder = new Builder( project,
-                                   Paths.convert( project.getRootPath() ),
-                                   pom.getGav(),
-                                   ioService,
-                                   projectService,
-                                   ruleNameUpdateEvent,
-                                   validators );
+    /**
+     * Return the Builder for a Project, making a new instance if the Project's Builder is not cached. The new Builder
+     * is made, and restored from the Project's snapshot, without holding the cache's lock.
+     * @param project
+     * @return
+     */
+    public Builder assertBuilder( final Project project ) {
+        final FutureTask<Builder> pending;
+        final FutureTask<Builder> loading;
+        synchronized ( this ) {
+            final Builder builder = getEntry( project );
+            if ( builder != null ) {
+                //The Builder's size changes as it is built so re-check the limits on every access
+                evict();
+                return builder;
+            }
+            pending = loadingBuilders.get( project );
+            loading = pending != null ? null : makeLoadingBuilder( project );
+            if ( loading != null ) {
+                loadingBuilders.put( project,
+                                     loading );
+            }
+        }
+        if ( pending != null ) {
+            return await( pending );
+        }
+        Builder builder = null;
+        try {
+            loading.run();
+            builder = await( loading );
+        } finally {
+            publishBuilder( project,
+                            loading,
+                            builder );
+        }
+        return builder;
+    }
+
+    /**
+     * Replace the Builder for a Project with a new instance on which to perform a full build requested by a user.
+     * The build cannot be cancelled. It supersedes, and cancels, the Project's BACKGROUND builds in progress.
+     * @param project
+     * @return
+     */
+    public Builder assertFullBuilder( final Project project ) {
+        return assertFullBuilder( project,
+                                  null );
+    }
+
+    /**
+     * Replace the Builder for a Project with a new instance on which to perform a full build. A build scheduled
+     * internally is identified by a token; it supersedes, and cancels, the Project's builds in progress that were
+     * started with other tokens and can itself be cancelled with cancelFullBuild(token). Builds started without a
+     * token, i.e. those requested by users, are never cancelled. They cancel only the Project's builds whose token
+     * is a BACKGROUND priority BuildTask, such as warm-ups. The new Builder is made without holding the cache's
+     * lock; a build cancelled meanwhile returns a cancelled Builder that is not cached.
+     * @param project
+     * @param token Identifies the build. If null the build cannot be cancelled.
+     * @return
+     */
+    public Builder assertFullBuilder( final Project project,
+                                      final Object token ) {
+        final BuilderSpillStore spillStore;
+        final CancellableBuild build;
+        synchronized ( this ) {
+            cancelFullBuilds( project,
+                              token == null );
+
+            //The Project's snapshot is retained and used in lieu of compiling if the Project's content is unchanged
+            cache.remove( project );
+            evictedBuilders.remove( project );
+            loadingBuilders.remove( project );
+            spillStore = this.spillStore;
+            build = token == null ? null : new CancellableBuild( project );
+            if ( token != null ) {
+                cancellableBuilds.put( token,
+                                       build );
+            }
+        }
+        Builder builder = null;
+        try {
+            builder = makeRestoredBuilder( project,
+                                           spillStore );
+        } finally {
+            publishFullBuilder( project,
+                                token,
+                                build,
+                                builder );
+        }
+        return builder;
+    }
+
+    //Cache a Builder made without holding the lock, unless the Project was invalidated, or a full build of the
+    //Project started, meanwhile. A null Builder could not be made.
+    private synchronized void publishBuilder( final Project project,
+                                              final FutureTask<Builder> loading,
+                                              final Builder builder ) {
+        if ( loadingBuilders.get( project ) != loading ) {
+            return;
+        }
+        loadingBuilders.remove( project );
+        if ( builder != null ) {
             setEntry( project,
                       builder );
         }
+    }
+
+    //Cache a Builder made without holding the lock for a full build. If the build was cancelled meanwhile its Builder
+    //is cancelled too, and not cached. A null Builder could not be made.
+    private synchronized void publishFullBuilder( final Project project,
+                                                  final Object token,
+                                                  final CancellableBuild build,
+                                                  final Builder builder ) {
+        if ( build != null ) {
+            if ( cancellableBuilds.get( token ) != build ) {
+                if ( builder != null ) {
+                    builder.cancel();
+                }
+                return;
+            }
+            if ( builder == null ) {
+                cancellableBuilds.remove( token );
+                return;
+            }
+            build.builder = builder;
+        }
+        if ( builder == null ) {
+            return;
+        }
+        fullBuilds.put( project,
+                        builder );
+        setEntry( project,
+                  builder );
+    }
+
+    //Must be called whilst holding the lock, so the spill store is that configured when the Builder was requested
+    private FutureTask<Builder> makeLoadingBuilder( final Project project ) {
+        final BuilderSpillStore spillStore = this.spillStore;
+        return new FutureTask<Builder>( new Callable<Builder>() {
+            @Override
+            public Builder call() throws Exception {
+                return makeRestoredBuilder( project,
+                                            spillStore );
+            }
+        } );
+    }
+
+    private Builder makeRestoredBuilder( final Project project,
+                                         final BuilderSpillStore spillStore ) {
+        final Builder builder = makeBuilder( project );
+        if ( spillStore != null ) {
+            spillStore.restore( project,
+                                builder );
+        }
         return builder;
     }
 
+    private Builder await( final FutureTask<Builder> loading ) {
+        try {
+            return loading.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted whilst waiting for a Builder",
+                                             e );
+        } catch ( ExecutionException e ) {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            } else if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException( cause );
+        }
+    }
+
+    /**
+     * Return the results of the last full build of a Project if the Project's content, and the external dependencies
+     * providing its classes, are unchanged since. Results are only reused if enabled by build.enable-result-cache.
+     * The content is only fingerprinted from disk, without holding the cache's lock, if the cached Builder has had
+     * no incremental changes since its full build; otherwise it is certain to differ and is not read.
+     * @param project
+     * @return The results or null if the Project must be built
+     */
+    public BuildResults getUnchangedBuildResults( final Project project ) {
+        PortablePreconditions.checkNotNull( "project",
+                                            project );
+        final Builder builder;
+        synchronized ( this ) {
+            if ( !isResultCacheEnabled ) {
+                return null;
+            }
+            builder = cache.get( project );
+        }
+        if ( builder == null || !builder.hasBuildResults() ) {
+            return null;
+        }
+        final String contentFingerprint = ContentFingerprints.fingerprint( ioService,
+                                                                          Paths.convert( project.getRootPath() ) );
+        final BuildResults results = builder.getBuildResults( contentFingerprint );
+        if ( results != null ) {
+            logger.debug( "Project content unchanged since last build: " + project.getProjectName() );
+        }
+        return results;
+    }
+
+    Builder makeBuilder( final Project project ) {
+        final Path pathToPom = project.getPomXMLPath();
+        final POM pom = pomService.load( pathToPom );
+        return new Builder( project,
+                            Paths.convert( project.getRootPath() ),
+                            pom.getGav(),
+                            ioService,
+                            projectService,
+                            ruleNameUpdateEvent,
+                            validators,
+                            BuilderSettings.newSettings()
+                                    .withLoadingExecutor( getLoadingExecutor() )
+                                    .withVerificationCache( verificationCache )
+                                    .withCompilationThrottle( compilationThrottle )
+                                    .withBuildMetrics( buildMetrics ) );
+    }
+
+    /**
+     * Record completion of a full build started with assertFullBuilder. A snapshot of a successful build is
+     * written so it can be restored after eviction or a restart.
+     * @param project
+     * @param builder
+     */
+    public synchronized void fullBuildCompleted( final Project project,
+                                                 final Builder builder ) {
+        final Iterator<CancellableBuild> itr = cancellableBuilds.values().iterator();
+        while ( itr.hasNext() ) {
+            if ( itr.next().builder == builder ) {
+                itr.remove();
+            }
+        }
+        if ( fullBuilds.get( project ) == builder ) {
+            fullBuilds.remove( project );
+            if ( spillStore != null && builder.isBuilt() && !builder.isCancelled() ) {
+                spillStore.spill( project,
+                                  builder );
+            }
+        }
+    }
+
+    /**
+     * Cancel the full build started with a token, if still in progress. The cancelled Builder is removed from the
+     * cache; the Project's snapshot, if any, is retained.
+     * @param token
+     */
+    public synchronized void cancelFullBuild( final Object token ) {
+        PortablePreconditions.checkNotNull( "token",
+                                            token );
+        final CancellableBuild build = cancellableBuilds.remove( token );
+        if ( build == null ) {
+            return;
+        }
+        //The Builder may still be being made, in which case it is cancelled when made
+        if ( build.builder == null ) {
+            return;
+        }
+        build.builder.cancel();
+        if ( fullBuilds.get( build.project ) == build.builder ) {
+            fullBuilds.remove( build.project );
+        }
+        if ( cache.get( build.project ) == build.builder ) {
+            cache.remove( build.project );
+            evictedBuilders.remove( build.project );
+        }
+    }
+
+    //Cancel the Project's full builds in progress that were scheduled internally, or only those nobody awaits
+    private void cancelFullBuilds( final Project project,
+                                   final boolean isBackgroundOnly ) {
+        final List<Object> tokens = new ArrayList<Object>();
+        for ( Map.Entry<Object, CancellableBuild> e : cancellableBuilds.entrySet() ) {
+            if ( e.getValue().project.equals( project ) && ( !isBackgroundOnly || isBackground( e.getKey() ) ) ) {
+                tokens.add( e.getKey() );
+            }
+        }
+        for ( Object token : tokens ) {
+            cancelFullBuild( token );
+        }
+    }
+
+    private static boolean isBackground( final Object token ) {
+        return token instanceof BuildTask && ( (BuildTask) token ).getPriority() == BuildPriority.BACKGROUND;
+    }
+
+    @Override
+    public synchronized Builder getEntry( final Project project ) {
+        PortablePreconditions.checkNotNull( "project",
+                                            project );
+        final Builder builder = cache.get( project );
+        if ( builder != null ) {
+            hitCount++;
+            return builder;
+        }
+
+        //Restore an evicted Builder if it has not yet been reclaimed
+        final Reference<Builder> reference = evictedBuilders.remove( project );
+        final Builder evictedBuilder = reference == null ? null : reference.get();
+        if ( evictedBuilder != null ) {
+            referenceHitCount++;
+            cache.put( project,
+                       evictedBuilder );
+        } else {
+            missCount++;
+        }
+        return evictedBuilder;
+    }
+
+    @Override
+    public synchronized void setEntry( final Project project,
+                                       final Builder builder ) {
+        PortablePreconditions.checkNotNull( "project",
+                                            project );
+        PortablePreconditions.checkNotNull( "builder",
+                                            builder );
+        evictedBuilders.remove( project );
+        cache.put( project,
+                   builder );
+        evict();
+    }
+
+    @Override
+    public synchronized void invalidateCache() {
+        cache.clear();
+        evictedBuilders.clear();
+        loadingBuilders.clear();
+    }
+
+    @Override
+    public synchronized void invalidateCache( final Project project ) {
+        PortablePreconditions.checkNotNull( "project",
+                                            project );
+        cache.remove( project );
+        evictedBuilders.remove( project );
+        loadingBuilders.remove( project );
+        if ( spillStore != null ) {
+            spillStore.discard( project );
+        }
+    }
+
+    public synchronized Set<Project> getKeys() {
+        return Collections.unmodifiableSet( new HashSet<Project>( cache.keySet() ) );
+    }
+
+    /**
+     * Return a snapshot of the cache's statistics
+     * @return
+     */
+    public synchronized BuilderCacheStatistics getStatistics() {
+        return new BuilderCacheStatistics( hitCount,
+                                           referenceHitCount,
+                                           missCount,
+                                           evictionCount,
+                                           containerReleaseCount,
+                                           cache.size(),
+                                           getTotalWeight() );
+    }
+
+    /**
+     * Check whether another Builder can be cached without exceeding the cache's limits, and so evicting another
+     * @return
+     */
+    public synchronized boolean hasSpareCapacity() {
+        if ( cache.size() >= maxEntries ) {
+            return false;
+        }
+        return maxWeight <= 0 || getTotalWeight() < maxWeight;
+    }
+
+    private long getTotalWeight() {
+        long weight = 0;
+        for ( Builder builder : cache.values() ) {
+            weight = weight + builder.getEstimatedSize();
+        }
+        return weight;
+    }
+
+    //Evict least recently used Builders until the cache is within its limits. The most recently used Builder and
+    //Builders with a full build in progress are never evicted, so the cache may remain over its limits.
+    private void evict() {
+        long weight = getTotalWeight();
+        if ( isContainerReleaseEnabled && maxWeight > 0 && weight > maxWeight ) {
+            weight = releaseKieContainers( weight );
+        }
+        int entries = cache.size();
+        final Iterator<Map.Entry<Project, Builder>> itr = cache.entrySet().iterator();
+        while ( ( entries > maxEntries || ( maxWeight > 0 && weight > maxWeight ) ) && entries > 1 && itr.hasNext() ) {
+            final Map.Entry<Project, Builder> e = itr.next();
+            if ( !itr.hasNext() ) {
+                break;
+            }
+            if ( fullBuilds.get( e.getKey() ) == e.getValue() ) {
+                continue;
+            }
+            itr.remove();
+            entries--;
+            weight = weight - e.getValue().getEstimatedSize();
+            evictionCount++;
+            retain( e.getKey(),
+                    e.getValue() );
+            if ( spillStore != null ) {
+                spillStore.spill( e.getKey(),
+                                  e.getValue() );
+            }
+            logger.debug( "Builder evicted from cache for Project: " + e.getKey().getProjectName() );
+        }
+        purgeReclaimedBuilders();
+    }
+
+    //Release the KieContainers of least recently used Builders, other than the most recently used, until the cache
+    //is within its size limit. The Builders remain cached and re-create their KieContainers when next requested.
+    private long releaseKieContainers( long weight ) {
+        final Iterator<Map.Entry<Project, Builder>> itr = cache.entrySet().iterator();
+        while ( weight > maxWeight && itr.hasNext() ) {
+            final Map.Entry<Project, Builder> e = itr.next();
+            if ( !itr.hasNext() ) {
+                break;
+            }
+            final long size = e.getValue().getEstimatedSize();
+            if ( e.getValue().releaseKieContainer() ) {
+                weight = weight - size + e.getValue().getEstimatedSize();
+                containerReleaseCount++;
+                logger.debug( "KieContainer released for Project: " + e.getKey().getProjectName() );
+            }
+        }
+        return weight;
+    }
+
+    private void retain( final Project project,
+                         final Builder builder ) {
+        switch ( referenceTier ) {
+            case SOFT:
+                evictedBuilders.put( project,
+                                     new SoftReference<Builder>( builder ) );
+                break;
+            case WEAK:
+                evictedBuilders.put( project,
+                                     new WeakReference<Builder>( builder ) );
+                break;
+        }
+    }
+
+    private void purgeReclaimedBuilders() {
+        final Iterator<Reference<Builder>> itr = evictedBuilders.values().iterator();
+        while ( itr.hasNext() ) {
+            if ( itr.next().get() == null ) {
+                itr.remove();
+            }
+        }
+    }
+
+    private static class CancellableBuild {
+
+        private final Project project;
+        //Null whilst the Builder is being made
+        private Builder builder;
+
+        private CancellableBuild( final Project project ) {
+            this.project = project;
+        }
+
+    }
+
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.workbench.events.ResourceChange;
+import org.uberfire.workbench.events.ResourceChangeType;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * Changes to a Project's resources that have not yet been built. Changes are coalesced per Path: the latest
+ * change wins, except that a resource added and then updated remains an addition and a resource added and
+ * then deleted is forgotten altogether.
+ */
+public class PendingResourceChanges {
+
+    private final Map<Path, ResourceChange> changes = new LinkedHashMap<Path, ResourceChange>();
+
+    public void addChange( final Path resource,
+                           final ResourceChange change ) {
+        checkNotNull( "resource",
+                      resource );
+        checkNotNull( "change",
+                      change );
+        final ResourceChange pending = changes.get( resource );
+        if ( pending != null && pending.getType() == ResourceChangeType.ADD ) {
+            switch ( change.getType() ) {
+                case DELETE:
+                    changes.remove( resource );
+                    return;
+                case UPDATE:
+                    return;
+            }
+        }
+        //Remove first so iteration order reflects the most recent change
+        changes.remove( resource );
+        changes.put( resource,
+                     change );
+    }
+
+    public void addChanges( final Map<Path, Collection<ResourceChange>> batch ) {
+        checkNotNull( "batch",
+                      batch );
+        for ( Map.Entry<Path, Collection<ResourceChange>> e : batch.entrySet() ) {
+            for ( ResourceChange change : e.getValue() ) {
+                addChange( e.getKey(),
+                           change );
+            }
+        }
+    }
+
+    public void addChanges( final PendingResourceChanges pendingChanges ) {
+        checkNotNull( "pendingChanges",
+                      pendingChanges );
+        for ( Map.Entry<Path, ResourceChange> e : pendingChanges.changes.entrySet() ) {
+            addChange( e.getKey(),
+                       e.getValue() );
+        }
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    /**
+     * Return the coalesced changes in the form consumed by Builder.applyBatchResourceChanges
+     * @return
+     */
+    public Map<Path, Collection<ResourceChange>> toBatch() {
+        final Map<Path, Collection<ResourceChange>> batch = new LinkedHashMap<Path, Collection<ResourceChange>>();
+        for ( Map.Entry<Path, ResourceChange> e : changes.entrySet() ) {
+            final Collection<ResourceChange> pathChanges = new ArrayList<ResourceChange>();
+            pathChanges.add( e.getValue() );
+            batch.put( e.getKey(),
+                       pathChanges );
+        }
+        return batch;
+    }
+
+}
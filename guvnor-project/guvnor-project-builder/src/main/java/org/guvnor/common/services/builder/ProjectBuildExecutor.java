@@ -0,0 +1,504 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.guvnor.common.services.project.model.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * Executes BuildTasks serially per Project, multiplexed over a shared ExecutorService. Each Project has its own
+ * queue ("lane") and at most one task per Project is running at any time. A burst of work for one Project therefore
+ * never occupies more than one worker. When a worker becomes available it runs the next task of the lane with the
+ * highest priority, as defined by the BuildPriority of the task at the head of the lane. Tasks are aged whilst
+ * queued so that lower priority work is not starved: each aging interval waited raises a task by one priority class.
+ * The number of queued tasks can be bounded, in which case an OverflowPolicy determines how a task that would exceed
+ * the capacity is handled. A queued task can yield to a later task for its Project, e.g. so background work does not
+ * delay a user's build of the same Project.
+ */
+public class ProjectBuildExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger( ProjectBuildExecutor.class );
+
+    public static final long DEFAULT_AGING_INTERVAL = 5000;
+
+    public enum OverflowPolicy {
+        /**
+         * Replace the Project's queued tasks with a full build of the Project. Tasks that cannot be replaced are dropped.
+         */
+        COALESCE,
+        /**
+         * Run the task on the calling thread. If a task of the Project is queued or running the task is coalesced instead.
+         */
+        CALLER_RUNS,
+        /**
+         * Drop the task, logging a warning
+         */
+        DROP
+    }
+
+    private final ExecutorService executor;
+
+    private final Map<Project, Lane> lanes = new HashMap<Project, Lane>();
+
+    //Lanes with queued tasks and no task running. Each has been matched by a submission to the ExecutorService
+    private final List<Lane> readyLanes = new ArrayList<Lane>();
+
+    private volatile long agingInterval;
+
+    //Zero or less is unbounded
+    private volatile int capacity = 0;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.COALESCE;
+
+    //Number of tasks queued, but not yet running, of all Projects
+    private int queueSize = 0;
+
+    private long queuedTaskCount = 0;
+    private long rejectedTaskCount = 0;
+    private long coalescedTaskCount = 0;
+    private long callerRunTaskCount = 0;
+
+    //Null unless the time tasks wait in the queue is recorded
+    private volatile BuildMetrics buildMetrics;
+
+    public ProjectBuildExecutor( final ExecutorService executor ) {
+        this( executor,
+              DEFAULT_AGING_INTERVAL );
+    }
+
+    /**
+     * @param executor ExecutorService on which tasks are run
+     * @param agingInterval Milliseconds a task waits to be raised by one priority class. Zero or less disables aging.
+     */
+    public ProjectBuildExecutor( final ExecutorService executor,
+                                 final long agingInterval ) {
+        this.executor = checkNotNull( "executor",
+                                      executor );
+        this.agingInterval = agingInterval;
+    }
+
+    public void setAgingInterval( final long agingInterval ) {
+        this.agingInterval = agingInterval;
+    }
+
+    /**
+     * Record the time each task waits in the queue, as BuildPhase.QUEUE_WAIT
+     * @param buildMetrics Registry in which to record the wait or null to not record it
+     */
+    public void setBuildMetrics( final BuildMetrics buildMetrics ) {
+        this.buildMetrics = buildMetrics;
+    }
+
+    /**
+     * Bound the number of queued tasks
+     * @param capacity Maximum number of tasks, of all Projects, queued but not yet running. Zero or less is unbounded.
+     * @param overflowPolicy Handling of tasks that would exceed the capacity
+     */
+    public void setCapacity( final int capacity,
+                             final OverflowPolicy overflowPolicy ) {
+        this.overflowPolicy = checkNotNull( "overflowPolicy",
+                                            overflowPolicy );
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queue a task for execution. If the most recently queued task for the same Project can absorb
+     * the new task it is merged and not queued separately. Otherwise queued tasks superseded by the
+     * new task are dropped and a superseded running task is cancelled.
+     * @param task
+     */
+    public void execute( final BuildTask task ) {
+        checkNotNull( "task",
+                      task );
+        execute( task,
+                 true );
+    }
+
+    private void execute( final BuildTask task,
+                          final boolean isBounded ) {
+        final boolean isReady;
+        final boolean isFull;
+        BuildTask supersededRunningTask = null;
+        final List<BuildTask> yieldedTasks = new ArrayList<BuildTask>();
+        synchronized ( lanes ) {
+            Lane l = lanes.get( task.getProject() );
+            final BuildTask last = l == null ? null : l.queue.peekLast();
+            if ( last != null && last.merge( task ) ) {
+                logger.debug( "Build task merged into queued task for Project: " + task.getProject().getProjectName() );
+                return;
+            }
+            isFull = isBounded && capacity > 0 && queueSize >= capacity;
+            if ( !isFull ) {
+                if ( l == null ) {
+                    l = new Lane( task.getProject() );
+                    lanes.put( task.getProject(),
+                               l );
+                }
+                final Iterator<BuildTask> itr = l.queue.iterator();
+                while ( itr.hasNext() ) {
+                    final BuildTask queued = itr.next();
+                    if ( task.supersedes( queued ) ) {
+                        itr.remove();
+                        queueSize--;
+                        logger.debug( "Queued build task superseded for Project: " + task.getProject().getProjectName() );
+                    } else if ( queued.yieldsTo( task ) ) {
+                        itr.remove();
+                        queueSize--;
+                        yieldedTasks.add( queued );
+                        logger.debug( "Queued build task yielded for Project: " + task.getProject().getProjectName() );
+                    }
+                }
+                if ( l.running != null && task.supersedes( l.running ) ) {
+                    supersededRunningTask = l.running;
+                }
+                task.setQueuedTime( System.currentTimeMillis() );
+                l.queue.addLast( task );
+                queueSize++;
+                queuedTaskCount++;
+                isReady = makeReady( l );
+            } else {
+                isReady = false;
+            }
+        }
+        if ( isFull ) {
+            overflow( task );
+            return;
+        }
+        for ( BuildTask yieldedTask : yieldedTasks ) {
+            yieldedTask.dropped();
+        }
+        if ( supersededRunningTask != null ) {
+            supersededRunningTask.cancel();
+        }
+        if ( isReady ) {
+            schedule();
+        }
+    }
+
+    //Handle a task that would exceed the capacity of the queue
+    private void overflow( final BuildTask task ) {
+        switch ( overflowPolicy ) {
+            case COALESCE:
+                if ( coalesce( task ) ) {
+                    return;
+                }
+                break;
+            case CALLER_RUNS:
+                final Lane lane;
+                synchronized ( lanes ) {
+                    lane = takeIdleLane( task );
+                    if ( lane != null ) {
+                        callerRunTaskCount++;
+                    }
+                }
+                if ( lane != null ) {
+                    runOnCaller( lane,
+                                 task );
+                    return;
+                }
+                //The Project's lane is busy; running the task now would run two tasks of the Project at once
+                if ( coalesce( task ) ) {
+                    return;
+                }
+                break;
+        }
+        synchronized ( lanes ) {
+            rejectedTaskCount++;
+        }
+        logger.warn( "Build queue full. Build task dropped for Project: " + task.getProject().getProjectName() );
+        task.dropped();
+    }
+
+    //Replace the task, and the Project's queued tasks, with a full build of the Project. Returns false if the task cannot be replaced.
+    private boolean coalesce( final BuildTask task ) {
+        final BuildTask fullBuild = task.toFullBuild();
+        if ( fullBuild == null ) {
+            return false;
+        }
+        synchronized ( lanes ) {
+            coalescedTaskCount++;
+        }
+        logger.debug( "Build queue full. Build task coalesced into a full build for Project: " + task.getProject().getProjectName() );
+        //The full build supersedes the Project's queued tasks and absorbs those queued after it
+        execute( fullBuild,
+                 false );
+        return true;
+    }
+
+    //Claim the lane of the task's Project for the calling thread, or return null if the Project has a task queued or
+    //running. Must be called whilst holding the lock.
+    private Lane takeIdleLane( final BuildTask task ) {
+        Lane lane = lanes.get( task.getProject() );
+        if ( lane != null && ( lane.running != null || !lane.queue.isEmpty() ) ) {
+            return null;
+        }
+        if ( lane == null ) {
+            lane = new Lane( task.getProject() );
+            lanes.put( task.getProject(),
+                       lane );
+        }
+        lane.running = task;
+        return lane;
+    }
+
+    //Run a task on the calling thread. Tasks of the Project queued meanwhile wait for it, as they do for a worker.
+    private void runOnCaller( final Lane lane,
+                              final BuildTask task ) {
+        try {
+            task.run();
+        } catch ( Throwable e ) {
+            logger.error( e.getMessage(),
+                          e );
+        } finally {
+            release( lane );
+        }
+    }
+
+    /**
+     * Number of tasks, of all Projects, queued but not yet running
+     * @return
+     */
+    public int getQueueSize() {
+        synchronized ( lanes ) {
+            return queueSize;
+        }
+    }
+
+    /**
+     * Number of tasks accepted into the queue
+     * @return
+     */
+    public long getQueuedTaskCount() {
+        synchronized ( lanes ) {
+            return queuedTaskCount;
+        }
+    }
+
+    /**
+     * Number of tasks dropped as the queue was full
+     * @return
+     */
+    public long getRejectedTaskCount() {
+        synchronized ( lanes ) {
+            return rejectedTaskCount;
+        }
+    }
+
+    /**
+     * Number of tasks replaced by a full build of their Project as the queue was full
+     * @return
+     */
+    public long getCoalescedTaskCount() {
+        synchronized ( lanes ) {
+            return coalescedTaskCount;
+        }
+    }
+
+    /**
+     * Number of tasks run by the calling thread as the queue was full
+     * @return
+     */
+    public long getCallerRunTaskCount() {
+        synchronized ( lanes ) {
+            return callerRunTaskCount;
+        }
+    }
+
+    /**
+     * Return the tasks queued, but not yet running, for a Project
+     * @param project
+     * @return
+     */
+    public List<BuildTask> getQueuedTasks( final Project project ) {
+        synchronized ( lanes ) {
+            final Lane lane = lanes.get( project );
+            if ( lane == null ) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList( new ArrayList<BuildTask>( lane.queue ) );
+        }
+    }
+
+    /**
+     * Return the task currently running for a Project, or null if none
+     * @param project
+     * @return
+     */
+    public BuildTask getRunningTask( final Project project ) {
+        synchronized ( lanes ) {
+            final Lane lane = lanes.get( project );
+            return lane == null ? null : lane.running;
+        }
+    }
+
+    /**
+     * Return the number of tasks, of all Projects, queued but not yet running for a priority class
+     * @param priority
+     * @return
+     */
+    public int getQueueDepth( final BuildPriority priority ) {
+        checkNotNull( "priority",
+                      priority );
+        int depth = 0;
+        synchronized ( lanes ) {
+            for ( Lane lane : lanes.values() ) {
+                for ( BuildTask task : lane.queue ) {
+                    if ( task.getPriority() == priority ) {
+                        depth++;
+                    }
+                }
+            }
+        }
+        return depth;
+    }
+
+    //A lane is ready when it has queued tasks and no task running. Must be called whilst holding the lock.
+    private boolean makeReady( final Lane lane ) {
+        if ( lane.isReady || lane.running != null || lane.queue.isEmpty() ) {
+            return false;
+        }
+        lane.isReady = true;
+        readyLanes.add( lane );
+        return true;
+    }
+
+    //Each ready lane is matched by one submission. The lane run by a submission is chosen when a worker picks it up
+    private void schedule() {
+        try {
+            executor.execute( new Runnable() {
+                @Override
+                public void run() {
+                    runNext();
+                }
+            } );
+        } catch ( RuntimeException e ) {
+            //The most recently readied lane has no matching submission
+            final List<BuildTask> droppedTasks = new ArrayList<BuildTask>();
+            synchronized ( lanes ) {
+                if ( !readyLanes.isEmpty() ) {
+                    final Lane lane = readyLanes.remove( readyLanes.size() - 1 );
+                    lane.isReady = false;
+                    queueSize = queueSize - lane.queue.size();
+                    droppedTasks.addAll( lane.queue );
+                    lane.queue.clear();
+                    lanes.remove( lane.project );
+                }
+            }
+            for ( BuildTask task : droppedTasks ) {
+                task.dropped();
+            }
+            throw e;
+        }
+    }
+
+    //Remove the ready lane of the highest, aged, priority; the earliest queued if more than one. Must be called whilst holding the lock.
+    private Lane takeReadyLane() {
+        final long now = System.currentTimeMillis();
+        final long interval = agingInterval;
+        int bestIndex = -1;
+        long bestRank = 0;
+        long bestQueuedTime = 0;
+        for ( int i = 0; i < readyLanes.size(); i++ ) {
+            final BuildTask head = readyLanes.get( i ).queue.peekFirst();
+            long rank = head.getPriority().ordinal();
+            if ( interval > 0 ) {
+                rank = rank - ( ( now - head.getQueuedTime() ) / interval );
+            }
+            if ( bestIndex < 0 || rank < bestRank || ( rank == bestRank && head.getQueuedTime() < bestQueuedTime ) ) {
+                bestIndex = i;
+                bestRank = rank;
+                bestQueuedTime = head.getQueuedTime();
+            }
+        }
+        if ( bestIndex < 0 ) {
+            return null;
+        }
+        final Lane lane = readyLanes.remove( bestIndex );
+        lane.isReady = false;
+        return lane;
+    }
+
+    //Run a single task and then yield the worker; the lane is made ready again if more work is queued
+    private void runNext() {
+        final Lane lane;
+        final BuildTask task;
+        synchronized ( lanes ) {
+            lane = takeReadyLane();
+            if ( lane == null ) {
+                return;
+            }
+            task = lane.queue.pollFirst();
+            queueSize--;
+            lane.running = task;
+        }
+        final BuildMetrics metrics = buildMetrics;
+        if ( metrics != null ) {
+            metrics.record( task.getProject(),
+                            BuildPhase.QUEUE_WAIT,
+                            TimeUnit.MILLISECONDS.toNanos( System.currentTimeMillis() - task.getQueuedTime() ) );
+        }
+        try {
+            task.run();
+        } catch ( Throwable e ) {
+            logger.error( e.getMessage(),
+                          e );
+        } finally {
+            release( lane );
+        }
+    }
+
+    //A task of the lane has finished; the lane is made ready again if more work is queued
+    private void release( final Lane lane ) {
+        final boolean isReady;
+        synchronized ( lanes ) {
+            lane.running = null;
+            isReady = makeReady( lane );
+            if ( lane.queue.isEmpty() ) {
+                lanes.remove( lane.project );
+            }
+        }
+        if ( isReady ) {
+            schedule();
+        }
+    }
+
+    private static class Lane {
+
+        private final Project project;
+        private final Deque<BuildTask> queue = new ArrayDeque<BuildTask>();
+        private BuildTask running;
+        private boolean isReady = false;
+
+        private Lane( final Project project ) {
+            this.project = project;
+        }
+
+    }
+
+}
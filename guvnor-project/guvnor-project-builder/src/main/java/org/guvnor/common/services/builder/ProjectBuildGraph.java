@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.guvnor.common.services.project.model.Dependency;
+import org.guvnor.common.services.project.model.GAV;
+import org.guvnor.common.services.project.model.POM;
+import org.guvnor.common.services.project.model.Project;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * Dependencies between a set of Projects, derived from the GAVs of their POMs and of the dependencies they declare.
+ * Dependencies on artifacts not produced by a Project of the set are ignored.
+ */
+class ProjectBuildGraph {
+
+    private final List<Project> projects;
+    private final Map<Project, GAV> gavs = new HashMap<Project, GAV>();
+    private final Map<Project, Set<Project>> upstream = new HashMap<Project, Set<Project>>();
+    private final Map<Project, Set<Project>> downstream = new HashMap<Project, Set<Project>>();
+
+    /**
+     * @param poms The POM of each Project, in the order in which Projects are to be considered
+     */
+    ProjectBuildGraph( final Map<Project, POM> poms ) {
+        checkNotNull( "poms",
+                      poms );
+        this.projects = Collections.unmodifiableList( new ArrayList<Project>( poms.keySet() ) );
+
+        final Map<GAV, Project> projectsByGav = new HashMap<GAV, Project>();
+        for ( Map.Entry<Project, POM> e : poms.entrySet() ) {
+            final GAV gav = e.getValue().getGav();
+            gavs.put( e.getKey(),
+                      gav );
+            projectsByGav.put( new GAV( gav.getGroupId(),
+                                        gav.getArtifactId(),
+                                        gav.getVersion() ),
+                               e.getKey() );
+            upstream.put( e.getKey(),
+                          new LinkedHashSet<Project>() );
+            downstream.put( e.getKey(),
+                            new LinkedHashSet<Project>() );
+        }
+        for ( Map.Entry<Project, POM> e : poms.entrySet() ) {
+            for ( Dependency dependency : e.getValue().getDependencies() ) {
+                final Project dependencyProject = projectsByGav.get( new GAV( dependency.getGroupId(),
+                                                                              dependency.getArtifactId(),
+                                                                              dependency.getVersion() ) );
+                if ( dependencyProject != null && !dependencyProject.equals( e.getKey() ) ) {
+                    upstream.get( e.getKey() ).add( dependencyProject );
+                    downstream.get( dependencyProject ).add( e.getKey() );
+                }
+            }
+        }
+    }
+
+    List<Project> getProjects() {
+        return projects;
+    }
+
+    GAV getGav( final Project project ) {
+        return gavs.get( project );
+    }
+
+    /**
+     * Projects of the set upon which a Project depends
+     * @param project
+     * @return
+     */
+    Set<Project> getUpstream( final Project project ) {
+        return Collections.unmodifiableSet( upstream.get( project ) );
+    }
+
+    /**
+     * Projects of the set depending upon a Project
+     * @param project
+     * @return
+     */
+    Set<Project> getDownstream( final Project project ) {
+        return Collections.unmodifiableSet( downstream.get( project ) );
+    }
+
+}
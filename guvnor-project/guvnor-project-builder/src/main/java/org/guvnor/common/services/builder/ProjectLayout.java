@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import org.uberfire.java.nio.file.Path;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * The source roots of a Project, from which the package of a resource is derived from its path alone. This is
+ * equivalent to ProjectService.resolvePackage(..) for resources within the Project but involves no I/O.
+ */
+class ProjectLayout {
+
+    private static final String[] SOURCE_ROOTS = { "src/main/java", "src/main/resources", "src/test/java", "src/test/resources" };
+
+    private static final String JAVA_EXTENSION = ".java";
+
+    private final String[] sourceRootPrefixes = new String[ SOURCE_ROOTS.length ];
+
+    ProjectLayout( final Path moduleDirectory ) {
+        checkNotNull( "moduleDirectory",
+                      moduleDirectory );
+        String projectPrefix = moduleDirectory.toUri().toString();
+        if ( !projectPrefix.endsWith( "/" ) ) {
+            projectPrefix = projectPrefix + "/";
+        }
+        for ( int i = 0; i < SOURCE_ROOTS.length; i++ ) {
+            sourceRootPrefixes[ i ] = projectPrefix + SOURCE_ROOTS[ i ] + "/";
+        }
+    }
+
+    /**
+     * Return the name of the package containing a resource
+     * @param path Path of the resource. The resource need not exist.
+     * @return The package name, empty for the default package, or null if the resource is not within a source root
+     */
+    String getPackageName( final Path path ) {
+        final String uri = path.toUri().toString();
+        for ( String sourceRootPrefix : sourceRootPrefixes ) {
+            if ( uri.startsWith( sourceRootPrefix ) ) {
+                final int lastSeparator = uri.lastIndexOf( '/' );
+                if ( lastSeparator < sourceRootPrefix.length() ) {
+                    return "";
+                }
+                return uri.substring( sourceRootPrefix.length(),
+                                      lastSeparator ).replace( '/',
+                                                               '.' );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the fully qualified name of the class declared by a Java source file
+     * @param path Path of the Java source file. The file need not exist.
+     * @return The fully qualified class name or null if the file is not within a source root
+     */
+    String getFullyQualifiedClassName( final Path path ) {
+        final String packageName = getPackageName( path );
+        if ( packageName == null ) {
+            return null;
+        }
+        String className = path.getFileName().toString();
+        if ( className.endsWith( JAVA_EXTENSION ) ) {
+            className = className.substring( 0,
+                                             className.length() - JAVA_EXTENSION.length() );
+        }
+        return ( packageName.equals( "" ) ? className : packageName + "." + className );
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.guvnor.common.services.project.model.Project;
+import org.guvnor.common.services.shared.config.AppConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.commons.services.cdi.ApplicationStarted;
+
+import static org.uberfire.commons.validation.PortablePreconditions.*;
+
+/**
+ * Records when, and how often, Projects are built at the request of users. Statistics are kept in memory and, if a
+ * file has been configured, are loaded from it at start-up and saved to it at shut-down so they survive restarts.
+ */
+@ApplicationScoped
+public class ProjectUsageStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger( ProjectUsageStatistics.class );
+
+    private static final String USAGE_FILE_PROPERTY_NAME = "build.warm-up.usage-file";
+
+    @Inject
+    private AppConfigService appConfigService;
+
+    //Keyed by the URI of the Project's root
+    private final Map<String, Usage> usages = new HashMap<String, Usage>();
+
+    private File file;
+
+    public synchronized void configureOnEvent( @Observes ApplicationStarted applicationStartedEvent ) {
+        final String fileName = BuildPreferences.getString( appConfigService,
+                                                            USAGE_FILE_PROPERTY_NAME,
+                                                            null );
+        file = fileName == null ? null : new File( fileName );
+        if ( file != null && file.isFile() ) {
+            load( file );
+        }
+    }
+
+    @PreDestroy
+    public synchronized void save() {
+        if ( file != null ) {
+            save( file );
+        }
+    }
+
+    /**
+     * Record a use of a Project
+     * @param project
+     */
+    public void recordUsage( final Project project ) {
+        checkNotNull( "project",
+                      project );
+        final String key = getKey( project );
+        final long now = System.currentTimeMillis();
+        synchronized ( this ) {
+            final Usage usage = usages.get( key );
+            usages.put( key,
+                        new Usage( usage == null ? 1 : usage.count + 1,
+                                   now ) );
+        }
+    }
+
+    /**
+     * Return Projects ordered by their last use, most recent first, and then by their number of uses. Projects that
+     * have not been used follow in their given order.
+     * @param projects
+     * @return
+     */
+    public List<Project> sortByUsage( final Collection<Project> projects ) {
+        checkNotNull( "projects",
+                      projects );
+        final Map<Project, Usage> projectUsages = new HashMap<Project, Usage>();
+        synchronized ( this ) {
+            for ( Project project : projects ) {
+                final Usage usage = usages.get( getKey( project ) );
+                projectUsages.put( project,
+                                   usage == null ? Usage.NONE : usage );
+            }
+        }
+        final List<Project> sorted = new ArrayList<Project>( projects );
+        Collections.sort( sorted,
+                          new Comparator<Project>() {
+                              @Override
+                              public int compare( final Project p1,
+                                                  final Project p2 ) {
+                                  final Usage u1 = projectUsages.get( p1 );
+                                  final Usage u2 = projectUsages.get( p2 );
+                                  if ( u1.lastUsed != u2.lastUsed ) {
+                                      return u1.lastUsed > u2.lastUsed ? -1 : 1;
+                                  }
+                                  return u1.count == u2.count ? 0 : ( u1.count > u2.count ? -1 : 1 );
+                              }
+                          } );
+        return sorted;
+    }
+
+    private String getKey( final Project project ) {
+        return project.getRootPath().toURI();
+    }
+
+    //Each entry is the URI of a Project's root and the number of uses and time of last use, separated by a comma
+    private void load( final File file ) {
+        final Properties properties = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream( file );
+            properties.load( is );
+        } catch ( IOException e ) {
+            logger.warn( "Unable to load Project usage statistics from " + file.getAbsolutePath() + ": " + e.getMessage() );
+            return;
+        } finally {
+            close( is );
+        }
+        for ( String key : properties.stringPropertyNames() ) {
+            final String[] values = properties.getProperty( key ).split( "," );
+            try {
+                usages.put( key,
+                            new Usage( Long.parseLong( values[ 0 ] ),
+                                       Long.parseLong( values[ 1 ] ) ) );
+            } catch ( RuntimeException e ) {
+                logger.warn( "Ignoring invalid Project usage statistics for " + key );
+            }
+        }
+    }
+
+    private void save( final File file ) {
+        final Properties properties = new Properties();
+        for ( Map.Entry<String, Usage> e : usages.entrySet() ) {
+            properties.setProperty( e.getKey(),
+                                    e.getValue().count + "," + e.getValue().lastUsed );
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream( file );
+            properties.store( os,
+                              "Project usage statistics" );
+        } catch ( IOException e ) {
+            logger.warn( "Unable to save Project usage statistics to " + file.getAbsolutePath() + ": " + e.getMessage() );
+        } finally {
+            close( os );
+        }
+    }
+
+    private void close( final Closeable closeable ) {
+        if ( closeable == null ) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch ( IOException e ) {
+            logger.warn( e.getMessage() );
+        }
+    }
+
+    private static class Usage {
+
+        private static final Usage NONE = new Usage( 0,
+                                                     0 );
+
+        private final long count;
+        private final long lastUsed;
+
+        private Usage( final long count,
+                       final long lastUsed ) {
+            this.count = count;
+            this.lastUsed = lastUsed;
+        }
+
+    }
+
+}
@@ -18,8 +18,11 @@ package org.guvnor.common.services.builder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -38,7 +41,10 @@ import org.guvnor.common.services.shared.config.AppConfigService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.uberfire.backend.vfs.Path;
+import org.uberfire.workbench.events.ResourceAdded;
 import org.uberfire.workbench.events.ResourceChange;
+import org.uberfire.workbench.events.ResourceDeleted;
+import org.uberfire.workbench.events.ResourceUpdated;
 import org.uberfire.commons.services.cdi.ApplicationStarted;
 
 /**
@@ -49,6 +55,18 @@ public class ResourceChangeIncrementalBuilder {
 
     private static final String INCREMENTAL_BUILD_PROPERTY_NAME = "build.enable-incremental";
 
+    //Milliseconds to hold changes to a Project before building them together. Zero builds each change on its own
+    private static final String COALESCING_WINDOW_PROPERTY_NAME = "build.incremental.coalescing-window";
+
+    //Milliseconds a queued build waits to be raised by one priority class. Zero or less disables aging
+    private static final String AGING_INTERVAL_PROPERTY_NAME = "build.scheduler.aging-interval";
+
+    //Maximum number of queued builds, of all Projects, and the handling of builds that would exceed it
+    private static final String QUEUE_CAPACITY_PROPERTY_NAME = "build.queue.capacity";
+    private static final String QUEUE_OVERFLOW_POLICY_PROPERTY_NAME = "build.queue.overflow-policy";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
     private static final Logger logger = LoggerFactory.getLogger( ResourceChangeIncrementalBuilder.class );
 
     @Inject
@@ -57,6 +75,9 @@ public class ResourceChangeIncrementalBuilder {
     @Inject
     private BuildService buildService;
 
+    @Inject
+    private LRUBuilderCache cache;
+
     @Inject
     private AppConfigService appConfigService;
 
@@ -66,20 +87,53 @@ public class ResourceChangeIncrementalBuilder {
     @Inject
     private Event<IncrementalBuildResults> incrementalBuildResultsEvent;
 
+    @Inject
+    private BuildMetrics buildMetrics;
+
     @Inject
     private BuildExecutorServiceFactory executorServiceProducer;
     private ExecutorService executor;
+    private ProjectBuildExecutor projectBuildExecutor;
 
     private boolean isIncrementalEnabled = false;
 
+    private long coalescingWindow = 0;
+    private ScheduledExecutorService coalescingScheduler;
+    private final Map<Project, BatchBuildTask> coalescingTasks = new HashMap<Project, BatchBuildTask>();
+
     @PostConstruct
     private void setup() {
         executor = executorServiceProducer.getExecutorService();
+        projectBuildExecutor = new ProjectBuildExecutor( executor,
+                                                         getAgingInterval() );
+        projectBuildExecutor.setBuildMetrics( buildMetrics );
+        configureQueue();
         isIncrementalEnabled = isIncrementalBuildEnabled();
+        coalescingWindow = getCoalescingWindow();
     }
 
     public void configureOnEvent(@Observes ApplicationStarted applicationStartedEvent) {
         isIncrementalEnabled = isIncrementalBuildEnabled();
+        coalescingWindow = getCoalescingWindow();
+        projectBuildExecutor.setAgingInterval( getAgingInterval() );
+        configureQueue();
+    }
+
+    private void configureQueue() {
+        final String value = BuildPreferences.getString( appConfigService,
+                                                         QUEUE_OVERFLOW_POLICY_PROPERTY_NAME,
+                                                         ProjectBuildExecutor.OverflowPolicy.COALESCE.name() );
+        ProjectBuildExecutor.OverflowPolicy overflowPolicy;
+        try {
+            overflowPolicy = ProjectBuildExecutor.OverflowPolicy.valueOf( value.toUpperCase() );
+        } catch ( IllegalArgumentException iae ) {
+            logger.warn( "Preference '" + QUEUE_OVERFLOW_POLICY_PROPERTY_NAME + "' has an invalid value '" + value + "'. Using default '" + ProjectBuildExecutor.OverflowPolicy.COALESCE + "'." );
+            overflowPolicy = ProjectBuildExecutor.OverflowPolicy.COALESCE;
+        }
+        projectBuildExecutor.setCapacity( BuildPreferences.getInt( appConfigService,
+                                                                   QUEUE_CAPACITY_PROPERTY_NAME,
+                                                                   DEFAULT_QUEUE_CAPACITY ),
+                                          overflowPolicy );
     }
 
     private boolean isIncrementalBuildEnabled() {
@@ -87,8 +141,26 @@ public class ResourceChangeIncrementalBuilder {
         return Boolean.parseBoolean( value );
     }
 
+    private long getCoalescingWindow() {
+        return Math.max( 0,
+                         BuildPreferences.getLong( appConfigService,
+                                                   COALESCING_WINDOW_PROPERTY_NAME,
+                                                   0 ) );
+    }
+
+    private long getAgingInterval() {
+        return BuildPreferences.getLong( appConfigService,
+                                         AGING_INTERVAL_PROPERTY_NAME,
+                                         ProjectBuildExecutor.DEFAULT_AGING_INTERVAL );
+    }
+
     @PreDestroy
     private void destroyExecutorService() {
+        synchronized ( coalescingTasks ) {
+            if ( coalescingScheduler != null ) {
+                coalescingScheduler.shutdownNow();
+            }
+        }
         try {
             executor.shutdown();
             if ( !executor.awaitTermination( 10,
@@ -120,13 +192,22 @@ public class ResourceChangeIncrementalBuilder {
         }
 
         //Schedule an incremental build
-        executor.execute( new Runnable() {
+        final Project project = projectService.resolveProject( resource );
+        if ( project == null ) {
+            return;
+        }
+        if ( coalescingWindow > 0 ) {
+            coalesce( project,
+                      resource,
+                      new ResourceAdded() );
+            return;
+        }
+        projectBuildExecutor.execute( new IncrementalBuildTask( project ) {
 
             @Override
             public void run() {
                 try {
                     logger.info( "Incremental build request being processed: " + resource.toURI() + " (added)." );
-                    final Project project = projectService.resolveProject( resource );
 
                     //Fall back to a Full Build in lieu of an Incremental Build if the Project has not been previously built
                     if ( buildService.isBuilt( project ) ) {
@@ -160,13 +241,22 @@ public class ResourceChangeIncrementalBuilder {
         }
 
         //Schedule an incremental build
-        executor.execute( new Runnable() {
+        final Project project = projectService.resolveProject( resource );
+        if ( project == null ) {
+            return;
+        }
+        if ( coalescingWindow > 0 ) {
+            coalesce( project,
+                      resource,
+                      new ResourceDeleted() );
+            return;
+        }
+        projectBuildExecutor.execute( new IncrementalBuildTask( project ) {
 
             @Override
             public void run() {
                 try {
                     logger.info( "Incremental build request being processed: " + resource.toURI() + " (deleted)." );
-                    final Project project = projectService.resolveProject( resource );
 
                     //Fall back to a Full Build in lieu of an Incremental Build if the Project has not been previously built
                     if ( buildService.isBuilt( project ) ) {
@@ -211,32 +301,30 @@ public class ResourceChangeIncrementalBuilder {
     //Schedule a re-build of a Project (changes to pom.xml or kmodule.xml require a full build)
     private void scheduleProjectResourceUpdate( final Path resource ) {
         final Project project = projectService.resolveProject( resource );
-        executor.execute( new Runnable() {
-
-            @Override
-            public void run() {
-                try {
-                    logger.info( "Incremental build request being processed: " + project.getRootPath() + " (updated)." );
-                    final BuildResults results = buildService.build( project );
-                    buildResultsEvent.fire( results );
-
-                } catch ( Exception e ) {
-                    logger.error( e.getMessage(),
-                                  e );
-                }
-            }
-        } );
+        if ( project == null ) {
+            return;
+        }
+        projectBuildExecutor.execute( new FullBuildTask( project ) );
     }
 
     //Schedule an incremental build for a package resource
     private void schedulePackageResourceUpdate( final Path resource ) {
-        executor.execute( new Runnable() {
+        final Project project = projectService.resolveProject( resource );
+        if ( project == null ) {
+            return;
+        }
+        if ( coalescingWindow > 0 ) {
+            coalesce( project,
+                      resource,
+                      new ResourceUpdated() );
+            return;
+        }
+        projectBuildExecutor.execute( new IncrementalBuildTask( project ) {
 
             @Override
             public void run() {
                 try {
                     logger.info( "Incremental build request being processed: " + resource.toURI() + " (updated)." );
-                    final Project project = projectService.resolveProject( resource );
 
                     //Fall back to a Full Build in lieu of an Incremental Build if the Project has not been previously built
                     if ( buildService.isBuilt( project ) ) {
@@ -290,32 +378,229 @@ public class ResourceChangeIncrementalBuilder {
 
         //Schedule an incremental build for each Project
         for ( final Map.Entry<Project, Map<Path, Collection<ResourceChange>>> e : projectBatchChanges.entrySet() ) {
-            executor.execute( new Runnable() {
-
-                @Override
-                public void run() {
-                    try {
-                        logger.info( "Batch incremental build request being processed." );
-                        final Project project = e.getKey();
-                        final Map<Path, Collection<ResourceChange>> changes = e.getValue();
-
-                        //Fall back to a Full Build in lieu of an Incremental Build if the Project has not been previously built
-                        if ( buildService.isBuilt( project ) ) {
-                            final IncrementalBuildResults results = buildService.applyBatchResourceChanges( project,
-                                                                                                            changes );
-                            incrementalBuildResultsEvent.fire( results );
-                        } else {
-                            final BuildResults results = buildService.build( project );
-                            buildResultsEvent.fire( results );
-                        }
-
-                    } catch ( Exception e ) {
-                        logger.error( e.getMessage(),
-                                      e );
-                    }
+            if ( coalescingWindow > 0 ) {
+                coalesce( e.getKey(),
+                          e.getValue() );
+            } else {
+                projectBuildExecutor.execute( new BatchBuildTask( e.getKey(),
+                                                                  e.getValue() ) );
+            }
+        }
+    }
+
+    private void coalesce( final Project project,
+                           final Path resource,
+                           final ResourceChange change ) {
+        final Map<Path, Collection<ResourceChange>> changes = new HashMap<Path, Collection<ResourceChange>>();
+        final Collection<ResourceChange> resourceChanges = new ArrayList<ResourceChange>();
+        resourceChanges.add( change );
+        changes.put( resource,
+                     resourceChanges );
+        coalesce( project,
+                  changes );
+    }
+
+    //Changes to a Project are held for the coalescing window, measured from the first pending change, and then
+    //built together. The window is not extended by later changes so continuous editing cannot postpone a build forever
+    private void coalesce( final Project project,
+                           final Map<Path, Collection<ResourceChange>> changes ) {
+        synchronized ( coalescingTasks ) {
+            final BatchBuildTask pendingTask = coalescingTasks.get( project );
+            if ( pendingTask != null ) {
+                pendingTask.getChanges().addChanges( changes );
+                return;
+            }
+            final BatchBuildTask task = new BatchBuildTask( project,
+                                                            changes );
+            coalescingTasks.put( project,
+                                 task );
+            getCoalescingScheduler().schedule( new Runnable() {
+                                                   @Override
+                                                   public void run() {
+                                                       synchronized ( coalescingTasks ) {
+                                                           coalescingTasks.remove( project );
+                                                       }
+                                                       projectBuildExecutor.execute( task );
+                                                   }
+                                               },
+                                               coalescingWindow,
+                                               TimeUnit.MILLISECONDS );
+        }
+    }
+
+    private ScheduledExecutorService getCoalescingScheduler() {
+        if ( coalescingScheduler == null ) {
+            coalescingScheduler = Executors.newSingleThreadScheduledExecutor();
+        }
+        return coalescingScheduler;
+    }
+
+    /**
+     * Return the build tasks queued, but not yet running, for a Project
+     * @param project
+     * @return
+     */
+    public List<BuildTask> getQueuedBuildTasks( final Project project ) {
+        return projectBuildExecutor.getQueuedTasks( project );
+    }
+
+    /**
+     * Return the number of build tasks, of all Projects, queued but not yet running for a priority class
+     * @param priority
+     * @return
+     */
+    public int getQueueDepth( final BuildPriority priority ) {
+        return projectBuildExecutor.getQueueDepth( priority );
+    }
+
+    /**
+     * Return the executor of queued build tasks, from which statistics of the queue are available
+     * @return
+     */
+    public ProjectBuildExecutor getProjectBuildExecutor() {
+        return projectBuildExecutor;
+    }
+
+    //A full build makes any incremental or full builds queued before it redundant and, whilst queued, absorbs those
+    //queued after it. A newer full build cancels one in progress and only the results of the newest full build are
+    //published. Other tasks, such as builds that deploy, are neither absorbed nor superseded
+    private class FullBuildTask extends BuildTask {
+
+        private volatile boolean isCancelled = false;
+
+        private FullBuildTask( final Project project ) {
+            super( project,
+                   BuildPriority.USER );
+        }
+
+        @Override
+        public boolean merge( final BuildTask task ) {
+            return isBuild( task );
+        }
+
+        @Override
+        public boolean supersedes( final BuildTask task ) {
+            return isBuild( task );
+        }
+
+        private boolean isBuild( final BuildTask task ) {
+            return task instanceof FullBuildTask || task instanceof IncrementalBuildTask;
+        }
+
+        @Override
+        public BuildTask toFullBuild() {
+            return this;
+        }
+
+        @Override
+        public void cancel() {
+            isCancelled = true;
+            cache.cancelFullBuild( this );
+        }
+
+        @Override
+        public void run() {
+            if ( isCancelled ) {
+                return;
+            }
+            try {
+                logger.info( "Incremental build request being processed: " + getProject().getRootPath() + " (updated)." );
+                final BuildResults results = build( getProject() );
+                if ( !isCancelled ) {
+                    buildResultsEvent.fire( results );
+                }
+
+            } catch ( BuildCancelledException e ) {
+                logger.info( e.getMessage() );
+            } catch ( Exception e ) {
+                logger.error( e.getMessage(),
+                              e );
+            }
+        }
+
+        //Build with this task as the token, so that only this build is cancelled if the task is superseded
+        private BuildResults build( final Project project ) {
+            final BuildResults unchangedResults = cache.getUnchangedBuildResults( project );
+            if ( unchangedResults != null ) {
+                return unchangedResults;
+            }
+            final Builder builder = cache.assertFullBuilder( project,
+                                                             this );
+            try {
+                return builder.build();
+            } finally {
+                cache.fullBuildCompleted( project,
+                                          builder );
+            }
+        }
+
+    }
+
+    //An incremental build a user awaits feedback from. If the queue is full it can be replaced by a full build
+    private abstract class IncrementalBuildTask extends BuildTask {
+
+        private IncrementalBuildTask( final Project project ) {
+            super( project,
+                   BuildPriority.INTERACTIVE );
+        }
+
+        @Override
+        public BuildTask toFullBuild() {
+            return new FullBuildTask( getProject() );
+        }
+
+    }
+
+    //A batch of changes for a Project. Batches queued for the same Project are coalesced into a single incremental build
+    private class BatchBuildTask extends IncrementalBuildTask {
+
+        private final PendingResourceChanges changes = new PendingResourceChanges();
+
+        private BatchBuildTask( final Project project,
+                                final Map<Path, Collection<ResourceChange>> changes ) {
+            super( project );
+            this.changes.addChanges( changes );
+        }
+
+        private PendingResourceChanges getChanges() {
+            return changes;
+        }
+
+        @Override
+        public boolean merge( final BuildTask task ) {
+            if ( !( task instanceof BatchBuildTask ) ) {
+                return false;
+            }
+            changes.addChanges( ( (BatchBuildTask) task ).getChanges() );
+            return true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                //Changes may have cancelled each other out
+                if ( changes.isEmpty() ) {
+                    return;
+                }
+                logger.info( "Batch incremental build request being processed (" + changes.size() + " resources)." );
+                final Project project = getProject();
+
+                //Fall back to a Full Build in lieu of an Incremental Build if the Project has not been previously built
+                if ( buildService.isBuilt( project ) ) {
+                    final IncrementalBuildResults results = buildService.applyBatchResourceChanges( project,
+                                                                                                    changes.toBatch() );
+                    incrementalBuildResultsEvent.fire( results );
+                } else {
+                    final BuildResults results = buildService.build( project );
+                    buildResultsEvent.fire( results );
                 }
-            } );
+
+            } catch ( Exception e ) {
+                logger.error( e.getMessage(),
+                              e );
+            }
         }
+
     }
 
 }
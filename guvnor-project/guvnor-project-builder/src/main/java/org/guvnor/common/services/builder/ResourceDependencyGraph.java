@@ -0,0 +1,242 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dependencies between the resources of a KieFileSystem. Each resource defines symbols (Java classes, declared types,
+ * functions, globals, queries and DSLs) and references others. References are approximated by the identifiers
+ * appearing in a resource so a resource may be considered dependent when it is not, but never the converse. Resources
+ * whose content cannot be scanned, such as spreadsheets, are considered to depend upon every symbol.
+ * <p>
+ * Not thread-safe; the Builder guards it with its lock.
+ */
+class ResourceDependencyGraph {
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    //Symbol referenced by DSLR files. DSLs are available to all DSLR files in a KieBase so are not otherwise distinguished
+    private static final String DSL_SYMBOL = "dsl:";
+
+    //Symbol referenced by resources whose content cannot be scanned
+    private static final String ANY_SYMBOL = "*";
+
+    //Heuristics used to estimate the heap retained by the graph: each symbol is a String, held in hash set entries
+    private static final long SYMBOL_SIZE = 40;
+    private static final long ENTRY_SIZE = 32;
+
+    private static final Pattern DRL_DEFINITIONS = Pattern.compile( "\\b(?:declare\\s+(?:trait\\s+|enum\\s+)?|global\\s+[\\w.<>\\[\\]]+\\s+|query\\s+\"?|function\\s+[\\w.<>\\[\\]]+\\s+)([\\w$]+)" );
+
+    private final Map<String, Set<String>> definitions = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> references = new HashMap<String, Set<String>>();
+
+    //Inverse of references, the paths of the resources referencing each symbol
+    private final Map<String, Set<String>> referencingPaths = new HashMap<String, Set<String>>();
+
+    private long estimatedSize = 0;
+
+    /**
+     * Record the content of a resource, replacing any previous content
+     * @param path Path of the resource in the KieFileSystem
+     * @param content
+     * @return Symbols defined by the previous or new content; the definitions of which may have changed
+     */
+    Set<String> update( final String path,
+                        final byte[] content ) {
+        final Set<String> changedSymbols = remove( path );
+        final Set<String> newDefinitions = getDefinitions( path,
+                                                           content );
+        final Set<String> newReferences = getReferences( path,
+                                                         content );
+        if ( !newDefinitions.isEmpty() ) {
+            definitions.put( path,
+                             newDefinitions );
+            changedSymbols.addAll( newDefinitions );
+            estimatedSize = estimatedSize + getEstimatedSize( newDefinitions,
+                                                              1 );
+        }
+        references.put( path,
+                        newReferences );
+        estimatedSize = estimatedSize + getEstimatedSize( newReferences,
+                                                          2 );
+        for ( String symbol : newReferences ) {
+            Set<String> paths = referencingPaths.get( symbol );
+            if ( paths == null ) {
+                paths = new HashSet<String>();
+                referencingPaths.put( symbol,
+                                      paths );
+            }
+            paths.add( path );
+        }
+        return changedSymbols;
+    }
+
+    /**
+     * Forget a resource
+     * @param path Path of the resource in the KieFileSystem
+     * @return Symbols defined by the resource, the definitions of which have been removed
+     */
+    Set<String> remove( final String path ) {
+        final Set<String> changedSymbols = new HashSet<String>();
+        final Set<String> oldDefinitions = definitions.remove( path );
+        if ( oldDefinitions != null ) {
+            changedSymbols.addAll( oldDefinitions );
+            estimatedSize = estimatedSize - getEstimatedSize( oldDefinitions,
+                                                              1 );
+        }
+        final Set<String> oldReferences = references.remove( path );
+        if ( oldReferences != null ) {
+            estimatedSize = estimatedSize - getEstimatedSize( oldReferences,
+                                                              2 );
+            for ( String symbol : oldReferences ) {
+                final Set<String> paths = referencingPaths.get( symbol );
+                if ( paths != null ) {
+                    paths.remove( path );
+                    if ( paths.isEmpty() ) {
+                        referencingPaths.remove( symbol );
+                    }
+                }
+            }
+        }
+        return changedSymbols;
+    }
+
+    /**
+     * Estimate the heap retained by the graph. Every identifier of every resource is retained as a reference.
+     * @return Estimated size in bytes
+     */
+    long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    //References are held by both the resource's set of references and the symbol's set of referencing paths
+    private static long getEstimatedSize( final Set<String> symbols,
+                                          final int entriesPerSymbol ) {
+        long size = 0;
+        for ( String symbol : symbols ) {
+            size = size + SYMBOL_SIZE + ( symbol.length() * 2 ) + ( entriesPerSymbol * ENTRY_SIZE );
+        }
+        return size;
+    }
+
+    /**
+     * Return the resources depending, directly or transitively, upon symbols
+     * @param changedSymbols Symbols the definitions of which have changed
+     * @return Paths of the dependent resources
+     */
+    Set<String> getDependents( final Collection<String> changedSymbols ) {
+        if ( changedSymbols.isEmpty() ) {
+            return Collections.emptySet();
+        }
+        final Set<String> dependents = new LinkedHashSet<String>();
+        final Set<String> visitedSymbols = new HashSet<String>();
+        final Deque<String> symbols = new ArrayDeque<String>( changedSymbols );
+        addDependents( ANY_SYMBOL,
+                       dependents,
+                       symbols );
+        while ( !symbols.isEmpty() ) {
+            final String symbol = symbols.poll();
+            if ( visitedSymbols.add( symbol ) ) {
+                addDependents( symbol,
+                               dependents,
+                               symbols );
+            }
+        }
+        return dependents;
+    }
+
+    //Resources referencing a symbol are dependent, as are those depending upon the symbols they define
+    private void addDependents( final String symbol,
+                                final Set<String> dependents,
+                                final Deque<String> symbols ) {
+        final Set<String> paths = referencingPaths.get( symbol );
+        if ( paths == null ) {
+            return;
+        }
+        for ( String path : paths ) {
+            if ( dependents.add( path ) ) {
+                final Set<String> dependentDefinitions = definitions.get( path );
+                if ( dependentDefinitions != null ) {
+                    symbols.addAll( dependentDefinitions );
+                }
+            }
+        }
+    }
+
+    private Set<String> getDefinitions( final String path,
+                                        final byte[] content ) {
+        final Set<String> symbols = new HashSet<String>();
+        final String fileName = path.substring( path.lastIndexOf( '/' ) + 1 );
+        if ( fileName.endsWith( ".java" ) ) {
+            symbols.add( fileName.substring( 0,
+                                             fileName.length() - ".java".length() ) );
+        } else if ( fileName.endsWith( ".drl" ) || fileName.endsWith( ".rdrl" ) ) {
+            final Matcher matcher = DRL_DEFINITIONS.matcher( new String( content,
+                                                                         UTF8 ) );
+            while ( matcher.find() ) {
+                symbols.add( matcher.group( 1 ) );
+            }
+        } else if ( fileName.endsWith( ".dsl" ) ) {
+            symbols.add( DSL_SYMBOL );
+        }
+        return symbols;
+    }
+
+    private Set<String> getReferences( final String path,
+                                       final byte[] content ) {
+        final Set<String> symbols = new HashSet<String>();
+        if ( path.endsWith( ".xls" ) || path.endsWith( ".xlsx" ) ) {
+            symbols.add( ANY_SYMBOL );
+            return symbols;
+        }
+        if ( path.endsWith( ".dslr" ) || path.endsWith( ".rdslr" ) ) {
+            symbols.add( DSL_SYMBOL );
+        }
+
+        //Identifiers are sequences of letters, digits, '_' and '$'. Bytes of multi-byte UTF-8 characters are included
+        int start = -1;
+        for ( int i = 0; i <= content.length; i++ ) {
+            final boolean isIdentifierPart = i < content.length && isIdentifierPart( content[ i ] );
+            if ( isIdentifierPart && start < 0 ) {
+                start = i;
+            } else if ( !isIdentifierPart && start >= 0 ) {
+                symbols.add( new String( content,
+                                         start,
+                                         i - start,
+                                         UTF8 ) );
+                start = -1;
+            }
+        }
+        return symbols;
+    }
+
+    private static boolean isIdentifierPart( final byte b ) {
+        return b < 0 || ( b >= 'a' && b <= 'z' ) || ( b >= 'A' && b <= 'Z' ) || ( b >= '0' && b <= '9' ) || b == '_' || b == '$';
+    }
+
+}
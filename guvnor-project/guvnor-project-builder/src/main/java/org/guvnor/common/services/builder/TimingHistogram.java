@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of the durations of an activity. Durations are counted in buckets whose width grows with the
+ * duration: each power of two is divided into four buckets so percentiles are reported to within 25% of the recorded
+ * durations whilst a histogram needs a fixed, small, amount of memory. Times are reported in milliseconds.
+ */
+public class TimingHistogram implements TimingHistogramMBean {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS;
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final long[] buckets = new long[ BUCKETS ];
+    private long count = 0;
+    private long total = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    /**
+     * Record a duration
+     * @param nanos Duration in nanoseconds. Negative durations are recorded as zero.
+     */
+    public synchronized void record( final long nanos ) {
+        final long value = Math.max( 0,
+                                     nanos );
+        buckets[ getBucket( value ) ]++;
+        count++;
+        total = total + value;
+        min = Math.min( min,
+                        value );
+        max = Math.max( max,
+                        value );
+    }
+
+    @Override
+    public synchronized long getCount() {
+        return count;
+    }
+
+    @Override
+    public synchronized double getTotalTime() {
+        return total / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public synchronized double getMinTime() {
+        return count == 0 ? 0 : min / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public synchronized double getMaxTime() {
+        return max / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public synchronized double getMeanTime() {
+        return count == 0 ? 0 : ( total / NANOS_PER_MILLI ) / count;
+    }
+
+    @Override
+    public double get50thPercentile() {
+        return getPercentile( 50 );
+    }
+
+    @Override
+    public double get95thPercentile() {
+        return getPercentile( 95 );
+    }
+
+    @Override
+    public double get99thPercentile() {
+        return getPercentile( 99 );
+    }
+
+    /**
+     * Return the duration at or below which the given percentage of durations were recorded
+     * @param percentile Between 0 and 100
+     * @return The upper bound, in milliseconds, of the bucket holding the percentile, or zero if nothing has been recorded
+     */
+    public synchronized double getPercentile( final double percentile ) {
+        if ( count == 0 ) {
+            return 0;
+        }
+        final long rank = Math.max( 1,
+                                    (long) Math.ceil( count * Math.min( 100,
+                                                                        Math.max( 0,
+                                                                                  percentile ) ) / 100 ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            seen = seen + buckets[ i ];
+            if ( seen >= rank ) {
+                final long upperBound = Math.min( max,
+                                                  Math.max( min,
+                                                            getUpperBound( i ) ) );
+                return upperBound / NANOS_PER_MILLI;
+            }
+        }
+        return max / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public synchronized void reset() {
+        Arrays.fill( buckets,
+                     0 );
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    //Values below SUB_BUCKETS have a bucket each. Larger values are bucketed by their highest bit and the SUB_BUCKET_BITS below it.
+    static int getBucket( final long value ) {
+        if ( value < SUB_BUCKETS ) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros( value );
+        final int subBucket = (int) ( ( value >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 ) );
+        return ( exponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS + subBucket;
+    }
+
+    //Largest value held by a bucket
+    static long getUpperBound( final int bucket ) {
+        if ( bucket < SUB_BUCKETS ) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long subBucket = bucket % SUB_BUCKETS;
+        final long lowerBound = ( SUB_BUCKETS + subBucket ) << ( exponent - SUB_BUCKET_BITS );
+        return lowerBound + ( 1L << ( exponent - SUB_BUCKET_BITS ) ) - 1;
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.guvnor.common.services.builder;
+
+/**
+ * Management interface of a TimingHistogram. Times are in milliseconds.
+ */
+public interface TimingHistogramMBean {
+
+    long getCount();
+
+    double getTotalTime();
+
+    double getMinTime();
+
+    double getMaxTime();
+
+    double getMeanTime();
+
+    double get50thPercentile();
+
+    double get95thPercentile();
+
+    double get99thPercentile();
+
+    void reset();
+
+}
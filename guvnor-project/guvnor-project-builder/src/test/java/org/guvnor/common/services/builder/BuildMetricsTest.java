@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.guvnor.common.services.project.model.Project;
+import org.junit.Before;
+import org.junit.Test;
+import org.uberfire.backend.vfs.Path;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class BuildMetricsTest {
+
+    private BuildMetrics buildMetrics;
+    private Project project1;
+    private Project project2;
+
+    @Before
+    public void setup() {
+        buildMetrics = new BuildMetrics();
+        project1 = makeProject( "default://repo1/project" );
+        project2 = makeProject( "default://repo2/project" );
+    }
+
+    private Project makeProject( final String uri ) {
+        final Path rootPath = mock( Path.class );
+        when( rootPath.toURI() ).thenReturn( uri );
+        final Project project = mock( Project.class );
+        when( project.getRootPath() ).thenReturn( rootPath );
+        when( project.getProjectName() ).thenReturn( "project" );
+        return project;
+    }
+
+    @Test
+    public void testTimingsAreRecordedPerProjectAndPhase() {
+        buildMetrics.record( project1,
+                             BuildPhase.COMPILATION,
+                             1000 );
+        buildMetrics.record( project1,
+                             BuildPhase.COMPILATION,
+                             2000 );
+        buildMetrics.record( project2,
+                             BuildPhase.COMPILATION,
+                             3000 );
+        buildMetrics.record( project2,
+                             BuildPhase.VALIDATION,
+                             4000 );
+
+        assertEquals( 2,
+                      buildMetrics.getTiming( project1,
+                                              BuildPhase.COMPILATION ).getCount() );
+        assertEquals( 1,
+                      buildMetrics.getTiming( project2,
+                                              BuildPhase.COMPILATION ).getCount() );
+        assertNull( buildMetrics.getTiming( project1,
+                                            BuildPhase.VALIDATION ) );
+        assertEquals( 3,
+                      buildMetrics.getTiming( BuildPhase.COMPILATION ).getCount() );
+        assertEquals( 1,
+                      buildMetrics.getTiming( BuildPhase.VALIDATION ).getCount() );
+    }
+
+    @Test
+    public void testTimingsWithoutProjectAreOnlyRecordedForAllProjects() {
+        buildMetrics.record( null,
+                             BuildPhase.QUEUE_WAIT,
+                             1000 );
+
+        assertEquals( 1,
+                      buildMetrics.getTiming( BuildPhase.QUEUE_WAIT ).getCount() );
+        assertNull( buildMetrics.getTiming( project1,
+                                            BuildPhase.QUEUE_WAIT ) );
+    }
+
+    @Test
+    public void testTimingsAreNotRecordedWhenDisabled() {
+        buildMetrics.setEnabled( false );
+        buildMetrics.record( project1,
+                             BuildPhase.COMPILATION,
+                             1000 );
+
+        assertNull( buildMetrics.getTiming( BuildPhase.COMPILATION ) );
+    }
+
+    @Test
+    public void testTimingsArePublishedOverJmx() throws Exception {
+        final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+        buildMetrics.record( project1,
+                             BuildPhase.COMPILATION,
+                             1000000 );
+        buildMetrics.enableJmx( mBeanServer );
+        buildMetrics.record( project2,
+                             BuildPhase.VALIDATION,
+                             2000000 );
+
+        final ObjectName compilation = new ObjectName( "org.guvnor:type=BuildMetrics,phase=COMPILATION,project=" + ObjectName.quote( "default://repo1/project" ) );
+        final ObjectName validation = new ObjectName( "org.guvnor:type=BuildMetrics,phase=VALIDATION,project=" + ObjectName.quote( "default://repo2/project" ) );
+        final ObjectName allValidation = new ObjectName( "org.guvnor:type=BuildMetrics,phase=VALIDATION" );
+        assertEquals( 1L,
+                      mBeanServer.getAttribute( compilation,
+                                                "Count" ) );
+        assertEquals( 2.0,
+                      (Double) mBeanServer.getAttribute( validation,
+                                                         "MaxTime" ),
+                      0.001 );
+        assertTrue( mBeanServer.isRegistered( allValidation ) );
+
+        buildMetrics.remove( project2 );
+        assertFalse( mBeanServer.isRegistered( validation ) );
+        assertTrue( mBeanServer.isRegistered( compilation ) );
+
+        buildMetrics.enableJmx( null );
+        assertFalse( mBeanServer.isRegistered( compilation ) );
+        assertFalse( mBeanServer.isRegistered( allValidation ) );
+    }
+
+}
@@ -16,12 +16,28 @@
 
 package org.guvnor.common.services.builder;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.event.Event;
 import javax.enterprise.inject.spi.Bean;
@@ -30,15 +46,24 @@ import javax.enterprise.inject.spi.BeanManager;
 import org.drools.core.rule.TypeMetaInfo;
 import org.guvnor.common.services.project.builder.model.BuildMessage;
 import org.guvnor.common.services.project.builder.model.BuildResults;
+import org.guvnor.common.services.project.builder.model.IncrementalBuildResults;
 import org.guvnor.common.services.project.builder.service.BuildValidationHelper;
+import org.guvnor.common.services.project.events.RuleNameUpdateEvent;
 import org.guvnor.common.services.project.model.GAV;
 import org.guvnor.common.services.project.model.Project;
 import org.guvnor.common.services.project.service.ProjectService;
+import org.guvnor.common.services.shared.validation.model.ValidationMessage;
 import org.guvnor.m2repo.backend.server.ExtendedM2RepoService;
 import org.jboss.weld.environment.se.StartMain;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kie.api.builder.KieModule;
+import org.kie.api.runtime.KieContainer;
 import org.kie.scanner.KieModuleMetaData;
+import org.mockito.ArgumentCaptor;
+import org.uberfire.backend.vfs.Path;
 import org.uberfire.io.IOService;
 import org.uberfire.java.nio.fs.file.SimpleFileSystemProvider;
 
@@ -47,15 +72,29 @@ import static org.mockito.Mockito.*;
 
 public class BuildServiceImplTest {
 
+    private static final String PACKAGE_NAME = "org.kie.workbench.common.services.builder.tests.test1";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private BeanManager beanManager;
     private Event ruleNameUpdateEvent;
 
+    private IOService ioService;
+    private ProjectService projectService;
+    private Project project;
+
     @Before
     public void setUp() throws Exception {
         StartMain startMain = new StartMain( new String[ 0 ] );
         beanManager = startMain.go().getBeanManager();
 
         setUpGuvnorM2Repo();
+
+        ioService = getReference( IOService.class );
+        projectService = getReference( ProjectService.class );
+        project = mock( Project.class );
+        ruleNameUpdateEvent = mock( Event.class );
     }
 
     @Test
@@ -82,6 +121,180 @@ public class BuildServiceImplTest {
         assertTrue( results.getMessages().isEmpty() );
     }
 
+    @Test
+    public void testBuildPhasesAreTimed() throws Exception {
+        final org.uberfire.java.nio.file.Path path = getProjectPath( "/GuvnorM2RepoDependencyExample1" );
+
+        final BuildMetrics buildMetrics = new BuildMetrics();
+        final Builder builder = new Builder( project,
+                                             path,
+                                             new GAV(),
+                                             ioService,
+                                             projectService,
+                                             ruleNameUpdateEvent,
+                                             new ArrayList<BuildValidationHelper>(),
+                                             BuilderSettings.newSettings().withBuildMetrics( buildMetrics ) );
+
+        final BuildResults results = builder.build();
+        assertTrue( results.getMessages().isEmpty() );
+        assertNotNull( builder.getKieContainer() );
+
+        for ( BuildPhase phase : new BuildPhase[]{ BuildPhase.PATH_WALK, BuildPhase.COMPILATION, BuildPhase.VALIDATION, BuildPhase.IMPORTS_CHECK, BuildPhase.EXTERNAL_CLASS_VERIFICATION, BuildPhase.RULE_NAME_UPDATE, BuildPhase.KIE_CONTAINER_CREATION, BuildPhase.FULL_BUILD } ) {
+            assertEquals( phase.name(),
+                          1,
+                          buildMetrics.getTiming( phase ).getCount() );
+        }
+        assertTrue( buildMetrics.getTiming( BuildPhase.FULL_BUILD ).getTotalTime() >= buildMetrics.getTiming( BuildPhase.COMPILATION ).getTotalTime() );
+    }
+
+    @Test
+    public void testKieContainerCreatedOnDemand() throws Exception {
+        final org.uberfire.java.nio.file.Path path = getProjectPath( "/GuvnorM2RepoDependencyExample1" );
+
+        final Builder builder = makeBuilder( path );
+
+        final BuildResults results = builder.build();
+        assertTrue( results.getMessages().isEmpty() );
+
+        //Building does not create a KieContainer
+        final long builtSize = builder.getEstimatedSize();
+        assertFalse( builder.releaseKieContainer() );
+
+        final KieContainer kieContainer = builder.getKieContainer();
+        assertNotNull( kieContainer );
+        assertSame( kieContainer,
+                    builder.getKieContainer() );
+        assertTrue( builder.getEstimatedSize() > builtSize );
+
+        //A released KieContainer is re-created when next requested
+        assertTrue( builder.releaseKieContainer() );
+        assertEquals( builtSize,
+                      builder.getEstimatedSize() );
+        assertNotNull( builder.getKieContainer() );
+        assertTrue( builder.isBuilt() );
+    }
+
+    @Test
+    public void testReadersNotBlockedByBuild() throws Exception {
+        final org.uberfire.java.nio.file.Path path = getProjectPath( "/GuvnorM2RepoDependencyExample1" );
+
+        //Validation is performed whilst the Builder's lock is held, so can be used to hold a build in progress
+        final AtomicBoolean isBlocking = new AtomicBoolean( false );
+        final CountDownLatch validating = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final List<BuildValidationHelper> buildValidationHelpers = new ArrayList<BuildValidationHelper>();
+        buildValidationHelpers.add( new BuildValidationHelper() {
+            @Override
+            public boolean accepts( final Path path ) {
+                return path.getFileName().equals( "pom.xml" );
+            }
+
+            @Override
+            public List<ValidationMessage> validate( final Path path ) {
+                if ( isBlocking.get() ) {
+                    validating.countDown();
+                    try {
+                        release.await( 30,
+                                       TimeUnit.SECONDS );
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new ArrayList<ValidationMessage>();
+            }
+        } );
+
+        final Builder builder = makeBuilder( path,
+                                             buildValidationHelpers );
+        assertTrue( builder.build().getMessages().isEmpty() );
+        final KieModule kieModule = builder.getKieModule();
+
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try {
+            isBlocking.set( true );
+            final Future<BuildResults> build = executor.submit( new Callable<BuildResults>() {
+                @Override
+                public BuildResults call() throws Exception {
+                    return builder.build();
+                }
+            } );
+            assertTrue( validating.await( 30,
+                                          TimeUnit.SECONDS ) );
+
+            //The KieModule of the last build is available whilst the new build is in progress
+            final Future<KieModule> reader = executor.submit( new Callable<KieModule>() {
+                @Override
+                public KieModule call() throws Exception {
+                    assertTrue( builder.isBuilt() );
+                    return builder.getKieModule();
+                }
+            } );
+            assertSame( kieModule,
+                        reader.get( 10,
+                                    TimeUnit.SECONDS ) );
+
+            release.countDown();
+            assertTrue( build.get( 30,
+                                   TimeUnit.SECONDS ).getMessages().isEmpty() );
+            assertNotNull( builder.getKieModule() );
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBuildMessagesReportedByPhase() throws Exception {
+        //Add a resource that does not compile to a copy of the Project
+        final File root = copyProject( "/GuvnorM2RepoDependencyExample1" );
+        write( new File( root,
+                         "src/main/resources/rule2.drl" ),
+               "package " + PACKAGE_NAME + "\n\nrule R2\nwhen\n  Missing()\nthen\nend\n" );
+        final org.uberfire.java.nio.file.Path path = toPath( root );
+
+        final List<BuildValidationHelper> buildValidationHelpers = new ArrayList<BuildValidationHelper>();
+        buildValidationHelpers.add( new BuildValidationHelper() {
+            @Override
+            public boolean accepts( final Path path ) {
+                return path.getFileName().equals( "pom.xml" );
+            }
+
+            @Override
+            public List<ValidationMessage> validate( final Path path ) {
+                final ValidationMessage message = new ValidationMessage();
+                message.setLevel( ValidationMessage.Level.WARNING );
+                message.setText( "pom.xml warning" );
+                final List<ValidationMessage> messages = new ArrayList<ValidationMessage>();
+                messages.add( message );
+                return messages;
+            }
+        } );
+
+        final Builder builder = makeBuilder( path,
+                                             buildValidationHelpers );
+
+        final List<List<BuildMessage>> reportedMessages = new ArrayList<List<BuildMessage>>();
+        final BuildResults results = builder.build( new BuildProgressListener() {
+            @Override
+            public void onBuildMessages( final List<BuildMessage> messages ) {
+                reportedMessages.add( messages );
+            }
+        } );
+
+        //Compilation errors and validation messages are reported separately, in the order of the results
+        assertFalse( results.getErrorMessages().isEmpty() );
+        assertEquals( 1,
+                      results.getWarningMessages().size() );
+        assertTrue( reportedMessages.size() >= 2 );
+        final List<BuildMessage> allReportedMessages = new ArrayList<BuildMessage>();
+        for ( List<BuildMessage> messages : reportedMessages ) {
+            assertFalse( messages.isEmpty() );
+            allReportedMessages.addAll( messages );
+        }
+        assertEquals( results.getMessages(),
+                      allReportedMessages );
+    }
+
     @Test
 //    @Ignore("//TODO {manstis}")
     public void testBuilderKProjectHasDependency() throws Exception {
@@ -237,6 +450,385 @@ public class BuildServiceImplTest {
         assertTrue( results.getMessages().isEmpty() );
     }
 
+    @Test
+    public void testKProjectContainsXLSParallelLoading() throws Exception {
+        final org.uberfire.java.nio.file.Path path = getProjectPath( "/ExampleWithExcel" );
+
+        final ExecutorService loadingExecutor = Executors.newFixedThreadPool( 2 );
+        try {
+            final Builder builder = makeBuilder( path,
+                                                 new ArrayList<BuildValidationHelper>(),
+                                                 loadingExecutor );
+
+            final BuildResults results = builder.build();
+
+            //Debug output
+            if ( !results.getMessages().isEmpty() ) {
+                for ( BuildMessage m : results.getMessages() ) {
+                    System.out.println( m.getText() );
+                }
+            }
+
+            assertTrue( results.getMessages().isEmpty() );
+            assertNotNull( builder.getKieContainer() );
+
+        } finally {
+            loadingExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBuilderKProjectHasDependencyParallelVerification() throws Exception {
+        final org.uberfire.java.nio.file.Path path = getProjectPath( "/GuvnorM2RepoDependencyExample2" );
+
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try {
+            final Builder serialBuilder = makeBuilder( path );
+            final Builder parallelBuilder = makeBuilder( path,
+                                                         new ArrayList<BuildValidationHelper>(),
+                                                         executor );
+
+            final BuildResults serialResults = serialBuilder.build();
+            final BuildResults parallelResults = parallelBuilder.build();
+
+            assertEquals( serialResults.getMessages(),
+                          parallelResults.getMessages() );
+            assertTrue( parallelBuilder.isBuilt() );
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = BuildCancelledException.class)
+    public void testBuilderCancelled() throws Exception {
+        final org.uberfire.java.nio.file.Path path = getProjectPath( "/GuvnorM2RepoDependencyExample1" );
+
+        final Builder builder = makeBuilder( path );
+
+        builder.cancel();
+        try {
+            builder.build();
+        } finally {
+            assertTrue( builder.isCancelled() );
+            assertFalse( builder.isBuilt() );
+        }
+    }
+
+    @Test
+    public void testBuilderRestoredFromSnapshot() throws Exception {
+        //Incremental changes modify the Project so operate on a copy
+        final File root = copyProject( "/GuvnorM2RepoDependencyExample1" );
+        final org.uberfire.java.nio.file.Path path = toPath( root );
+
+        final Builder builder = makeBuilder( path );
+        assertNull( builder.createSnapshot() );
+        final BuildResults results = builder.build();
+        final BuilderSnapshot snapshot = builder.createSnapshot();
+        assertNotNull( snapshot );
+        assertTrue( snapshot.hasBuildMessages() );
+
+        //Restoring saves compilation only; the new Builder still loads every resource to fingerprint the content
+        final Builder restoredBuilder = makeBuilder( path );
+        assertEquals( builder.getContentFingerprint(),
+                      restoredBuilder.getContentFingerprint() );
+        assertTrue( restoredBuilder.restore( snapshot ) );
+        assertTrue( restoredBuilder.isRestored() );
+        assertTrue( restoredBuilder.isBuilt() );
+        assertNotNull( restoredBuilder.getKieModule() );
+        assertNotNull( restoredBuilder.getKieContainer() );
+
+        //A full build of unchanged content returns the snapshot's results
+        final BuildResults restoredResults = restoredBuilder.build();
+        assertEquals( results.getMessages(),
+                      restoredResults.getMessages() );
+        assertTrue( restoredBuilder.isRestored() );
+
+        //Restored Builders can be built incrementally without a full build
+        final File drl = new File( root,
+                                   "src/main/resources/rule2.drl" );
+        write( drl,
+               "package " + PACKAGE_NAME + "\n\nrule R2\nwhen\nthen\nend\n" );
+        final IncrementalBuildResults incrementalResults = restoredBuilder.addResource( toPath( drl ) );
+        assertTrue( incrementalResults.getAddedMessages().isEmpty() );
+        assertFalse( restoredBuilder.isRestored() );
+        assertTrue( restoredBuilder.isBuilt() );
+        assertNotNull( restoredBuilder.getKieContainer() );
+
+        //Having compiled its KieModule the Builder can itself be snapshot
+        assertNotNull( restoredBuilder.createSnapshot() );
+    }
+
+    @Test
+    public void testBuilderNotRestoredFromSnapshotOfDifferentContent() throws Exception {
+        final Builder builder = makeBuilder( getProjectPath( "/GuvnorM2RepoDependencyExample1" ) );
+        builder.build();
+
+        final Builder otherBuilder = makeBuilder( getProjectPath( "/GuvnorM2RepoDependencyExample2" ) );
+        assertFalse( otherBuilder.restore( builder.createSnapshot() ) );
+        assertFalse( otherBuilder.isRestored() );
+    }
+
+    @Test
+    public void testBuildResultsOfUnchangedContent() throws Exception {
+        final org.uberfire.java.nio.file.Path path = getProjectPath( "/GuvnorM2RepoDependencyExample1" );
+
+        final Builder builder = makeBuilder( path );
+
+        //Fingerprints of the content on disk and that loaded by the Builder are the same
+        final String contentFingerprint = ContentFingerprints.fingerprint( ioService,
+                                                                          path );
+        assertEquals( contentFingerprint,
+                      builder.getContentFingerprint() );
+        assertFalse( builder.hasBuildResults() );
+        assertNull( builder.getBuildResults( contentFingerprint ) );
+
+        final BuildResults results = builder.build();
+        assertTrue( builder.hasBuildResults() );
+        assertSame( results,
+                    builder.getBuildResults( contentFingerprint ) );
+        assertNull( builder.getBuildResults( "changed" ) );
+    }
+
+    @Test
+    public void testRuleNamesUpdatedIncrementally() throws Exception {
+        //Incremental changes modify the Project so operate on a copy
+        final File root = copyProject( "/GuvnorM2RepoDependencyExample1" );
+        final org.uberfire.java.nio.file.Path path = toPath( root );
+
+        final Builder builder = makeBuilder( path );
+
+        final BuildResults results = builder.build();
+        assertTrue( results.getMessages().isEmpty() );
+
+        //A full build notifies the rule names of every package
+        final ArgumentCaptor<RuleNameUpdateEvent> fullEvent = ArgumentCaptor.forClass( RuleNameUpdateEvent.class );
+        verify( ruleNameUpdateEvent ).fire( fullEvent.capture() );
+        assertFalse( fullEvent.getValue().isDelta() );
+        assertTrue( fullEvent.getValue().getRuleNames().get( PACKAGE_NAME ).contains( "R1" ) );
+        assertTrue( fullEvent.getValue().getRuleNames().containsKey( "defaultpkg" ) );
+
+        //An incremental build notifies the rule names added and removed
+        final File drl = new File( root,
+                                   "src/main/resources/rule2.drl" );
+        write( drl,
+               "package " + PACKAGE_NAME + "\n\nrule R2\nwhen\nthen\nend\n" );
+        builder.addResource( toPath( drl ) );
+
+        final ArgumentCaptor<RuleNameUpdateEvent> deltaEvent = ArgumentCaptor.forClass( RuleNameUpdateEvent.class );
+        verify( ruleNameUpdateEvent,
+                times( 2 ) ).fire( deltaEvent.capture() );
+        assertTrue( deltaEvent.getValue().isDelta() );
+        assertEquals( 1,
+                      deltaEvent.getValue().getAddedRuleNames().size() );
+        assertEquals( 1,
+                      deltaEvent.getValue().getAddedRuleNames().get( PACKAGE_NAME ).size() );
+        assertTrue( deltaEvent.getValue().getAddedRuleNames().get( PACKAGE_NAME ).contains( "R2" ) );
+        assertTrue( deltaEvent.getValue().getRemovedRuleNames().isEmpty() );
+        assertTrue( deltaEvent.getValue().getRuleNames().get( PACKAGE_NAME ).contains( "R1" ) );
+        assertTrue( deltaEvent.getValue().getRuleNames().get( PACKAGE_NAME ).contains( "R2" ) );
+
+        //Deleting the resource removes its rule names
+        drl.delete();
+        builder.deleteResource( toPath( drl ) );
+
+        verify( ruleNameUpdateEvent,
+                times( 3 ) ).fire( deltaEvent.capture() );
+        assertTrue( deltaEvent.getValue().isDelta() );
+        assertTrue( deltaEvent.getValue().getAddedRuleNames().isEmpty() );
+        assertTrue( deltaEvent.getValue().getRemovedRuleNames().get( PACKAGE_NAME ).contains( "R2" ) );
+        assertFalse( deltaEvent.getValue().getRuleNames().get( PACKAGE_NAME ).contains( "R2" ) );
+    }
+
+    @Test
+    public void testKieContainerAvailabilityFollowsIncrementalBuilds() throws Exception {
+        //Incremental changes modify the Project so operate on a copy
+        final File root = copyProject( "/GuvnorM2RepoDependencyExample1" );
+        final org.uberfire.java.nio.file.Path path = toPath( root );
+
+        final Builder builder = makeBuilder( path );
+        assertTrue( builder.build().getMessages().isEmpty() );
+        assertNotNull( builder.getKieContainer() );
+
+        //An error introduced incrementally makes the KieContainer unavailable until it is removed
+        final File drl = new File( root,
+                                   "src/main/resources/rule2.drl" );
+        write( drl,
+               "package " + PACKAGE_NAME + "\n\nrule R2\nwhen\n  Undefined()\nthen\nend\n" );
+        assertFalse( builder.addResource( toPath( drl ) ).getAddedMessages().isEmpty() );
+        assertNull( builder.getKieContainer() );
+
+        drl.delete();
+        builder.deleteResource( toPath( drl ) );
+        assertNotNull( builder.getKieContainer() );
+    }
+
+    @Test
+    public void testDependentResourcesRecompiledIncrementally() throws Exception {
+        //Incremental changes modify the Project so operate on a copy
+        final File root = copyProject( "/GuvnorM2RepoDependencyExample1" );
+        final org.uberfire.java.nio.file.Path path = toPath( root );
+
+        final Builder builder = makeBuilder( path );
+        assertTrue( builder.build().getMessages().isEmpty() );
+
+        //rule1.drl uses Bean.getValue(), which is removed. Only Bean.java changes but rule1.drl is rechecked
+        final File bean = new File( root,
+                                    "src/main/java/org/kie/workbench/common/services/builder/tests/test1/Bean.java" );
+        write( bean,
+               "package " + PACKAGE_NAME + ";\n\npublic class Bean {\n  public Bean(int value) {\n  }\n}\n" );
+        final IncrementalBuildResults results = builder.updateResource( toPath( bean ) );
+
+        boolean isDependentError = false;
+        for ( BuildMessage message : results.getAddedMessages() ) {
+            if ( message.getLevel() == BuildMessage.Level.ERROR && message.getPath() != null && message.getPath().getFileName().equals( "rule1.drl" ) ) {
+                isDependentError = true;
+            }
+        }
+        assertTrue( isDependentError );
+    }
+
+    @Test
+    public void testNonKieResourcesValidatedInParallel() throws Exception {
+        final File root = copyProject( "/GuvnorM2RepoDependencyExample1" );
+        for ( String fileName : new String[]{ "e.txt", "c.txt", "a.txt", "d.txt", "b.txt" } ) {
+            write( new File( root,
+                             "src/main/resources/" + fileName ),
+                   fileName );
+        }
+        final org.uberfire.java.nio.file.Path path = toPath( root );
+
+        //Each validation waits for all others to start, so can only complete if all are run in parallel
+        final CyclicBarrier barrier = new CyclicBarrier( 5 );
+        final List<BuildValidationHelper> buildValidationHelpers = new ArrayList<BuildValidationHelper>();
+        buildValidationHelpers.add( new BuildValidationHelper() {
+            @Override
+            public boolean accepts( final Path path ) {
+                return path.getFileName().endsWith( ".txt" );
+            }
+
+            @Override
+            public List<ValidationMessage> validate( final Path path ) {
+                try {
+                    barrier.await( 30,
+                                   TimeUnit.SECONDS );
+                } catch ( Exception e ) {
+                    throw new IllegalStateException( e );
+                }
+                final ValidationMessage message = new ValidationMessage();
+                message.setLevel( ValidationMessage.Level.WARNING );
+                message.setText( path.getFileName() );
+                final List<ValidationMessage> messages = new ArrayList<ValidationMessage>();
+                messages.add( message );
+                return messages;
+            }
+        } );
+
+        final ExecutorService executor = Executors.newFixedThreadPool( 5 );
+        try {
+            final Builder builder = makeBuilder( path,
+                                                 buildValidationHelpers,
+                                                 executor );
+            final BuildResults results = builder.build();
+
+            //Messages are merged in the order of the validated resources' paths
+            final List<String> texts = new ArrayList<String>();
+            for ( BuildMessage message : results.getWarningMessages() ) {
+                texts.add( message.getText() );
+            }
+            assertEquals( Arrays.asList( "a.txt",
+                                         "b.txt",
+                                         "c.txt",
+                                         "d.txt",
+                                         "e.txt" ),
+                          texts );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private org.uberfire.java.nio.file.Path getProjectPath( final String resourceName ) throws URISyntaxException {
+        return new SimpleFileSystemProvider().getPath( this.getClass().getResource( resourceName ).toURI() );
+    }
+
+    //Copy of a Project provided as a test resource, into the temporary folder
+    private File copyProject( final String resourceName ) throws URISyntaxException, IOException {
+        final File root = temporaryFolder.newFolder( resourceName.substring( 1 ) );
+        copy( new File( this.getClass().getResource( resourceName ).toURI() ),
+              root );
+        return root;
+    }
+
+    private org.uberfire.java.nio.file.Path toPath( final File file ) {
+        return new SimpleFileSystemProvider().getPath( file.toURI() );
+    }
+
+    private Builder makeBuilder( final org.uberfire.java.nio.file.Path path ) {
+        return makeBuilder( path,
+                            new ArrayList<BuildValidationHelper>() );
+    }
+
+    private Builder makeBuilder( final org.uberfire.java.nio.file.Path path,
+                                 final List<BuildValidationHelper> buildValidationHelpers ) {
+        return makeBuilder( path,
+                            buildValidationHelpers,
+                            null );
+    }
+
+    private Builder makeBuilder( final org.uberfire.java.nio.file.Path path,
+                                 final List<BuildValidationHelper> buildValidationHelpers,
+                                 final ExecutorService executor ) {
+        return new Builder( project,
+                            path,
+                            new GAV(),
+                            ioService,
+                            projectService,
+                            ruleNameUpdateEvent,
+                            buildValidationHelpers,
+                            BuilderSettings.newSettings().withLoadingExecutor( executor ) );
+    }
+
+    private void copy( final File source,
+                       final File destination ) throws IOException {
+        if ( source.isDirectory() ) {
+            destination.mkdirs();
+            for ( String child : source.list() ) {
+                copy( new File( source,
+                                child ),
+                      new File( destination,
+                                child ) );
+            }
+            return;
+        }
+        final InputStream is = new FileInputStream( source );
+        try {
+            final OutputStream os = new FileOutputStream( destination );
+            try {
+                final byte[] buffer = new byte[ 8192 ];
+                int read;
+                while ( ( read = is.read( buffer ) ) != -1 ) {
+                    os.write( buffer,
+                              0,
+                              read );
+                }
+            } finally {
+                os.close();
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    private void write( final File file,
+                        final String content ) throws IOException {
+        final OutputStream os = new FileOutputStream( file );
+        try {
+            os.write( content.getBytes( "UTF-8" ) );
+        } finally {
+            os.close();
+        }
+    }
+
     private <T> T getReference( Class<T> clazz ) {
         Bean bean = (Bean) beanManager.getBeans( clazz ).iterator().next();
         CreationalContext cc = beanManager.createCreationalContext( bean );
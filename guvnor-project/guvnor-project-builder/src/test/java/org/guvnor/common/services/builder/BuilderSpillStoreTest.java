@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.io.File;
+
+import org.guvnor.common.services.project.model.Project;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.uberfire.backend.vfs.Path;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class BuilderSpillStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private BuilderSpillStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new BuilderSpillStore( temporaryFolder.newFolder( "spill" ) );
+    }
+
+    @After
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    public void testSpillAndRestore() throws Exception {
+        final Project project = makeProject( "file:///project1" );
+        final Builder evictedBuilder = mock( Builder.class );
+        when( evictedBuilder.createSnapshot() ).thenReturn( new BuilderSnapshot( "fingerprint",
+                                                                                 new byte[]{ 1, 2, 3 },
+                                                                                 null ) );
+        store.spill( project,
+                     evictedBuilder );
+        waitForSnapshots( 1 );
+
+        final Builder builder = mock( Builder.class );
+        when( builder.restore( any( BuilderSnapshot.class ) ) ).thenReturn( true );
+        assertTrue( store.restore( project,
+                                   builder ) );
+
+        final ArgumentCaptor<BuilderSnapshot> snapshotCaptor = ArgumentCaptor.forClass( BuilderSnapshot.class );
+        verify( builder ).restore( snapshotCaptor.capture() );
+        assertEquals( "fingerprint",
+                      snapshotCaptor.getValue().getContentFingerprint() );
+        assertArrayEquals( new byte[]{ 1, 2, 3 },
+                           snapshotCaptor.getValue().getKieModule() );
+    }
+
+    @Test
+    public void testStaleSnapshotIsDiscarded() throws Exception {
+        final Project project = makeProject( "file:///project1" );
+        final Builder evictedBuilder = mock( Builder.class );
+        when( evictedBuilder.createSnapshot() ).thenReturn( new BuilderSnapshot( "fingerprint",
+                                                                                 new byte[]{ 1, 2, 3 },
+                                                                                 null ) );
+        store.spill( project,
+                     evictedBuilder );
+        waitForSnapshots( 1 );
+
+        //Builder's content differs from that of the snapshot
+        final Builder builder = mock( Builder.class );
+        when( builder.restore( any( BuilderSnapshot.class ) ) ).thenReturn( false );
+        assertFalse( store.restore( project,
+                                    builder ) );
+        assertEquals( 0,
+                      store.getDirectory().listFiles().length );
+    }
+
+    @Test
+    public void testRestoreWithoutSnapshot() throws Exception {
+        final Builder builder = mock( Builder.class );
+        assertFalse( store.restore( makeProject( "file:///project2" ),
+                                    builder ) );
+        verify( builder,
+                never() ).restore( any( BuilderSnapshot.class ) );
+    }
+
+    private Project makeProject( final String uri ) {
+        final Path rootPath = mock( Path.class );
+        when( rootPath.toURI() ).thenReturn( uri );
+        final Project project = mock( Project.class );
+        when( project.getRootPath() ).thenReturn( rootPath );
+        return project;
+    }
+
+    private void waitForSnapshots( final int count ) throws InterruptedException {
+        final long timeout = System.currentTimeMillis() + 10000;
+        while ( System.currentTimeMillis() < timeout ) {
+            final File[] files = store.getDirectory().listFiles();
+            if ( files.length == count && files[ 0 ].getName().endsWith( ".snapshot" ) ) {
+                return;
+            }
+            Thread.sleep( 10 );
+        }
+        fail( "Snapshots were not written" );
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompilationThrottleTest {
+
+    @Test
+    public void testConcurrentCompilationsAreBounded() throws Exception {
+        final CompilationThrottle throttle = new CompilationThrottle( 2 );
+        final ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch( 40 );
+        try {
+            for ( int i = 0; i < 40; i++ ) {
+                executor.execute( new Runnable() {
+                    @Override
+                    public void run() {
+                        final CompilationThrottle.Permit permit = throttle.acquire();
+                        try {
+                            final int current = running.incrementAndGet();
+                            synchronized ( maxRunning ) {
+                                maxRunning.set( Math.max( maxRunning.get(),
+                                                          current ) );
+                            }
+                            Thread.sleep( 1 );
+                        } catch ( InterruptedException e ) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            running.decrementAndGet();
+                            permit.release();
+                            done.countDown();
+                        }
+                    }
+                } );
+            }
+            assertTrue( done.await( 30,
+                                    TimeUnit.SECONDS ) );
+            assertTrue( maxRunning.get() <= 2 );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPermitReleasedOnce() throws Exception {
+        final CompilationThrottle throttle = new CompilationThrottle( 1 );
+        final CompilationThrottle.Permit permit = throttle.acquire();
+        permit.release();
+        permit.release();
+
+        //A second release of the same Permit must not allow two compilations to run concurrently
+        final CompilationThrottle.Permit permit1 = throttle.acquire();
+        final CountDownLatch acquired = new CountDownLatch( 1 );
+        final Thread thread = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                throttle.acquire().release();
+                acquired.countDown();
+            }
+        } );
+        thread.start();
+        assertFalse( acquired.await( 100,
+                                     TimeUnit.MILLISECONDS ) );
+        permit1.release();
+        assertTrue( acquired.await( 30,
+                                    TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void testUnbounded() {
+        final CompilationThrottle throttle = new CompilationThrottle();
+        assertEquals( 0,
+                      throttle.getMaxConcurrentCompilations() );
+        for ( int i = 0; i < 100; i++ ) {
+            throttle.acquire();
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ExternalClassVerificationCacheTest {
+
+    @Test
+    public void testOutcomesAreSharedForSameDependencies() {
+        final ExternalClassVerificationCache cache = new ExternalClassVerificationCache();
+        final Collection<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add( Test.class );
+        classes.add( Assert.class );
+
+        final Map<String, ExternalClassVerificationCache.Outcome> verifications = cache.getVerifications( classes );
+        verifications.put( Test.class.getName(),
+                           ExternalClassVerificationCache.Outcome.VERIFIED );
+
+        assertSame( verifications,
+                    cache.getVerifications( classes ) );
+        assertEquals( ExternalClassVerificationCache.Outcome.VERIFIED,
+                      cache.getVerifications( classes ).get( Test.class.getName() ) );
+    }
+
+    @Test
+    public void testOutcomesAreNotSharedForDifferentDependencies() {
+        final ExternalClassVerificationCache cache = new ExternalClassVerificationCache();
+        final Collection<Class<?>> junitClasses = new ArrayList<Class<?>>();
+        junitClasses.add( Test.class );
+        final Collection<Class<?>> mockitoClasses = new ArrayList<Class<?>>();
+        mockitoClasses.add( org.mockito.Mockito.class );
+
+        assertNotSame( cache.getVerifications( junitClasses ),
+                       cache.getVerifications( mockitoClasses ) );
+    }
+
+    @Test
+    public void testOutcomesAreNotRecordedForDirectories() {
+        final ExternalClassVerificationCache cache = new ExternalClassVerificationCache();
+        final Collection<Class<?>> classes = new ArrayList<Class<?>>();
+        classes.add( ExternalClassVerificationCacheTest.class );
+
+        final Map<String, ExternalClassVerificationCache.Outcome> verifications = cache.getVerifications( classes );
+        verifications.put( ExternalClassVerificationCacheTest.class.getName(),
+                           ExternalClassVerificationCache.Outcome.VERIFIED );
+
+        assertTrue( cache.getVerifications( classes ).isEmpty() );
+    }
+
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.guvnor.common.services.project.model.Project;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LRUBuilderCacheTest {
+
+    private LRUBuilderCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new LRUBuilderCache();
+    }
+
+    @Test
+    public void testEvictionByEntries() {
+        cache.configure( 2,
+                         0,
+                         LRUBuilderCache.ReferenceTier.NONE );
+        final Project project1 = mock( Project.class );
+        final Project project2 = mock( Project.class );
+        final Project project3 = mock( Project.class );
+        cache.setEntry( project1,
+                        makeBuilder( 10 ) );
+        cache.setEntry( project2,
+                        makeBuilder( 10 ) );
+
+        //Access project1 so project2 becomes the least recently used
+        assertNotNull( cache.getEntry( project1 ) );
+        cache.setEntry( project3,
+                        makeBuilder( 10 ) );
+
+        assertNotNull( cache.getEntry( project1 ) );
+        assertNull( cache.getEntry( project2 ) );
+        assertNotNull( cache.getEntry( project3 ) );
+
+        final BuilderCacheStatistics statistics = cache.getStatistics();
+        assertEquals( 3,
+                      statistics.getHitCount() );
+        assertEquals( 1,
+                      statistics.getMissCount() );
+        assertEquals( 1,
+                      statistics.getEvictionCount() );
+        assertEquals( 2,
+                      statistics.getEntryCount() );
+    }
+
+    @Test
+    public void testEvictionByWeight() {
+        cache.configure( 20,
+                         100,
+                         LRUBuilderCache.ReferenceTier.NONE );
+        final Project smallProject1 = mock( Project.class );
+        final Project smallProject2 = mock( Project.class );
+        final Project largeProject = mock( Project.class );
+        cache.setEntry( smallProject1,
+                        makeBuilder( 10 ) );
+        cache.setEntry( smallProject2,
+                        makeBuilder( 10 ) );
+        cache.setEntry( largeProject,
+                        makeBuilder( 85 ) );
+
+        assertNull( cache.getEntry( smallProject1 ) );
+        assertNotNull( cache.getEntry( smallProject2 ) );
+        assertNotNull( cache.getEntry( largeProject ) );
+        assertEquals( 95,
+                      cache.getStatistics().getTotalWeight() );
+    }
+
+    @Test
+    public void testMostRecentlyUsedBuilderIsNotEvicted() {
+        cache.configure( 20,
+                         100,
+                         LRUBuilderCache.ReferenceTier.NONE );
+        final Project project = mock( Project.class );
+        cache.setEntry( project,
+                        makeBuilder( 1000 ) );
+
+        assertNotNull( cache.getEntry( project ) );
+        assertEquals( 0,
+                      cache.getStatistics().getEvictionCount() );
+    }
+
+    @Test
+    public void testEvictedBuilderRestoredFromReferenceTier() {
+        cache.configure( 1,
+                         0,
+                         LRUBuilderCache.ReferenceTier.SOFT );
+        final Project project1 = mock( Project.class );
+        final Project project2 = mock( Project.class );
+        final Builder builder1 = makeBuilder( 10 );
+        cache.setEntry( project1,
+                        builder1 );
+        cache.setEntry( project2,
+                        makeBuilder( 10 ) );
+
+        assertEquals( 1,
+                      cache.getStatistics().getEntryCount() );
+        assertSame( builder1,
+                    cache.getEntry( project1 ) );
+        assertEquals( 1,
+                      cache.getStatistics().getReferenceHitCount() );
+    }
+
+    @Test
+    public void testInvalidatedBuilderNotRestoredFromReferenceTier() {
+        cache.configure( 1,
+                         0,
+                         LRUBuilderCache.ReferenceTier.SOFT );
+        final Project project1 = mock( Project.class );
+        final Project project2 = mock( Project.class );
+        cache.setEntry( project1,
+                        makeBuilder( 10 ) );
+        cache.setEntry( project2,
+                        makeBuilder( 10 ) );
+        cache.invalidateCache( project1 );
+
+        assertNull( cache.getEntry( project1 ) );
+    }
+
+    @Test
+    public void testKieContainerReleasedBeforeEviction() {
+        cache.configure( 20,
+                         100,
+                         LRUBuilderCache.ReferenceTier.NONE );
+        final Project project1 = mock( Project.class );
+        final Project project2 = mock( Project.class );
+
+        //The Builder's estimated size falls once its KieContainer has been released
+        final AtomicBoolean hasKieContainer = new AtomicBoolean( true );
+        final Builder builder1 = mock( Builder.class );
+        when( builder1.getEstimatedSize() ).thenAnswer( new Answer<Long>() {
+            @Override
+            public Long answer( final InvocationOnMock invocation ) {
+                return hasKieContainer.get() ? 85L : 25L;
+            }
+        } );
+        when( builder1.releaseKieContainer() ).thenAnswer( new Answer<Boolean>() {
+            @Override
+            public Boolean answer( final InvocationOnMock invocation ) {
+                return hasKieContainer.getAndSet( false );
+            }
+        } );
+        cache.setEntry( project1,
+                        builder1 );
+        cache.setEntry( project2,
+                        makeBuilder( 50 ) );
+
+        assertSame( builder1,
+                    cache.getEntry( project1 ) );
+        assertNotNull( cache.getEntry( project2 ) );
+        final BuilderCacheStatistics statistics = cache.getStatistics();
+        assertEquals( 0,
+                      statistics.getEvictionCount() );
+        assertEquals( 1,
+                      statistics.getContainerReleaseCount() );
+        assertEquals( 75,
+                      statistics.getTotalWeight() );
+    }
+
+    @Test
+    public void testUserBuildIsNotCancelled() {
+        cache = makeFullBuilderCache();
+        final Project project = mock( Project.class );
+        final Builder userBuilder = cache.assertFullBuilder( project );
+        final Builder scheduledBuilder = cache.assertFullBuilder( project,
+                                                                  new Object() );
+
+        verify( userBuilder,
+                never() ).cancel();
+        assertSame( scheduledBuilder,
+                    cache.getEntry( project ) );
+    }
+
+    @Test
+    public void testUserBuildCancelsBackgroundBuild() {
+        cache = makeFullBuilderCache();
+        final Project project = mock( Project.class );
+        final Builder backgroundBuilder = cache.assertFullBuilder( project,
+                                                                   makeBuildTask( project,
+                                                                                  BuildPriority.BACKGROUND ) );
+        final Builder userBuilder = cache.assertFullBuilder( project );
+
+        verify( backgroundBuilder ).cancel();
+        assertSame( userBuilder,
+                    cache.getEntry( project ) );
+    }
+
+    @Test
+    public void testUserBuildDoesNotCancelScheduledBuild() {
+        cache = makeFullBuilderCache();
+        final Project project = mock( Project.class );
+        final Builder scheduledBuilder = cache.assertFullBuilder( project,
+                                                                  makeBuildTask( project,
+                                                                                 BuildPriority.USER ) );
+        cache.assertFullBuilder( project );
+
+        verify( scheduledBuilder,
+                never() ).cancel();
+    }
+
+    @Test
+    public void testSupersededScheduledBuildIsCancelled() {
+        cache = makeFullBuilderCache();
+        final Project project = mock( Project.class );
+        final Builder builder1 = cache.assertFullBuilder( project,
+                                                          new Object() );
+        final Builder builder2 = cache.assertFullBuilder( project,
+                                                          new Object() );
+
+        verify( builder1 ).cancel();
+        verify( builder2,
+                never() ).cancel();
+        assertSame( builder2,
+                    cache.getEntry( project ) );
+    }
+
+    @Test
+    public void testCancelFullBuildCancelsOnlyBuildWithToken() {
+        cache = makeFullBuilderCache();
+        final Project project = mock( Project.class );
+        final Object token = new Object();
+        final Builder scheduledBuilder = cache.assertFullBuilder( project,
+                                                                  token );
+        final Builder userBuilder = cache.assertFullBuilder( project );
+
+        cache.cancelFullBuild( token );
+
+        verify( scheduledBuilder ).cancel();
+        verify( userBuilder,
+                never() ).cancel();
+        assertSame( userBuilder,
+                    cache.getEntry( project ) );
+    }
+
+    @Test
+    public void testCompletedBuildIsNotCancelled() {
+        cache = makeFullBuilderCache();
+        final Project project = mock( Project.class );
+        final Object token = new Object();
+        final Builder builder = cache.assertFullBuilder( project,
+                                                         token );
+        cache.fullBuildCompleted( project,
+                                  builder );
+
+        cache.cancelFullBuild( token );
+
+        verify( builder,
+                never() ).cancel();
+        assertSame( builder,
+                    cache.getEntry( project ) );
+    }
+
+    @Test
+    public void testBuilderMadeWithoutHoldingLock() throws Exception {
+        final Project slowProject = mock( Project.class );
+        final Project project = mock( Project.class );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicInteger slowBuilders = new AtomicInteger();
+        cache = new LRUBuilderCache() {
+            @Override
+            Builder makeBuilder( final Project p ) {
+                if ( p == slowProject ) {
+                    slowBuilders.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return LRUBuilderCacheTest.this.makeBuilder( 10 );
+            }
+        };
+        cache.configure( 20,
+                         0,
+                         LRUBuilderCache.ReferenceTier.NONE );
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try {
+            final Callable<Builder> assertSlowBuilder = new Callable<Builder>() {
+                @Override
+                public Builder call() throws Exception {
+                    return cache.assertBuilder( slowProject );
+                }
+            };
+            final Future<Builder> slowBuilder1 = executor.submit( assertSlowBuilder );
+            assertTrue( started.await( 10,
+                                       TimeUnit.SECONDS ) );
+            final Future<Builder> slowBuilder2 = executor.submit( assertSlowBuilder );
+
+            //Another Project's Builder is made whilst the slow Project's Builder is still being made
+            assertNotNull( cache.assertBuilder( project ) );
+            assertFalse( slowBuilder1.isDone() );
+
+            release.countDown();
+            assertSame( slowBuilder1.get( 10,
+                                          TimeUnit.SECONDS ),
+                        slowBuilder2.get( 10,
+                                          TimeUnit.SECONDS ) );
+            assertEquals( 1,
+                          slowBuilders.get() );
+            assertSame( slowBuilder1.get(),
+                        cache.getEntry( slowProject ) );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private LRUBuilderCache makeFullBuilderCache() {
+        final LRUBuilderCache cache = new LRUBuilderCache() {
+            @Override
+            Builder makeBuilder( final Project project ) {
+                return LRUBuilderCacheTest.this.makeBuilder( 10 );
+            }
+        };
+        cache.configure( 20,
+                         0,
+                         LRUBuilderCache.ReferenceTier.NONE );
+        return cache;
+    }
+
+    private BuildTask makeBuildTask( final Project project,
+                                     final BuildPriority priority ) {
+        return new BuildTask( project,
+                              priority ) {
+            @Override
+            public void run() {
+            }
+        };
+    }
+
+    private Builder makeBuilder( final long estimatedSize ) {
+        final Builder builder = mock( Builder.class );
+        when( builder.getEstimatedSize() ).thenReturn( estimatedSize );
+        return builder;
+    }
+
+}
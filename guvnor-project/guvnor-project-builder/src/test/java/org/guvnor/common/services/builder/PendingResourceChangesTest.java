@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.junit.Test;
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.workbench.events.ResourceAdded;
+import org.uberfire.workbench.events.ResourceChange;
+import org.uberfire.workbench.events.ResourceChangeType;
+import org.uberfire.workbench.events.ResourceDeleted;
+import org.uberfire.workbench.events.ResourceUpdated;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class PendingResourceChangesTest {
+
+    @Test
+    public void testRepeatedUpdatesAreCoalesced() {
+        final Path path = mock( Path.class );
+        final PendingResourceChanges changes = new PendingResourceChanges();
+        for ( int i = 0; i < 5; i++ ) {
+            changes.addChange( path,
+                               new ResourceUpdated() );
+        }
+
+        final Map<Path, Collection<ResourceChange>> batch = changes.toBatch();
+        assertEquals( 1,
+                      batch.size() );
+        assertEquals( 1,
+                      batch.get( path ).size() );
+        assertEquals( ResourceChangeType.UPDATE,
+                      batch.get( path ).iterator().next().getType() );
+    }
+
+    @Test
+    public void testAddThenDeleteCancelsOut() {
+        final Path path = mock( Path.class );
+        final PendingResourceChanges changes = new PendingResourceChanges();
+        changes.addChange( path,
+                           new ResourceAdded() );
+        changes.addChange( path,
+                           new ResourceUpdated() );
+        changes.addChange( path,
+                           new ResourceDeleted() );
+
+        assertTrue( changes.isEmpty() );
+        assertTrue( changes.toBatch().isEmpty() );
+    }
+
+    @Test
+    public void testAddThenUpdateRemainsAdd() {
+        final Path path = mock( Path.class );
+        final PendingResourceChanges changes = new PendingResourceChanges();
+        changes.addChange( path,
+                           new ResourceAdded() );
+        changes.addChange( path,
+                           new ResourceUpdated() );
+
+        assertEquals( ResourceChangeType.ADD,
+                      changes.toBatch().get( path ).iterator().next().getType() );
+    }
+
+    @Test
+    public void testLatestChangeWins() {
+        final Path path1 = mock( Path.class );
+        final Path path2 = mock( Path.class );
+        final PendingResourceChanges changes = new PendingResourceChanges();
+        changes.addChange( path1,
+                           new ResourceUpdated() );
+        changes.addChange( path2,
+                           new ResourceUpdated() );
+        changes.addChange( path1,
+                           new ResourceDeleted() );
+
+        final Map<Path, Collection<ResourceChange>> batch = changes.toBatch();
+        assertEquals( 2,
+                      batch.size() );
+        assertEquals( ResourceChangeType.DELETE,
+                      batch.get( path1 ).iterator().next().getType() );
+        assertEquals( ResourceChangeType.UPDATE,
+                      batch.get( path2 ).iterator().next().getType() );
+    }
+
+}
@@ -0,0 +1,673 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.guvnor.common.services.project.model.Project;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ProjectBuildExecutorTest {
+
+    private ExecutorService executor;
+    private ProjectBuildExecutor projectBuildExecutor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool( 4 );
+        projectBuildExecutor = new ProjectBuildExecutor( executor );
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testQueueWaitIsRecorded() throws Exception {
+        final BuildMetrics buildMetrics = new BuildMetrics();
+        projectBuildExecutor.setBuildMetrics( buildMetrics );
+        final Project project = mock( Project.class );
+        final CountDownLatch done = new CountDownLatch( 10 );
+
+        for ( int i = 0; i < 10; i++ ) {
+            projectBuildExecutor.execute( new BuildTask( project ) {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            } );
+        }
+
+        assertTrue( done.await( 30,
+                                TimeUnit.SECONDS ) );
+        assertEquals( 10,
+                      buildMetrics.getTiming( BuildPhase.QUEUE_WAIT ).getCount() );
+    }
+
+    @Test
+    public void testTasksForOneProjectRunSerially() throws Exception {
+        final Project project = mock( Project.class );
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch( 50 );
+
+        for ( int i = 0; i < 50; i++ ) {
+            projectBuildExecutor.execute( new BuildTask( project ) {
+                @Override
+                public void run() {
+                    final int current = running.incrementAndGet();
+                    synchronized ( maxRunning ) {
+                        maxRunning.set( Math.max( maxRunning.get(),
+                                                  current ) );
+                    }
+                    try {
+                        Thread.sleep( 1 );
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            } );
+        }
+
+        assertTrue( done.await( 30,
+                                TimeUnit.SECONDS ) );
+        assertEquals( 1,
+                      maxRunning.get() );
+    }
+
+    @Test
+    public void testBusyProjectDoesNotBlockOtherProjects() throws Exception {
+        final Project hotProject = mock( Project.class );
+        final Project otherProject = mock( Project.class );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final CountDownLatch otherDone = new CountDownLatch( 1 );
+
+        for ( int i = 0; i < 10; i++ ) {
+            projectBuildExecutor.execute( new BuildTask( hotProject ) {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            } );
+        }
+        projectBuildExecutor.execute( new BuildTask( otherProject ) {
+            @Override
+            public void run() {
+                otherDone.countDown();
+            }
+        } );
+
+        assertTrue( otherDone.await( 10,
+                                     TimeUnit.SECONDS ) );
+        assertTrue( projectBuildExecutor.getQueuedTasks( hotProject ).size() >= 9 );
+        release.countDown();
+    }
+
+    @Test
+    public void testQueuedTasksAreMerged() throws Exception {
+        final Project project = mock( Project.class );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final CountDownLatch done = new CountDownLatch( 1 );
+        final AtomicInteger executions = new AtomicInteger();
+
+        //Block the lane so subsequent tasks are queued
+        projectBuildExecutor.execute( new BuildTask( project ) {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } );
+        assertTrue( started.await( 10,
+                                   TimeUnit.SECONDS ) );
+
+        for ( int i = 0; i < 5; i++ ) {
+            projectBuildExecutor.execute( new MergingTask( project,
+                                                           executions,
+                                                           done ) );
+        }
+        assertEquals( 1,
+                      projectBuildExecutor.getQueuedTasks( project ).size() );
+
+        release.countDown();
+        assertTrue( done.await( 10,
+                                TimeUnit.SECONDS ) );
+        assertEquals( 1,
+                      executions.get() );
+    }
+
+    @Test
+    public void testSupersededTasksAreDroppedAndCancelled() throws Exception {
+        final Project project = mock( Project.class );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final CountDownLatch done = new CountDownLatch( 1 );
+        final AtomicInteger executions = new AtomicInteger();
+        final AtomicInteger cancellations = new AtomicInteger();
+
+        //Block the lane so subsequent tasks are queued
+        projectBuildExecutor.execute( new BuildTask( project ) {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void cancel() {
+                cancellations.incrementAndGet();
+                release.countDown();
+            }
+        } );
+        assertTrue( started.await( 10,
+                                   TimeUnit.SECONDS ) );
+
+        for ( int i = 0; i < 3; i++ ) {
+            projectBuildExecutor.execute( new BuildTask( project ) {
+                @Override
+                public void run() {
+                    executions.incrementAndGet();
+                }
+            } );
+        }
+        projectBuildExecutor.execute( new BuildTask( project ) {
+            @Override
+            public boolean supersedes( final BuildTask task ) {
+                return true;
+            }
+
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        } );
+
+        assertTrue( done.await( 10,
+                                TimeUnit.SECONDS ) );
+        assertEquals( 0,
+                      executions.get() );
+        assertEquals( 1,
+                      cancellations.get() );
+    }
+
+    @Test
+    public void testTasksRunInPriorityOrder() throws Exception {
+        final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final ProjectBuildExecutor priorityExecutor = new ProjectBuildExecutor( singleThreadExecutor,
+                                                                                    0 );
+            final CountDownLatch started = new CountDownLatch( 1 );
+            final CountDownLatch release = new CountDownLatch( 1 );
+            final CountDownLatch done = new CountDownLatch( 3 );
+            final List<BuildPriority> executionOrder = Collections.synchronizedList( new ArrayList<BuildPriority>() );
+
+            //Occupy the only worker so subsequent tasks are queued
+            priorityExecutor.execute( new BlockingTask( mock( Project.class ),
+                                                        started,
+                                                        release ) );
+            assertTrue( started.await( 10,
+                                       TimeUnit.SECONDS ) );
+
+            priorityExecutor.execute( new RecordingTask( mock( Project.class ),
+                                                         BuildPriority.BACKGROUND,
+                                                         executionOrder,
+                                                         done ) );
+            priorityExecutor.execute( new RecordingTask( mock( Project.class ),
+                                                         BuildPriority.USER,
+                                                         executionOrder,
+                                                         done ) );
+            priorityExecutor.execute( new RecordingTask( mock( Project.class ),
+                                                         BuildPriority.INTERACTIVE,
+                                                         executionOrder,
+                                                         done ) );
+            for ( BuildPriority priority : BuildPriority.values() ) {
+                assertEquals( 1,
+                              priorityExecutor.getQueueDepth( priority ) );
+            }
+
+            release.countDown();
+            assertTrue( done.await( 10,
+                                    TimeUnit.SECONDS ) );
+            assertEquals( Arrays.asList( BuildPriority.INTERACTIVE,
+                                         BuildPriority.USER,
+                                         BuildPriority.BACKGROUND ),
+                          executionOrder );
+            assertEquals( 0,
+                          priorityExecutor.getQueueDepth( BuildPriority.BACKGROUND ) );
+        } finally {
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitingTasksAreAged() throws Exception {
+        final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final ProjectBuildExecutor priorityExecutor = new ProjectBuildExecutor( singleThreadExecutor,
+                                                                                    10 );
+            final CountDownLatch started = new CountDownLatch( 1 );
+            final CountDownLatch release = new CountDownLatch( 1 );
+            final CountDownLatch done = new CountDownLatch( 2 );
+            final List<BuildPriority> executionOrder = Collections.synchronizedList( new ArrayList<BuildPriority>() );
+
+            priorityExecutor.execute( new BlockingTask( mock( Project.class ),
+                                                        started,
+                                                        release ) );
+            assertTrue( started.await( 10,
+                                       TimeUnit.SECONDS ) );
+
+            //The background task waits long enough to be raised above the interactive task
+            priorityExecutor.execute( new RecordingTask( mock( Project.class ),
+                                                         BuildPriority.BACKGROUND,
+                                                         executionOrder,
+                                                         done ) );
+            Thread.sleep( 100 );
+            priorityExecutor.execute( new RecordingTask( mock( Project.class ),
+                                                         BuildPriority.INTERACTIVE,
+                                                         executionOrder,
+                                                         done ) );
+
+            release.countDown();
+            assertTrue( done.await( 10,
+                                    TimeUnit.SECONDS ) );
+            assertEquals( Arrays.asList( BuildPriority.BACKGROUND,
+                                         BuildPriority.INTERACTIVE ),
+                          executionOrder );
+        } finally {
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTasksDroppedWhenQueueFull() throws Exception {
+        final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final ProjectBuildExecutor boundedExecutor = new ProjectBuildExecutor( singleThreadExecutor );
+            boundedExecutor.setCapacity( 2,
+                                         ProjectBuildExecutor.OverflowPolicy.DROP );
+            final CountDownLatch started = new CountDownLatch( 1 );
+            final CountDownLatch release = new CountDownLatch( 1 );
+            final CountDownLatch done = new CountDownLatch( 2 );
+            final AtomicInteger dropped = new AtomicInteger();
+            final List<BuildPriority> executionOrder = Collections.synchronizedList( new ArrayList<BuildPriority>() );
+
+            boundedExecutor.execute( new BlockingTask( mock( Project.class ),
+                                                       started,
+                                                       release ) );
+            assertTrue( started.await( 10,
+                                       TimeUnit.SECONDS ) );
+
+            for ( int i = 0; i < 5; i++ ) {
+                boundedExecutor.execute( new RecordingTask( mock( Project.class ),
+                                                            BuildPriority.USER,
+                                                            executionOrder,
+                                                            done ) {
+                    @Override
+                    public void dropped() {
+                        dropped.incrementAndGet();
+                    }
+                } );
+            }
+            assertEquals( 2,
+                          boundedExecutor.getQueueSize() );
+            assertEquals( 3,
+                          boundedExecutor.getRejectedTaskCount() );
+            //Dropped tasks are notified so that anyone awaiting them is not left waiting
+            assertEquals( 3,
+                          dropped.get() );
+
+            release.countDown();
+            assertTrue( done.await( 10,
+                                    TimeUnit.SECONDS ) );
+            assertEquals( 2,
+                          executionOrder.size() );
+        } finally {
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueuedTaskYieldsToLaterTask() throws Exception {
+        final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final ProjectBuildExecutor priorityExecutor = new ProjectBuildExecutor( singleThreadExecutor );
+            final Project project = mock( Project.class );
+            final CountDownLatch started = new CountDownLatch( 1 );
+            final CountDownLatch release = new CountDownLatch( 1 );
+            final CountDownLatch done = new CountDownLatch( 1 );
+            final AtomicInteger dropped = new AtomicInteger();
+            final List<BuildPriority> executionOrder = Collections.synchronizedList( new ArrayList<BuildPriority>() );
+
+            priorityExecutor.execute( new BlockingTask( mock( Project.class ),
+                                                        started,
+                                                        release ) );
+            assertTrue( started.await( 10,
+                                       TimeUnit.SECONDS ) );
+
+            priorityExecutor.execute( new RecordingTask( project,
+                                                         BuildPriority.BACKGROUND,
+                                                         executionOrder,
+                                                         done ) {
+                @Override
+                public boolean yieldsTo( final BuildTask task ) {
+                    return task.getPriority() != BuildPriority.BACKGROUND;
+                }
+
+                @Override
+                public void dropped() {
+                    dropped.incrementAndGet();
+                }
+            } );
+            priorityExecutor.execute( new RecordingTask( project,
+                                                         BuildPriority.INTERACTIVE,
+                                                         executionOrder,
+                                                         done ) );
+            assertEquals( 1,
+                          priorityExecutor.getQueuedTasks( project ).size() );
+            assertEquals( 1,
+                          dropped.get() );
+
+            release.countDown();
+            assertTrue( done.await( 10,
+                                    TimeUnit.SECONDS ) );
+            assertEquals( Arrays.asList( BuildPriority.INTERACTIVE ),
+                          executionOrder );
+        } finally {
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallerRunsWhenQueueFull() throws Exception {
+        final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final ProjectBuildExecutor boundedExecutor = new ProjectBuildExecutor( singleThreadExecutor );
+            boundedExecutor.setCapacity( 1,
+                                         ProjectBuildExecutor.OverflowPolicy.CALLER_RUNS );
+            final CountDownLatch started = new CountDownLatch( 1 );
+            final CountDownLatch release = new CountDownLatch( 1 );
+            final CountDownLatch done = new CountDownLatch( 2 );
+            final List<BuildPriority> executionOrder = Collections.synchronizedList( new ArrayList<BuildPriority>() );
+
+            boundedExecutor.execute( new BlockingTask( mock( Project.class ),
+                                                       started,
+                                                       release ) );
+            assertTrue( started.await( 10,
+                                       TimeUnit.SECONDS ) );
+
+            boundedExecutor.execute( new RecordingTask( mock( Project.class ),
+                                                        BuildPriority.BACKGROUND,
+                                                        executionOrder,
+                                                        done ) );
+            //The queue is full so the second task runs on this thread
+            boundedExecutor.execute( new RecordingTask( mock( Project.class ),
+                                                        BuildPriority.USER,
+                                                        executionOrder,
+                                                        done ) );
+            assertEquals( Arrays.asList( BuildPriority.USER ),
+                          executionOrder );
+            assertEquals( 1,
+                          boundedExecutor.getCallerRunTaskCount() );
+
+            release.countDown();
+            assertTrue( done.await( 10,
+                                    TimeUnit.SECONDS ) );
+        } finally {
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallerRunsCoalescedWhenProjectBusy() throws Exception {
+        final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final ProjectBuildExecutor boundedExecutor = new ProjectBuildExecutor( singleThreadExecutor );
+            boundedExecutor.setCapacity( 1,
+                                         ProjectBuildExecutor.OverflowPolicy.CALLER_RUNS );
+            final Project project = mock( Project.class );
+            final CountDownLatch started = new CountDownLatch( 1 );
+            final CountDownLatch release = new CountDownLatch( 1 );
+            final CountDownLatch done = new CountDownLatch( 2 );
+            final AtomicInteger incrementalExecutions = new AtomicInteger();
+            final AtomicInteger fullExecutions = new AtomicInteger();
+
+            boundedExecutor.execute( new BlockingTask( project,
+                                                       started,
+                                                       release ) );
+            assertTrue( started.await( 10,
+                                       TimeUnit.SECONDS ) );
+
+            boundedExecutor.execute( new RecordingTask( mock( Project.class ),
+                                                        BuildPriority.BACKGROUND,
+                                                        Collections.synchronizedList( new ArrayList<BuildPriority>() ),
+                                                        done ) );
+            //The queue is full but the Project is running a task, so the task is coalesced rather than run on this thread
+            boundedExecutor.execute( new IncrementalTask( project,
+                                                          incrementalExecutions,
+                                                          fullExecutions,
+                                                          done ) );
+            assertEquals( 0,
+                          boundedExecutor.getCallerRunTaskCount() );
+            assertEquals( 1,
+                          boundedExecutor.getCoalescedTaskCount() );
+            assertEquals( 1,
+                          boundedExecutor.getQueuedTasks( project ).size() );
+            assertEquals( 0,
+                          fullExecutions.get() );
+
+            release.countDown();
+            assertTrue( done.await( 10,
+                                    TimeUnit.SECONDS ) );
+            assertEquals( 0,
+                          incrementalExecutions.get() );
+            assertEquals( 1,
+                          fullExecutions.get() );
+        } finally {
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTasksCoalescedWhenQueueFull() throws Exception {
+        final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final ProjectBuildExecutor boundedExecutor = new ProjectBuildExecutor( singleThreadExecutor );
+            boundedExecutor.setCapacity( 2,
+                                         ProjectBuildExecutor.OverflowPolicy.COALESCE );
+            final Project project = mock( Project.class );
+            final CountDownLatch started = new CountDownLatch( 1 );
+            final CountDownLatch release = new CountDownLatch( 1 );
+            final CountDownLatch done = new CountDownLatch( 1 );
+            final AtomicInteger incrementalExecutions = new AtomicInteger();
+            final AtomicInteger fullExecutions = new AtomicInteger();
+
+            boundedExecutor.execute( new BlockingTask( mock( Project.class ),
+                                                       started,
+                                                       release ) );
+            assertTrue( started.await( 10,
+                                       TimeUnit.SECONDS ) );
+
+            for ( int i = 0; i < 5; i++ ) {
+                boundedExecutor.execute( new IncrementalTask( project,
+                                                              incrementalExecutions,
+                                                              fullExecutions,
+                                                              done ) );
+            }
+            //The first overflow replaces the queued tasks with a full build that absorbs the remainder
+            assertEquals( 1,
+                          boundedExecutor.getQueuedTasks( project ).size() );
+            assertEquals( 1,
+                          boundedExecutor.getCoalescedTaskCount() );
+            assertEquals( 0,
+                          boundedExecutor.getRejectedTaskCount() );
+
+            release.countDown();
+            assertTrue( done.await( 10,
+                                    TimeUnit.SECONDS ) );
+            assertEquals( 0,
+                          incrementalExecutions.get() );
+            assertEquals( 1,
+                          fullExecutions.get() );
+        } finally {
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    private static class IncrementalTask extends BuildTask {
+
+        private final AtomicInteger incrementalExecutions;
+        private final AtomicInteger fullExecutions;
+        private final CountDownLatch done;
+
+        private IncrementalTask( final Project project,
+                                 final AtomicInteger incrementalExecutions,
+                                 final AtomicInteger fullExecutions,
+                                 final CountDownLatch done ) {
+            super( project );
+            this.incrementalExecutions = incrementalExecutions;
+            this.fullExecutions = fullExecutions;
+            this.done = done;
+        }
+
+        @Override
+        public BuildTask toFullBuild() {
+            return new BuildTask( getProject() ) {
+                @Override
+                public boolean merge( final BuildTask task ) {
+                    return true;
+                }
+
+                @Override
+                public boolean supersedes( final BuildTask task ) {
+                    return true;
+                }
+
+                @Override
+                public void run() {
+                    fullExecutions.incrementAndGet();
+                    done.countDown();
+                }
+            };
+        }
+
+        @Override
+        public void run() {
+            incrementalExecutions.incrementAndGet();
+        }
+    }
+
+    private static class BlockingTask extends BuildTask {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        private BlockingTask( final Project project,
+                              final CountDownLatch started,
+                              final CountDownLatch release ) {
+            super( project );
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class RecordingTask extends BuildTask {
+
+        private final List<BuildPriority> executionOrder;
+        private final CountDownLatch done;
+
+        private RecordingTask( final Project project,
+                               final BuildPriority priority,
+                               final List<BuildPriority> executionOrder,
+                               final CountDownLatch done ) {
+            super( project,
+                   priority );
+            this.executionOrder = executionOrder;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            executionOrder.add( getPriority() );
+            done.countDown();
+        }
+    }
+
+    private static class MergingTask extends BuildTask {
+
+        private final AtomicInteger executions;
+        private final CountDownLatch done;
+
+        private MergingTask( final Project project,
+                             final AtomicInteger executions,
+                             final CountDownLatch done ) {
+            super( project );
+            this.executions = executions;
+            this.done = done;
+        }
+
+        @Override
+        public boolean merge( final BuildTask task ) {
+            return task instanceof MergingTask;
+        }
+
+        @Override
+        public void run() {
+            executions.incrementAndGet();
+            done.countDown();
+        }
+    }
+
+}
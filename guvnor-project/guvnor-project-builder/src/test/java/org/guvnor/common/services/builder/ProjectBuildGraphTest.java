@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.guvnor.common.services.project.model.Dependency;
+import org.guvnor.common.services.project.model.GAV;
+import org.guvnor.common.services.project.model.POM;
+import org.guvnor.common.services.project.model.Project;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ProjectBuildGraphTest {
+
+    @Test
+    public void testDependenciesWithinSet() {
+        final Project common = mock( Project.class );
+        final Project rules = mock( Project.class );
+        final Project app = mock( Project.class );
+        final POM commonPom = new POM( new GAV( "org.example",
+                                                "common",
+                                                "1.0" ) );
+        final POM rulesPom = new POM( new GAV( "org.example",
+                                               "rules",
+                                               "1.0" ) );
+        rulesPom.getDependencies().add( new Dependency( commonPom.getGav() ) );
+        rulesPom.getDependencies().add( new Dependency( new GAV( "org.external",
+                                                                 "library",
+                                                                 "2.0" ) ) );
+        final POM appPom = new POM( new GAV( "org.example",
+                                             "app",
+                                             "1.0" ) );
+        appPom.getDependencies().add( new Dependency( rulesPom.getGav() ) );
+        appPom.getDependencies().add( new Dependency( commonPom.getGav() ) );
+
+        final Map<Project, POM> poms = new LinkedHashMap<Project, POM>();
+        poms.put( app,
+                  appPom );
+        poms.put( rules,
+                  rulesPom );
+        poms.put( common,
+                  commonPom );
+        final ProjectBuildGraph graph = new ProjectBuildGraph( poms );
+
+        assertEquals( 3,
+                      graph.getProjects().size() );
+        assertSame( app,
+                    graph.getProjects().get( 0 ) );
+        assertTrue( graph.getUpstream( common ).isEmpty() );
+        assertEquals( 1,
+                      graph.getUpstream( rules ).size() );
+        assertTrue( graph.getUpstream( rules ).contains( common ) );
+        assertEquals( 2,
+                      graph.getUpstream( app ).size() );
+        assertEquals( 2,
+                      graph.getDownstream( common ).size() );
+        assertTrue( graph.getDownstream( rules ).contains( app ) );
+        assertTrue( graph.getDownstream( app ).isEmpty() );
+        assertEquals( commonPom.getGav(),
+                      graph.getGav( common ) );
+    }
+
+    @Test
+    public void testVersionMismatchIsNotADependency() {
+        final Project common = mock( Project.class );
+        final Project rules = mock( Project.class );
+        final POM commonPom = new POM( new GAV( "org.example",
+                                                "common",
+                                                "2.0" ) );
+        final POM rulesPom = new POM( new GAV( "org.example",
+                                               "rules",
+                                               "1.0" ) );
+        rulesPom.getDependencies().add( new Dependency( new GAV( "org.example",
+                                                                 "common",
+                                                                 "1.0" ) ) );
+
+        final Map<Project, POM> poms = new LinkedHashMap<Project, POM>();
+        poms.put( common,
+                  commonPom );
+        poms.put( rules,
+                  rulesPom );
+        final ProjectBuildGraph graph = new ProjectBuildGraph( poms );
+
+        assertTrue( graph.getUpstream( rules ).isEmpty() );
+        assertTrue( graph.getDownstream( common ).isEmpty() );
+    }
+
+}
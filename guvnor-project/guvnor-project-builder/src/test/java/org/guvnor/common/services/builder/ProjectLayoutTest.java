@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.net.URI;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.fs.file.SimpleFileSystemProvider;
+
+import static org.junit.Assert.*;
+
+public class ProjectLayoutTest {
+
+    private final SimpleFileSystemProvider fileSystemProvider = new SimpleFileSystemProvider();
+
+    private ProjectLayout layout;
+
+    @Before
+    public void setUp() throws Exception {
+        layout = new ProjectLayout( getPath( "/project" ) );
+    }
+
+    @Test
+    public void testClassInPackage() throws Exception {
+        assertEquals( "org.example.model.Person",
+                      layout.getFullyQualifiedClassName( getPath( "/project/src/main/java/org/example/model/Person.java" ) ) );
+        assertEquals( "org.example.PersonTest",
+                      layout.getFullyQualifiedClassName( getPath( "/project/src/test/java/org/example/PersonTest.java" ) ) );
+    }
+
+    @Test
+    public void testClassInDefaultPackage() throws Exception {
+        assertEquals( "Person",
+                      layout.getFullyQualifiedClassName( getPath( "/project/src/main/java/Person.java" ) ) );
+    }
+
+    @Test
+    public void testResourcePackage() throws Exception {
+        assertEquals( "org.example",
+                      layout.getPackageName( getPath( "/project/src/main/resources/org/example/rules.drl" ) ) );
+        assertEquals( "",
+                      layout.getPackageName( getPath( "/project/src/test/resources/rules.drl" ) ) );
+    }
+
+    @Test
+    public void testResourceOutsideSourceRoots() throws Exception {
+        assertNull( layout.getPackageName( getPath( "/project/pom.xml" ) ) );
+        assertNull( layout.getFullyQualifiedClassName( getPath( "/project/src/Person.java" ) ) );
+        assertNull( layout.getFullyQualifiedClassName( getPath( "/project2/src/main/java/org/example/Person.java" ) ) );
+    }
+
+    private Path getPath( final String path ) throws Exception {
+        return fileSystemProvider.getPath( new URI( "file://" + path ) );
+    }
+
+}
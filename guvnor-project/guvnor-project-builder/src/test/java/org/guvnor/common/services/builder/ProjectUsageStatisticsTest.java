@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.guvnor.common.services.project.model.Project;
+import org.junit.Test;
+import org.uberfire.backend.vfs.Path;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ProjectUsageStatisticsTest {
+
+    @Test
+    public void testSortByUsage() throws Exception {
+        final ProjectUsageStatistics statistics = new ProjectUsageStatistics();
+        final Project unused1 = makeProject( "unused1" );
+        final Project unused2 = makeProject( "unused2" );
+        final Project usedEarlier = makeProject( "usedEarlier" );
+        final Project usedLater = makeProject( "usedLater" );
+
+        statistics.recordUsage( usedEarlier );
+        statistics.recordUsage( usedEarlier );
+        Thread.sleep( 5 );
+        statistics.recordUsage( usedLater );
+
+        final List<Project> sorted = statistics.sortByUsage( Arrays.asList( unused1,
+                                                                            usedEarlier,
+                                                                            unused2,
+                                                                            usedLater ) );
+        assertEquals( Arrays.asList( usedLater,
+                                     usedEarlier,
+                                     unused1,
+                                     unused2 ),
+                      sorted );
+    }
+
+    private Project makeProject( final String name ) {
+        final Path rootPath = mock( Path.class );
+        when( rootPath.toURI() ).thenReturn( "file:///" + name );
+        final Project project = mock( Project.class );
+        when( project.getRootPath() ).thenReturn( rootPath );
+        return project;
+    }
+
+}
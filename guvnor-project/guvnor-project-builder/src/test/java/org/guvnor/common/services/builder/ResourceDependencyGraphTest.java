@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResourceDependencyGraphTest {
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    @Test
+    public void testEstimatedSizeTracksIdentifiers() {
+        final ResourceDependencyGraph graph = new ResourceDependencyGraph();
+        assertEquals( 0,
+                      graph.getEstimatedSize() );
+
+        graph.update( "src/main/resources/rules.drl",
+                      "declare Applicant age : int end".getBytes( UTF8 ) );
+        final long size = graph.getEstimatedSize();
+        assertTrue( size > 0 );
+
+        //Updating a resource replaces, rather than adds to, its identifiers
+        graph.update( "src/main/resources/rules.drl",
+                      "declare Applicant age : int end".getBytes( UTF8 ) );
+        assertEquals( size,
+                      graph.getEstimatedSize() );
+
+        graph.update( "src/main/resources/more.drl",
+                      "rule r when Applicant( age > 18 ) then end".getBytes( UTF8 ) );
+        assertTrue( graph.getEstimatedSize() > size );
+
+        graph.remove( "src/main/resources/more.drl" );
+        assertEquals( size,
+                      graph.getEstimatedSize() );
+        graph.remove( "src/main/resources/rules.drl" );
+        assertEquals( 0,
+                      graph.getEstimatedSize() );
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.guvnor.common.services.builder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimingHistogramTest {
+
+    private static final long MILLISECOND = 1000000;
+
+    @Test
+    public void testSummary() {
+        final TimingHistogram histogram = new TimingHistogram();
+        for ( int i = 1; i <= 100; i++ ) {
+            histogram.record( i * MILLISECOND );
+        }
+
+        assertEquals( 100,
+                      histogram.getCount() );
+        assertEquals( 5050.0,
+                      histogram.getTotalTime(),
+                      0.001 );
+        assertEquals( 1.0,
+                      histogram.getMinTime(),
+                      0.001 );
+        assertEquals( 100.0,
+                      histogram.getMaxTime(),
+                      0.001 );
+        assertEquals( 50.5,
+                      histogram.getMeanTime(),
+                      0.001 );
+    }
+
+    @Test
+    public void testPercentilesAreWithinBucketPrecision() {
+        final TimingHistogram histogram = new TimingHistogram();
+        for ( int i = 1; i <= 1000; i++ ) {
+            histogram.record( i * MILLISECOND );
+        }
+
+        assertEquals( 500.0,
+                      histogram.get50thPercentile(),
+                      500.0 * 0.25 );
+        assertEquals( 950.0,
+                      histogram.get95thPercentile(),
+                      950.0 * 0.25 );
+        assertEquals( 990.0,
+                      histogram.get99thPercentile(),
+                      990.0 * 0.25 );
+        assertTrue( histogram.get50thPercentile() >= 500.0 );
+        assertTrue( histogram.get99thPercentile() <= histogram.getMaxTime() );
+    }
+
+    @Test
+    public void testBucketsCoverAllValues() {
+        long value = 1;
+        while ( value > 0 ) {
+            final int bucket = TimingHistogram.getBucket( value );
+            assertTrue( TimingHistogram.getUpperBound( bucket ) >= value );
+            assertTrue( bucket == 0 || TimingHistogram.getUpperBound( bucket - 1 ) < value );
+            value = value * 3 / 2 + 1;
+        }
+        assertEquals( Long.MAX_VALUE,
+                      TimingHistogram.getUpperBound( TimingHistogram.getBucket( Long.MAX_VALUE ) ) );
+    }
+
+    @Test
+    public void testReset() {
+        final TimingHistogram histogram = new TimingHistogram();
+        histogram.record( MILLISECOND );
+        histogram.reset();
+
+        assertEquals( 0,
+                      histogram.getCount() );
+        assertEquals( 0.0,
+                      histogram.getMinTime(),
+                      0.0 );
+        assertEquals( 0.0,
+                      histogram.get99thPercentile(),
+                      0.0 );
+    }
+
+}
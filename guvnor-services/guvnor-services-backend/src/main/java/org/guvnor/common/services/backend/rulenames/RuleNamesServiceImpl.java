@@ -4,8 +4,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
@@ -24,8 +27,9 @@ public class RuleNamesServiceImpl
 
     private ProjectService projectService;
 
-    // List of available rule names per project and package
-    private final Map<Project, Map<String, Collection<String>>> ruleNames = new HashMap<Project, Map<String, Collection<String>>>();
+    // List of available rule names per project and package. A project's Map, and the Collections it contains, are
+    // never modified once published; updates replace them so readers always see a consistent set of rule names
+    private final Map<Project, Map<String, Collection<String>>> ruleNames = new ConcurrentHashMap<Project, Map<String, Collection<String>>>();
 
     public RuleNamesServiceImpl() {
         // Boilerplate sacrifice for Weld
@@ -74,7 +78,45 @@ public class RuleNamesServiceImpl
         return ruleNames.get( project ).get( packageName );
     }
 
-    void onRuleNamesUpdated( @Observes final RuleNameUpdateEvent ruleNameUpdateEvent ) {
-        ruleNames.put( ruleNameUpdateEvent.getProject(), new HashMap<String, Collection<String>>( ruleNameUpdateEvent.getRuleNames() ) );
+    synchronized void onRuleNamesUpdated( @Observes final RuleNameUpdateEvent ruleNameUpdateEvent ) {
+        final Project project = ruleNameUpdateEvent.getProject();
+        final Map<String, Collection<String>> projectRuleNames = ruleNames.get( project );
+        if ( projectRuleNames == null || !ruleNameUpdateEvent.isDelta() ) {
+            ruleNames.put( project, new HashMap<String, Collection<String>>( ruleNameUpdateEvent.getRuleNames() ) );
+            return;
+        }
+
+        //Only packages whose rule names changed are copied; the others are shared with the previous Map
+        final Map<String, Collection<String>> updatedRuleNames = new HashMap<String, Collection<String>>( projectRuleNames );
+        for ( Map.Entry<String, Collection<String>> e : ruleNameUpdateEvent.getRemovedRuleNames().entrySet() ) {
+            final Collection<String> packageRuleNames = updatedRuleNames.get( e.getKey() );
+            if ( packageRuleNames != null ) {
+                final List<String> updatedPackageRuleNames = new ArrayList<String>( packageRuleNames );
+                updatedPackageRuleNames.removeAll( e.getValue() );
+                if ( updatedPackageRuleNames.isEmpty() && !hasPackage( ruleNameUpdateEvent, e.getKey() ) ) {
+                    updatedRuleNames.remove( e.getKey() );
+                } else {
+                    updatedRuleNames.put( e.getKey(), updatedPackageRuleNames );
+                }
+            }
+        }
+        for ( Map.Entry<String, Collection<String>> e : ruleNameUpdateEvent.getAddedRuleNames().entrySet() ) {
+            final Collection<String> packageRuleNames = updatedRuleNames.get( e.getKey() );
+            final List<String> updatedPackageRuleNames = packageRuleNames == null ? new ArrayList<String>() : new ArrayList<String>( packageRuleNames );
+            final Set<String> existingRuleNames = new HashSet<String>( updatedPackageRuleNames );
+            for ( String ruleName : e.getValue() ) {
+                if ( existingRuleNames.add( ruleName ) ) {
+                    updatedPackageRuleNames.add( ruleName );
+                }
+            }
+            updatedRuleNames.put( e.getKey(), updatedPackageRuleNames );
+        }
+        ruleNames.put( project, updatedRuleNames );
+    }
+
+    //Packages without rules are only retained if present in the event's complete Map, as they are when that is applied
+    private boolean hasPackage( final RuleNameUpdateEvent ruleNameUpdateEvent,
+                                final String packageName ) {
+        return ruleNameUpdateEvent.getRuleNames() != null && ruleNameUpdateEvent.getRuleNames().containsKey( packageName );
     }
 }
@@ -0,0 +1,124 @@
+package org.guvnor.common.services.backend.rulenames;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+import org.guvnor.common.services.project.events.RuleNameUpdateEvent;
+import org.guvnor.common.services.project.model.Project;
+import org.guvnor.common.services.project.service.ProjectService;
+import org.junit.Test;
+import org.uberfire.backend.vfs.Path;
+
+import static junit.framework.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class RuleNamesServiceImplTest {
+
+    @Test
+    public void testBasic() throws Exception {
+
+        final ProjectService projectService = mock( ProjectService.class );
+        final Project project = mock( Project.class );
+        final Path path = mock( Path.class );
+        when( projectService.resolveProject( any( Path.class ) ) ).thenReturn( project );
+
+        final RuleNamesServiceImpl ruleNamesService = new RuleNamesServiceImpl( projectService );
+
+        final HashMap<String, Collection<String>> ruleNames = new HashMap<String, Collection<String>>();
+
+        final ArrayList<String> rules = new ArrayList<String>();
+        rules.add( "Rule 1" );
+        rules.add( "Rule 2" );
+        ruleNames.put( "testPackage", rules );
+
+        ruleNamesService.onRuleNamesUpdated( new RuleNameUpdateEvent( project, ruleNames ) );
+
+        assertEquals( 2, ruleNamesService.getRuleNames( path ).size() );
+        assertEquals( "Rule 1", ruleNamesService.getRuleNames( path ).get( 0 ) );
+        assertEquals( "Rule 2", ruleNamesService.getRuleNames( path ).get( 1 ) );
+
+        assertEquals( 2, ruleNamesService.getRuleNamesForPackage( path, "testPackage" ).size() );
+        assertEquals( "Rule 1", ruleNamesService.getRuleNamesForPackage( path, "testPackage" ).toArray()[ 0 ] );
+        assertEquals( "Rule 2", ruleNamesService.getRuleNamesForPackage( path, "testPackage" ).toArray()[ 1 ] );
+
+        assertEquals( 1, ruleNamesService.getRuleNamesMap( path ).keySet().size() );
+        assertTrue( ruleNamesService.getRuleNamesMap( path ).keySet().contains( "testPackage" ) );
+        assertEquals( "Rule 1", ruleNamesService.getRuleNamesMap( path ).get( "testPackage" ).toArray()[ 0 ] );
+        assertEquals( "Rule 2", ruleNamesService.getRuleNamesMap( path ).get( "testPackage" ).toArray()[ 1 ] );
+    }
+
+    @Test
+    public void testDelta() throws Exception {
+
+        final ProjectService projectService = mock( ProjectService.class );
+        final Project project = mock( Project.class );
+        final Path path = mock( Path.class );
+        when( projectService.resolveProject( any( Path.class ) ) ).thenReturn( project );
+
+        final RuleNamesServiceImpl ruleNamesService = new RuleNamesServiceImpl( projectService );
+
+        final HashMap<String, Collection<String>> ruleNames = new HashMap<String, Collection<String>>();
+        final ArrayList<String> rules = new ArrayList<String>();
+        rules.add( "Rule 1" );
+        rules.add( "Rule 2" );
+        ruleNames.put( "testPackage", rules );
+        final ArrayList<String> otherRules = new ArrayList<String>();
+        otherRules.add( "Rule 3" );
+        ruleNames.put( "otherPackage", otherRules );
+
+        ruleNamesService.onRuleNamesUpdated( new RuleNameUpdateEvent( project, ruleNames ) );
+        final Collection<String> otherPackageRuleNames = ruleNamesService.getRuleNamesForPackage( path, "otherPackage" );
+
+        final HashMap<String, Collection<String>> addedRuleNames = new HashMap<String, Collection<String>>();
+        addedRuleNames.put( "testPackage", Arrays.asList( "Rule 4" ) );
+        addedRuleNames.put( "newPackage", Arrays.asList( "Rule 5" ) );
+        final HashMap<String, Collection<String>> removedRuleNames = new HashMap<String, Collection<String>>();
+        removedRuleNames.put( "testPackage", Arrays.asList( "Rule 1" ) );
+
+        ruleNamesService.onRuleNamesUpdated( new RuleNameUpdateEvent( project, ruleNames, addedRuleNames, removedRuleNames ) );
+
+        assertEquals( 2, ruleNamesService.getRuleNamesForPackage( path, "testPackage" ).size() );
+        assertEquals( "Rule 2", ruleNamesService.getRuleNamesForPackage( path, "testPackage" ).toArray()[ 0 ] );
+        assertEquals( "Rule 4", ruleNamesService.getRuleNamesForPackage( path, "testPackage" ).toArray()[ 1 ] );
+        assertEquals( 1, ruleNamesService.getRuleNamesForPackage( path, "newPackage" ).size() );
+        assertEquals( 3, ruleNamesService.getRuleNamesMap( path ).keySet().size() );
+
+        //Packages that did not change are not copied
+        assertSame( otherPackageRuleNames, ruleNamesService.getRuleNamesForPackage( path, "otherPackage" ) );
+    }
+
+    @Test
+    public void testDeltaRemovesEmptyPackages() throws Exception {
+
+        final ProjectService projectService = mock( ProjectService.class );
+        final Project project = mock( Project.class );
+        final Path path = mock( Path.class );
+        when( projectService.resolveProject( any( Path.class ) ) ).thenReturn( project );
+
+        final RuleNamesServiceImpl ruleNamesService = new RuleNamesServiceImpl( projectService );
+
+        final HashMap<String, Collection<String>> ruleNames = new HashMap<String, Collection<String>>();
+        ruleNames.put( "testPackage", Arrays.asList( "Rule 1" ) );
+        ruleNames.put( "otherPackage", Arrays.asList( "Rule 2" ) );
+        ruleNames.put( "defaultpkg", Arrays.asList( "Rule 3" ) );
+
+        ruleNamesService.onRuleNamesUpdated( new RuleNameUpdateEvent( project, ruleNames ) );
+
+        //otherPackage no longer exists whereas defaultpkg remains, without rules
+        final HashMap<String, Collection<String>> updatedRuleNames = new HashMap<String, Collection<String>>();
+        updatedRuleNames.put( "testPackage", Arrays.asList( "Rule 1" ) );
+        updatedRuleNames.put( "defaultpkg", new ArrayList<String>() );
+        final HashMap<String, Collection<String>> removedRuleNames = new HashMap<String, Collection<String>>();
+        removedRuleNames.put( "otherPackage", Arrays.asList( "Rule 2" ) );
+        removedRuleNames.put( "defaultpkg", Arrays.asList( "Rule 3" ) );
+
+        ruleNamesService.onRuleNamesUpdated( new RuleNameUpdateEvent( project, updatedRuleNames, new HashMap<String, Collection<String>>(), removedRuleNames ) );
+
+        assertEquals( updatedRuleNames.keySet(), ruleNamesService.getRuleNamesMap( path ).keySet() );
+        assertTrue( ruleNamesService.getRuleNamesForPackage( path, "defaultpkg" ).isEmpty() );
+        assertEquals( 1, ruleNamesService.getRuleNames( path ).size() );
+    }
+}